@@ -0,0 +1,73 @@
+package finance.benchmark;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.Wallet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Генерация данных для бенчмарков
+ * Данные детерминированы: одинаковый seed дает одинаковые кошельки во всех прогонах
+ */
+final class Fixtures {
+    static final String[] CATEGORIES = {
+        "Еда", "Транспорт", "Жилье", "Связь", "Здоровье", "Одежда",
+        "Развлечения", "Образование", "Подарки", "Путешествия", "Спорт", "Прочее"
+    };
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private Fixtures() {
+    }
+
+    /**
+     * Случайная транзакция; примерно каждая пятая - доход
+     */
+    static Transaction transaction(SplittableRandom random, LocalDateTime date) {
+        boolean income = random.nextInt(5) == 0;
+        String category = income ? "Зарплата" : CATEGORIES[random.nextInt(CATEGORIES.length)];
+        long amount = 1 + random.nextInt(500_000);
+        return new Transaction(random.nextLong() & Long.MAX_VALUE, income ? TransactionType.INCOME : TransactionType.EXPENSE,
+                category, amount, "benchmark", date);
+    }
+
+    /**
+     * Кошелек с заданным числом транзакций, равномерно распределенных по нескольким годам
+     */
+    static Wallet wallet(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Wallet wallet = new Wallet();
+        for (String category : CATEGORIES) {
+            wallet.setBudget(category, 10_000);
+        }
+        long stepSeconds = Math.max(1, 5L * 365 * 24 * 3600 / Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            wallet.addTransaction(transaction(random, START.plusSeconds(i * stepSeconds)));
+        }
+        return wallet;
+    }
+
+    static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("finance-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package finance.benchmark;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.service.ManageService;
+import finance.service.Session;
+import finance.storage.Durability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции сервиса в зависимости от числа пользователей и размера их кошельков
+ * Сервис работает во временном каталоге; запись в журнал включена
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ManageServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        @Param({ "10", "1000", "10000" })
+        int users;
+
+        @Param({ "1000" })
+        int transactionsPerUser;
+
+        @Param({ "DURABLE", "ASYNC" })
+        Durability durability;
+
+        Path directory;
+        ManageService service;
+        Session[] sessions;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            directory = Fixtures.tempDirectory();
+            service = new ManageService(directory);
+            service.setDurability(Durability.ASYNC);
+            sessions = new Session[users];
+            SplittableRandom random = new SplittableRandom(42);
+            for (int u = 0; u < users; u++) {
+                String login = "user" + u;
+                service.register(login, "password");
+                sessions[u] = service.login(login, "password");
+                service.addIncome(sessions[u], "Зарплата", 1_000_000, "benchmark");
+                for (int i = 1; i < transactionsPerUser; i++) {
+                    Transaction t = Fixtures.transaction(random, LocalDateTime.now());
+                    if (t.getType() == TransactionType.INCOME) {
+                        service.addIncome(sessions[u], t.getCategory(), t.getAmount(), t.getDescription());
+                    } else {
+                        service.addExpense(sessions[u], t.getCategory(), t.getAmount(), t.getDescription());
+                    }
+                }
+            }
+            service.checkpoint();
+            service.setDurability(durability);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            service.close();
+            Fixtures.delete(directory);
+        }
+    }
+
+    /**
+     * Случайный выбор пользователей, свой для каждого потока
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+
+        Session session(Service state) {
+            return state.sessions[random.nextInt(state.sessions.length)];
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Map<String, Double> getExpensesByCategory(Service state, Picker picker) {
+        return state.service.getExpensesByCategory(picker.session(state));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Transaction> getRecentTransactions(Service state, Picker picker) {
+        return state.service.getRecentTransactions(picker.session(state), 20);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean transfer(Service state, Picker picker) {
+        Session from = picker.session(state);
+        String to = picker.session(state).getLogin();
+        return state.service.transfer(from, to, 0.01, "benchmark");
+    }
+}
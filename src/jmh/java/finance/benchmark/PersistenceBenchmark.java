@@ -0,0 +1,117 @@
+package finance.benchmark;
+
+import finance.service.ManageService;
+import finance.service.Session;
+import finance.storage.Durability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка и сохранение данных сервиса
+ * loadIndex - открытие сервиса (индекс учетных записей и журнал), loadAllWallets - открытие
+ * с чтением всех кошельков, checkpoint - запись контрольной точки после изменения каждого кошелька
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class PersistenceBenchmark {
+
+    /**
+     * Каталог с данными, заполненный один раз на прогон
+     */
+    @State(Scope.Benchmark)
+    public static class DataFiles {
+        @Param({ "100", "10000" })
+        int users;
+
+        @Param({ "1000" })
+        int transactionsPerUser;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            directory = Fixtures.tempDirectory();
+            ManageService writer = new ManageService(directory);
+            writer.setDurability(Durability.ASYNC);
+            SplittableRandom random = new SplittableRandom(42);
+            for (int u = 0; u < users; u++) {
+                String login = "user" + u;
+                writer.register(login, "password");
+                Session session = writer.login(login, "password");
+                for (int i = 0; i < transactionsPerUser; i++) {
+                    writer.addExpense(session, Fixtures.CATEGORIES[random.nextInt(Fixtures.CATEGORIES.length)],
+                            1 + random.nextInt(1000), "benchmark");
+                }
+            }
+            writer.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteFiles() {
+            Fixtures.delete(directory);
+        }
+    }
+
+    /**
+     * Открытый сервис, в котором изменен каждый кошелек, для замера контрольной точки
+     */
+    @State(Scope.Benchmark)
+    public static class Modified {
+        ManageService service;
+
+        @Setup(Level.Invocation)
+        public void openAndModify(DataFiles files) {
+            service = new ManageService(files.directory);
+            service.setDurability(Durability.ASYNC);
+            for (int u = 0; u < files.users; u++) {
+                service.addIncome(service.login("user" + u, "password"), "Зарплата", 1, "benchmark");
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeService() {
+            service.close();
+        }
+    }
+
+    @Benchmark
+    public ManageService loadIndex(DataFiles files) {
+        ManageService opened = new ManageService(files.directory);
+        opened.close();
+        return opened;
+    }
+
+    @Benchmark
+    public double loadAllWallets(DataFiles files) {
+        ManageService opened = new ManageService(files.directory);
+        double total = 0;
+        for (int u = 0; u < files.users; u++) {
+            total += opened.getBalance(opened.login("user" + u, "password"));
+        }
+        opened.close();
+        return total;
+    }
+
+    @Benchmark
+    public void checkpoint(Modified state) {
+        state.service.checkpoint();
+    }
+}
@@ -0,0 +1,80 @@
+package finance.benchmark;
+
+import finance.models.Transaction;
+import finance.models.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции одного кошелька в зависимости от числа транзакций в нем
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class WalletBenchmark {
+    @Param({ "1000", "100000", "10000000" })
+    private int size;
+
+    private Wallet wallet;
+    private SplittableRandom random;
+    private Transaction next;
+
+    @Setup(Level.Trial)
+    public void createWallet() {
+        wallet = Fixtures.wallet(size, 42);
+        random = new SplittableRandom(7);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextTransaction() {
+        next = Fixtures.transaction(random, LocalDateTime.now());
+    }
+
+    /**
+     * Добавление транзакции; кошелек растет в течение прогона, при 1000 строк это заметно
+     */
+    @Benchmark
+    public Wallet addTransaction() {
+        wallet.addTransaction(next);
+        return wallet;
+    }
+
+    @Benchmark
+    public double getBalance() {
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    public double getSpentByCategory() {
+        return wallet.getSpentByCategory("Транспорт");
+    }
+
+    @Benchmark
+    public Map<String, Double> getExpensesByCategory() {
+        return wallet.getExpensesByCategory();
+    }
+
+    @Benchmark
+    public List<Transaction> getRecentTransactions() {
+        return wallet.getRecentTransactions(20);
+    }
+}
@@ -1,18 +1,32 @@
 package finance;
 
+import finance.models.TransactionType;
+import finance.service.ImportResult;
 import finance.service.ManageService;
+import finance.service.NotificationSink;
+import finance.service.Session;
+import finance.storage.ExportFormat;
+import finance.web.FinanceServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 /**
  *  Класс приложения для управления личными финансами 
  */
 @SpringBootApplication
 public class App {
+    private static final int REPORT_TOP = 10;
+    
     private ManageService financeManager;
+    private Session session;
     private Scanner scanner;
     private boolean running;
     
@@ -22,6 +36,7 @@ public class App {
      */
     public App() {
         this.financeManager = new ManageService();
+        this.financeManager.setNotificationSink(this::showNotification);
         this.scanner = new Scanner(System.in);
         this.running = true;
     }
@@ -34,7 +49,7 @@ public class App {
         System.out.println("_____ Finanse App _____");
         
         while (running) {
-            if (financeManager.getCurrentUser() == null) {
+            if (session == null) {
                 showAuthMenu();
             } else {
                 showMainMenu();
@@ -42,9 +57,22 @@ public class App {
         }
         
         scanner.close();
+        financeManager.close();
         System.out.println("Приложение завершено. Данные сохранены.");
     }
     
+    /**
+     * Вывод сообщения сервиса в консоль
+     * Сообщения доставляются асинхронно и могут прийти во время ввода, поэтому оповещение
+     * отделяется от приглашения к вводу пустой строкой
+     */
+    private void showNotification(NotificationSink.Level level, Supplier<String> message) {
+        if (level == NotificationSink.Level.ALERT) {
+            System.out.println();
+        }
+        System.out.println(message.get());
+    }
+    
     /**
      * Отображение меню авторизации
      * Предлагает пользователю войти, зарегистрироваться или выйти
@@ -84,7 +112,10 @@ public class App {
         System.out.println("3. Установить бюджет");
         System.out.println("4. Показать статистику");
         System.out.println("5. Перевод другому пользователю");
-        System.out.println("6. Выйти из аккаунта");
+        System.out.println("6. Импорт выписки (CSV)");
+        System.out.println("7. Экспорт данных");
+        System.out.println("8. Метрики");
+        System.out.println("9. Выйти из аккаунта");
         System.out.print("Выберите действие: ");
         
         int choice = readIntInput();
@@ -106,7 +137,18 @@ public class App {
                 transferMoney();
                 break;
             case 6:
-                financeManager.logout();
+                importStatement();
+                break;
+            case 7:
+                exportData();
+                break;
+            case 8:
+                System.out.println("\n--- Метрики ---");
+                System.out.print(financeManager.getMetrics().format());
+                break;
+            case 9:
+                financeManager.logout(session);
+                session = null;
                 break;
             default:
                 System.out.println("Неверный выбор!");
@@ -123,7 +165,8 @@ public class App {
         System.out.print("Пароль: ");
         String password = scanner.nextLine();
         
-        if (financeManager.login(login, password)) {
+        session = financeManager.login(login, password);
+        if (session != null) {
             System.out.println("Успешный вход! Добро пожаловать, " + login);
         } else {
             System.out.println("Неверный логин или пароль!");
@@ -140,10 +183,14 @@ public class App {
         System.out.print("Придумайте пароль: ");
         String password = scanner.nextLine();
         
-        if (financeManager.register(login, password)) {
-            System.out.println("Регистрация успешна! Теперь войдите в систему.");
-        } else {
-            System.out.println("Пользователь с таким логином уже существует!");
+        try {
+            if (financeManager.register(login, password)) {
+                System.out.println("Регистрация успешна! Теперь войдите в систему.");
+            } else {
+                System.out.println("Пользователь с таким логином уже существует!");
+            }
+        } catch (Exception e) {
+            System.out.println("Ошибка: " + e.getMessage());
         }
     }
     
@@ -160,7 +207,7 @@ public class App {
             System.out.print("Описание: ");
             String description = scanner.nextLine();
             
-            financeManager.addIncome(category, amount, description);
+            financeManager.addIncome(session, category, amount, description);
             System.out.println("Доход успешно добавлен!");
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
@@ -180,7 +227,7 @@ public class App {
             System.out.print("Описание: ");
             String description = scanner.nextLine();
             
-            financeManager.addExpense(category, amount, description);
+            financeManager.addExpense(session, category, amount, description);
             System.out.println("Расход успешно добавлен!");
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
@@ -198,7 +245,7 @@ public class App {
             System.out.print("Сумма бюджета: ");
             double amount = readDoubleInput();
             
-            financeManager.setBudget(category, amount);
+            financeManager.setBudget(session, category, amount);
             System.out.println("Бюджет установлен!");
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
@@ -213,6 +260,7 @@ public class App {
         System.out.println("\n--- Статистика ---");
         
         displayGeneralStatistics();
+        displayMonthStatistics();
         displayIncomeByCategory();
         displayExpensesByCategory();
         displayBudgets();
@@ -223,8 +271,8 @@ public class App {
      * Включает общий доход, расходы и баланс
      */
     private void displayGeneralStatistics() {
-        double totalIncome = financeManager.getTotalIncome();
-        double totalExpense = financeManager.getTotalExpense();
+        double totalIncome = financeManager.getTotalIncome(session);
+        double totalExpense = financeManager.getTotalExpense(session);
         double balance = totalIncome - totalExpense;
         
         System.out.printf("Общий доход: %,10.2f%n", totalIncome);
@@ -232,13 +280,29 @@ public class App {
         System.out.printf("Баланс: %,10.2f%n", balance);
     }
     
+    /**
+     * Отображение статистики за текущий месяц
+     * Включает доходы и расходы месяца и распределение расходов месяца по категориям
+     */
+    private void displayMonthStatistics() {
+        YearMonth month = YearMonth.now();
+        double income = financeManager.getMonthTotal(session, TransactionType.INCOME, month);
+        double expense = financeManager.getMonthTotal(session, TransactionType.EXPENSE, month);
+        
+        System.out.println("\nЗа текущий месяц (" + month + "):");
+        System.out.printf("  Доход: %,10.2f%n", income);
+        System.out.printf("  Расходы: %,10.2f%n", expense);
+        financeManager.getCategoryTotals(session, TransactionType.EXPENSE, month).forEach((category, amount) ->
+            System.out.printf("    %s: %,10.2f%n", category, amount));
+    }
+    
     /**
      * Отображение доходов по категориям
      * Показывает распределение доходов между различными категориями
      */
     private void displayIncomeByCategory() {
         System.out.println("\nДоходы по категориям:");
-        Map<String, Double> incomeByCategory = financeManager.getIncomeByCategory();
+        Map<String, Double> incomeByCategory = financeManager.getIncomeByCategory(session);
         if (incomeByCategory.isEmpty()) {
             System.out.println("  Нет данных о доходах");
         } else {
@@ -253,7 +317,7 @@ public class App {
      */
     private void displayExpensesByCategory() {
         System.out.println("\nРасходы по категориям:");
-        Map<String, Double> expensesByCategory = financeManager.getExpensesByCategory();
+        Map<String, Double> expensesByCategory = financeManager.getExpensesByCategory(session);
         if (expensesByCategory.isEmpty()) {
             System.out.println("  Нет данных о расходах");
         } else {
@@ -268,8 +332,8 @@ public class App {
      */
     private void displayBudgets() {
         System.out.println("\nБюджеты по категориям:");
-        Map<String, Double> budgets = financeManager.getCurrentUser().getWallet().getBudgets();
-        Map<String, Double> expenses = financeManager.getExpensesByCategory();
+        Map<String, Double> budgets = financeManager.getBudgets(session);
+        Map<String, Double> expenses = financeManager.getExpensesByCategory(session);
         
         if (budgets.isEmpty()) {
             System.out.println("  Бюджеты не установлены");
@@ -296,7 +360,7 @@ public class App {
             System.out.print("Описание: ");
             String description = scanner.nextLine();
             
-            if (financeManager.transfer(toUser, amount, description)) {
+            if (financeManager.transfer(session, toUser, amount, description)) {
                 System.out.println("Перевод выполнен успешно!");
             }
         } catch (Exception e) {
@@ -304,6 +368,51 @@ public class App {
         }
     }
     
+    /**
+     * Импорт банковской выписки из файла CSV
+     * Запрашивает путь к файлу и выводит итог импорта
+     */
+    private void importStatement() {
+        System.out.print("Путь к файлу выписки: ");
+        String path = scanner.nextLine().trim();
+        try {
+            ImportResult result = financeManager.importStatement(session, Paths.get(path));
+            System.out.println("Импортировано операций: " + result.getImported());
+            if (result.getSkipped() > 0) {
+                System.out.println("Пропущено строк с ошибками: " + result.getSkipped());
+                result.getErrors().forEach(error -> System.out.println("  " + error));
+            }
+        } catch (Exception e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Экспорт операций или сумм по категориям в файл CSV или JSON Lines
+     * Формат выбирается по расширению файла: .jsonl - JSON Lines, иначе CSV
+     */
+    private void exportData() {
+        System.out.println("1. Все операции");
+        System.out.println("2. Суммы по категориям");
+        System.out.print("Что экспортировать: ");
+        int choice = readIntInput();
+        if (choice != 1 && choice != 2) {
+            System.out.println("Неверный выбор!");
+            return;
+        }
+        System.out.print("Путь к файлу (.csv или .jsonl): ");
+        String path = scanner.nextLine().trim();
+        ExportFormat format = path.toLowerCase().endsWith(".jsonl") ? ExportFormat.JSONL : ExportFormat.CSV;
+        try {
+            long count = choice == 1
+                    ? financeManager.exportTransactions(session, Paths.get(path), format)
+                    : financeManager.exportCategoryTotals(session, Paths.get(path), format);
+            System.out.println("Экспортировано записей: " + count);
+        } catch (Exception e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
+    
     /**
      * Чтение целочисленного ввода от пользователя
      * Повторяет запрос до получения корректного целого числа
@@ -336,9 +445,34 @@ public class App {
     
     /**
      * Точка входа в приложение
+     * С аргументом --server запускается HTTP API вместо консольного меню,
+     * с аргументом --report печатается сводный отчет оператора по всем пользователям,
+     * с аргументом --batch [ФАЙЛ] выполняются команды из файла или стандартного ввода (см. BatchRunner)
      * @param args аргументы командной строки
+     * @throws IOException при ошибке чтения файла команд
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (Arrays.asList(args).contains("--server")) {
+            FinanceServer.main(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--report")) {
+            ManageService service = new ManageService();
+            try {
+                System.out.print(service.buildOperatorReport(REPORT_TOP).format());
+            } finally {
+                service.close();
+            }
+            return;
+        }
+        int batch = Arrays.asList(args).indexOf("--batch");
+        if (batch >= 0) {
+            long failed = BatchRunner.run(batch + 1 < args.length ? args[batch + 1] : null);
+            if (failed > 0) {
+                System.exit(1);
+            }
+            return;
+        }
         new App().start();
     }
 }
\ No newline at end of file
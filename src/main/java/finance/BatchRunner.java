@@ -0,0 +1,233 @@
+package finance;
+
+import finance.models.Money;
+import finance.service.ManageService;
+import finance.service.Session;
+import finance.storage.Durability;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетный режим: выполнение команд из файла или стандартного ввода без меню и приглашений
+ * Одна команда на строку, аргументы разделяются пробелами, аргумент с пробелами берется в кавычки.
+ * Пустые строки и строки, начинающиеся с #, пропускаются. Команды:
+ * <pre>
+ * register ЛОГИН ПАРОЛЬ
+ * login ЛОГИН ПАРОЛЬ
+ * logout
+ * income КАТЕГОРИЯ СУММА [ОПИСАНИЕ...]
+ * expense КАТЕГОРИЯ СУММА [ОПИСАНИЕ...]
+ * budget КАТЕГОРИЯ СУММА
+ * transfer ПОЛУЧАТЕЛЬ СУММА [ОПИСАНИЕ...]
+ * stats
+ * </pre>
+ * Операции подтверждаются без ожидания сброса журнала на диск (Durability.ASYNC): записи
+ * группируются журналом, а при завершении пакета сервис записывает контрольную точку.
+ * Вывод, включая сообщения сервиса, буферизуется и сбрасывается в конце пакета.
+ * Ошибка в команде не прерывает пакет: она выводится с номером строки и учитывается в итоге
+ */
+public final class BatchRunner {
+    private static final int OUTPUT_BUFFER = 1 << 16;
+
+    private final ManageService financeManager;
+    private final PrintStream out;
+    private Session session;
+    private long executed;
+    private long failed;
+
+    BatchRunner(ManageService financeManager, PrintStream out) {
+        this.financeManager = financeManager;
+        this.out = out;
+    }
+
+    /**
+     * Запуск пакета из командной строки
+     * @param source путь к файлу команд или null/"-" для стандартного ввода
+     * @return количество команд, завершившихся ошибкой
+     * @throws IOException при ошибке чтения команд
+     */
+    public static long run(String source) throws IOException {
+        PrintStream console = System.out;
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                OUTPUT_BUFFER), false, StandardCharsets.UTF_8);
+        System.setOut(out);
+        ManageService financeManager = new ManageService();
+        try (Reader reader = source == null || source.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            financeManager.setDurability(Durability.ASYNC);
+            BatchRunner runner = new BatchRunner(financeManager, out);
+            runner.execute(new BufferedReader(reader));
+            return runner.failed;
+        } finally {
+            financeManager.close();
+            out.flush();
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Выполнение всех команд потока
+     */
+    void execute(BufferedReader reader) throws IOException {
+        long started = System.nanoTime();
+        String line;
+        long number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            String command = line.strip();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+            executed++;
+            try {
+                apply(split(command));
+            } catch (RuntimeException e) {
+                failed++;
+                out.println("строка " + number + ": ошибка: " + e.getMessage());
+            }
+        }
+        if (session != null) {
+            financeManager.logout(session);
+            session = null;
+        }
+        out.printf("Выполнено команд: %d, с ошибками: %d, за %d мс%n",
+                executed, failed, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void apply(List<String> args) {
+        String command = args.get(0);
+        switch (command) {
+            case "register":
+                expect(args, 3, 3);
+                if (!financeManager.register(args.get(1), args.get(2))) {
+                    throw new IllegalArgumentException("пользователь " + args.get(1) + " уже существует");
+                }
+                break;
+            case "login":
+                expect(args, 3, 3);
+                Session next = financeManager.login(args.get(1), args.get(2));
+                if (next == null) {
+                    throw new IllegalArgumentException("неверный логин или пароль: " + args.get(1));
+                }
+                if (session != null) {
+                    financeManager.logout(session);
+                }
+                session = next;
+                break;
+            case "logout":
+                expect(args, 1, 1);
+                if (session != null) {
+                    financeManager.logout(session);
+                    session = null;
+                }
+                break;
+            case "income":
+                expect(args, 3, Integer.MAX_VALUE);
+                financeManager.addIncome(session, args.get(1), amount(args.get(2)), rest(args, 3));
+                break;
+            case "expense":
+                expect(args, 3, Integer.MAX_VALUE);
+                financeManager.addExpense(session, args.get(1), amount(args.get(2)), rest(args, 3));
+                break;
+            case "budget":
+                expect(args, 3, 3);
+                financeManager.setBudget(session, args.get(1), amount(args.get(2)));
+                break;
+            case "transfer":
+                expect(args, 3, Integer.MAX_VALUE);
+                if (!financeManager.transfer(session, args.get(1), amount(args.get(2)), rest(args, 3))) {
+                    throw new IllegalArgumentException("перевод пользователю " + args.get(1) + " не выполнен");
+                }
+                break;
+            case "stats":
+                expect(args, 1, 1);
+                printStatistics();
+                break;
+            default:
+                throw new IllegalArgumentException("неизвестная команда: " + command);
+        }
+    }
+
+    private void printStatistics() {
+        double income = financeManager.getTotalIncome(session);
+        double expense = financeManager.getTotalExpense(session);
+        out.printf("Доход: %.2f, расходы: %.2f, баланс: %.2f%n", income, expense, income - expense);
+        printCategories("Доходы", financeManager.getIncomeByCategory(session));
+        printCategories("Расходы", financeManager.getExpensesByCategory(session));
+        printCategories("Бюджеты", financeManager.getBudgets(session));
+    }
+
+    private void printCategories(String title, Map<String, Double> totals) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        // Строка собирается целиком: сообщения сервиса выводятся из другого потока
+        StringBuilder line = new StringBuilder(title).append(':');
+        totals.forEach((category, amount) -> line.append(String.format(" %s=%.2f", category, amount)));
+        out.println(line);
+    }
+
+    /**
+     * Точный разбор суммы; запятая допускается как разделитель дробной части
+     */
+    private static double amount(String value) {
+        return Money.toMajor(Money.parse(value));
+    }
+
+    private static void expect(List<String> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            throw new IllegalArgumentException("неверное число аргументов команды " + args.get(0));
+        }
+    }
+
+    private static String rest(List<String> args, int from) {
+        return from >= args.size() ? "" : String.join(" ", args.subList(from, args.size()));
+    }
+
+    /**
+     * Разбиение строки на аргументы по пробелам; текст в двойных кавычках - один аргумент
+     */
+    static List<String> split(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean token = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                token = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (token) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    token = false;
+                }
+            } else {
+                current.append(c);
+                token = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка");
+        }
+        if (token) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+}
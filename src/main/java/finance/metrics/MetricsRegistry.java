@@ -0,0 +1,73 @@
+package finance.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик: счетчики, гистограммы длительностей и вычисляемые показатели
+ * Метрики создаются по имени один раз, а на горячем пути используются через сохраненные ссылки,
+ * поэтому учет не обращается к реестру и не создает объектов
+ */
+public final class MetricsRegistry {
+    private final Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * Гистограмма длительностей с указанным именем, создается при первом обращении
+     */
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Счетчик с указанным именем, создается при первом обращении
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Регистрация показателя, значение которого вычисляется при чтении
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public Map<String, LatencyHistogram> getTimers() {
+        return timers;
+    }
+
+    public Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+
+    public Map<String, LongSupplier> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * Текстовый отчет по всем метрикам; длительности в микросекундах
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %10s %10s %10s %10s %10s%n",
+                "операция (мкс)", "кол-во", "среднее", "p50", "p99", "макс"));
+        timers.forEach((name, timer) -> {
+            if (timer.getCount() > 0) {
+                out.append(String.format("%-24s %10d %10.1f %10.1f %10.1f %10.1f%n", name, timer.getCount(),
+                        micros(timer.getMean()), micros(timer.getPercentile(50)),
+                        micros(timer.getPercentile(99)), micros(timer.getMax())));
+            }
+        });
+        counters.forEach((name, counter) -> out.append(String.format("%-24s %10d%n", name, counter.sum())));
+        gauges.forEach((name, gauge) -> out.append(String.format("%-24s %10d%n", name, gauge.getAsLong())));
+        return out.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -1,17 +1,52 @@
 package finance.models;
 import lombok.Getter;
-import lombok.Setter;
 
+/**
+ * Категория кошелька
+ * Хранит бюджет и накопленные суммы по категории в минимальных единицах.
+ * Изменяется только через Wallet, поэтому агрегаты всегда согласованы с транзакциями
+ */
 @Getter
-@Setter
 public class Category {
-    private String name;
-    private double budgeting;
-    private double used;
+    private final int id;
+    private final String name;
+    private long budgeting;
+    private boolean budgeted;
+    private long used;
+    private long earned;
+    private int expenseCount;
+    private int incomeCount;
     
-    public Category(String name, double budgeting) {
+    Category(int id, String name) {
+        this.id = id;
         this.name = name;
-        this.budgeting = budgeting;
-        this.used = 0.0;
     }
-}
+    
+    public double getBudgetAmount() {
+        return Money.toMajor(budgeting);
+    }
+    
+    public double getUsedAmount() {
+        return Money.toMajor(used);
+    }
+    
+    void setBudget(long amount) {
+        this.budgeting = amount;
+        this.budgeted = true;
+    }
+    
+    void clearBudget() {
+        this.budgeting = 0;
+        this.budgeted = false;
+    }
+    
+    void account(TransactionType type, long amount, int sign) {
+        if (type == TransactionType.INCOME) {
+            earned += sign * amount;
+            incomeCount += sign;
+        } else {
+            used += sign * amount;
+            expenseCount += sign;
+        }
+    }
+}
\ No newline at end of file
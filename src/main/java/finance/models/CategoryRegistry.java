@@ -0,0 +1,69 @@
+package finance.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь категорий кошелька
+ * Сопоставляет названиям категорий небольшие целочисленные идентификаторы,
+ * по которым транзакции и бюджеты ссылаются на категорию
+ */
+public class CategoryRegistry {
+    private final List<Category> categories = new ArrayList<>();
+    private final Map<String, Category> byName = new HashMap<>();
+    
+    /**
+     * Получение категории по идентификатору
+     * @param id идентификатор категории
+     * @return категория
+     */
+    public Category get(int id) {
+        return categories.get(id);
+    }
+    
+    /**
+     * Поиск категории по названию
+     * @param name название категории
+     * @return категория или null если такой категории нет
+     */
+    public Category find(String name) {
+        return byName.get(name);
+    }
+    
+    /**
+     * Получение идентификатора категории с регистрацией новой категории при необходимости
+     * @param name название категории
+     * @return категория
+     */
+    Category intern(String name) {
+        Category category = byName.get(name);
+        if (category == null) {
+            category = new Category(categories.size(), name);
+            categories.add(category);
+            byName.put(name, category);
+        }
+        return category;
+    }
+    
+    /**
+     * Названия категорий в порядке идентификаторов
+     */
+    String[] names() {
+        String[] names = new String[categories.size()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = categories.get(id).getName();
+        }
+        return names;
+    }
+    
+    public int size() {
+        return categories.size();
+    }
+    
+    public List<Category> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package finance.models;
+
+import java.util.Arrays;
+
+/**
+ * Индекс строк хранилища по идентификатору транзакции
+ * Открытая адресация с линейным пробированием по массивам примитивов: без упаковки long и int
+ * и без объекта на каждую запись. Удаление сдвигает хвост цепочки назад, поэтому надгробий нет
+ */
+final class IdIndex {
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] rows;
+    private int size;
+    private int mask;
+
+    IdIndex() {
+        allocate(16);
+    }
+
+    /**
+     * Номер строки транзакции
+     * @param id идентификатор транзакции
+     * @return номер строки или -1 если транзакция не найдена
+     */
+    int get(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            int row = rows[slot];
+            if (row == EMPTY || keys[slot] == id) {
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Запись номера строки; прежняя строка с тем же идентификатором заменяется
+     */
+    void put(long id, int row) {
+        if (size * 2 >= rows.length) {
+            resize(rows.length * 2);
+        }
+        int slot = slot(id);
+        while (rows[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (rows[slot] == EMPTY) {
+            size++;
+        }
+        keys[slot] = id;
+        rows[slot] = row;
+    }
+
+    /**
+     * Удаление идентификатора
+     * @return номер удаленной строки или -1 если идентификатора не было
+     */
+    int remove(long id) {
+        int slot = slot(id);
+        while (rows[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        int removed = rows[slot];
+        if (removed == EMPTY) {
+            return EMPTY;
+        }
+        size--;
+        // Сдвиг следующих элементов цепочки на освободившееся место
+        int hole = slot;
+        for (int next = (hole + 1) & mask; rows[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                rows[hole] = rows[next];
+                hole = next;
+            }
+        }
+        rows[hole] = EMPTY;
+        return removed;
+    }
+
+    void clear() {
+        allocate(16);
+    }
+
+    private int slot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldRows = rows;
+        allocate(capacity);
+        for (int i = 0; i < oldRows.length; i++) {
+            if (oldRows[i] != EMPTY) {
+                put(oldKeys[i], oldRows[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,224 @@
+package finance.models;
+
+/**
+ * Денежные суммы с фиксированной точкой
+ * Сумма хранится в long в минимальных единицах валюты (копейках), масштаб - два знака после запятой.
+ * Арифметика над суммами (add, subtract, multiply, percent) точная, проверяет переполнение и не создает
+ * объектов; double используется только на границе API, преобразование округляет к ближайшей копейке
+ * (половина - от нуля)
+ */
+public final class Money {
+    /** Число знаков дробной части */
+    public static final int SCALE_DIGITS = 2;
+    /** Число минимальных единиц в одной основной */
+    public static final long SCALE = 100;
+
+    // Суммы, которые double представляет с точностью до копейки
+    private static final double MAX_MAJOR = (double) (1L << 53) / SCALE;
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+        1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+        100_000_000_000_000L, 1_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private Money() {
+    }
+
+    /**
+     * Перевод суммы в минимальные единицы
+     * @param amount сумма в основных единицах
+     * @return сумма в минимальных единицах
+     * @throws IllegalArgumentException если сумма не конечна или слишком велика
+     */
+    public static long ofMajor(double amount) {
+        if (!(Math.abs(amount) < MAX_MAJOR)) {
+            throw new IllegalArgumentException("Сумма вне допустимого диапазона: " + amount);
+        }
+        double scaled = amount * SCALE;
+        double fraction = Math.abs(scaled - (long) scaled);
+        if (Math.abs(fraction - 0.5) > 1e-6) {
+            return Math.round(scaled);
+        }
+        // Граница округления: решает десятичная запись числа, а не его двоичное приближение
+        return parse(Double.toString(amount));
+    }
+
+    /**
+     * Перевод суммы в основные единицы для вывода
+     * @param minor сумма в минимальных единицах
+     * @return сумма в основных единицах
+     */
+    public static double toMajor(long minor) {
+        return (double) minor / SCALE;
+    }
+
+    /**
+     * Точный разбор десятичной записи суммы без промежуточного double
+     * Допускаются знак, дробная часть через точку или запятую и показатель степени (1.5E3).
+     * Лишние знаки дробной части округляются (половина - от нуля)
+     * @param text запись суммы
+     * @return сумма в минимальных единицах
+     * @throws IllegalArgumentException если запись некорректна или сумма не помещается в long
+     */
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i++) == '-';
+        }
+        long unscaled = 0;
+        int scale = 0;
+        int significant = 0;
+        boolean digit = false;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+                if (significant < 18) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    if (unscaled != 0) {
+                        significant++;
+                    }
+                    if (point) {
+                        scale++;
+                    }
+                } else if (!point) {
+                    throw new IllegalArgumentException("Сумма слишком велика: " + text);
+                }
+                // Дробные цифры за пределами 18 значащих на результат в копейках не влияют
+            } else if ((c == '.' || c == ',') && !point) {
+                point = true;
+            } else if ((c == 'e' || c == 'E') && digit) {
+                scale -= parseExponent(text, i + 1);
+                break;
+            } else {
+                throw new IllegalArgumentException("Некорректная сумма: " + text);
+            }
+        }
+        if (!digit) {
+            throw new IllegalArgumentException("Некорректная сумма: " + text);
+        }
+        long minor = rescale(unscaled, scale, text);
+        return negative ? -minor : minor;
+    }
+
+    /**
+     * Сложение сумм в минимальных единицах
+     * @throws IllegalArgumentException если результат не помещается в long
+     */
+    public static long add(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            throw new IllegalArgumentException("Сумма слишком велика: " + format(a) + " + " + format(b));
+        }
+        return result;
+    }
+
+    /**
+     * Разность сумм в минимальных единицах
+     * @throws IllegalArgumentException если результат не помещается в long
+     */
+    public static long subtract(long a, long b) {
+        long result = a - b;
+        if (((a ^ b) & (a ^ result)) < 0) {
+            throw new IllegalArgumentException("Сумма слишком велика: " + format(a) + " - " + format(b));
+        }
+        return result;
+    }
+
+    /**
+     * Умножение суммы на целое число, например цены на количество
+     * @throws IllegalArgumentException если результат не помещается в long
+     */
+    public static long multiply(long minor, long factor) {
+        long high = Math.multiplyHigh(minor, factor);
+        long low = minor * factor;
+        if (high != (low >> 63)) {
+            throw new IllegalArgumentException("Сумма слишком велика: " + format(minor) + " * " + factor);
+        }
+        return low;
+    }
+
+    /**
+     * Доля суммы в процентах с округлением к ближайшей копейке (половина - от нуля)
+     * Сумма делится на 100 до умножения, поэтому промежуточное произведение не переполняется
+     * @param minor сумма в минимальных единицах
+     * @param percent процент, например 15 для 15%
+     * @return доля суммы в минимальных единицах
+     * @throws IllegalArgumentException если результат не помещается в long
+     */
+    public static long percent(long minor, int percent) {
+        long quotient = minor / 100;
+        long remainder = minor % 100;
+        long whole = multiply(quotient, percent);
+        long part = remainder * percent;
+        long rounded = part / 100 + (Math.abs(part % 100) * 2 >= 100 ? Long.signum(part) : 0);
+        return add(whole, rounded);
+    }
+
+    /**
+     * Сумма в виде строки с двумя знаками дробной части, например "-12.05"
+     */
+    public static String format(long minor) {
+        long abs = Math.abs(minor);
+        StringBuilder result = new StringBuilder(24);
+        if (minor < 0) {
+            result.append('-');
+        }
+        result.append(abs / SCALE).append('.');
+        long fraction = abs % SCALE;
+        if (fraction < 10) {
+            result.append('0');
+        }
+        return result.append(fraction).toString();
+    }
+
+    /**
+     * Приведение числа unscaled * 10^-scale к масштабу SCALE_DIGITS
+     */
+    private static long rescale(long unscaled, int scale, CharSequence text) {
+        if (unscaled == 0) {
+            return 0;
+        }
+        try {
+            if (scale <= SCALE_DIGITS) {
+                int shift = SCALE_DIGITS - scale;
+                if (shift >= POWERS_OF_TEN.length) {
+                    throw new ArithmeticException();
+                }
+                return Math.multiplyExact(unscaled, POWERS_OF_TEN[shift]);
+            }
+            int drop = scale - SCALE_DIGITS;
+            if (drop >= POWERS_OF_TEN.length) {
+                return 0;
+            }
+            long divisor = POWERS_OF_TEN[drop];
+            long quotient = unscaled / divisor;
+            return unscaled % divisor * 2 >= divisor ? quotient + 1 : quotient;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Сумма слишком велика: " + text);
+        }
+    }
+
+    private static int parseExponent(CharSequence text, int from) {
+        int i = from;
+        boolean negative = false;
+        if (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i++) == '-';
+        }
+        if (i == text.length()) {
+            throw new IllegalArgumentException("Некорректная сумма: " + text);
+        }
+        int exponent = 0;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || exponent > 1000) {
+                throw new IllegalArgumentException("Некорректная сумма: " + text);
+            }
+            exponent = exponent * 10 + (c - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+}
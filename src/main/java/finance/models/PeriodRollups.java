@@ -0,0 +1,87 @@
+package finance.models;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты операций по дням и месяцам
+ * Для каждого периода хранятся суммы доходов и расходов, в том числе по категориям.
+ * Обновляются при каждом изменении кошелька, поэтому отчеты за период не читают сами транзакции
+ */
+final class PeriodRollups {
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+
+    private final TreeMap<Long, Bucket> days = new TreeMap<>();
+    private final TreeMap<Integer, Bucket> months = new TreeMap<>();
+
+    // Агрегаты последнего дня: операции обычно идут подряд по одному дню, поиск в деревьях не нужен
+    private long lastDay;
+    private Bucket lastDayBucket;
+    private Bucket lastMonthBucket;
+
+    /**
+     * Суммы за один период
+     */
+    static final class Bucket {
+        private final long[] totals = new long[2];
+        private long[][] byCategory = new long[2][8];
+
+        void add(TransactionType type, int categoryId, long amount) {
+            int t = type.ordinal();
+            if (categoryId >= byCategory[t].length) {
+                int length = Math.max(categoryId + 1, byCategory[t].length * 2);
+                byCategory[0] = Arrays.copyOf(byCategory[0], length);
+                byCategory[1] = Arrays.copyOf(byCategory[1], length);
+            }
+            totals[t] += amount;
+            byCategory[t][categoryId] += amount;
+        }
+
+        long total(TransactionType type) {
+            return totals[type.ordinal()];
+        }
+
+        long[] byCategory(TransactionType type) {
+            return byCategory[type.ordinal()];
+        }
+    }
+
+    /**
+     * Учет суммы операции в дневном и месячном агрегате
+     * @param date дата операции в наносекундах эпохи
+     * @param type тип операции
+     * @param categoryId идентификатор категории
+     * @param amount сумма со знаком (отрицательная при удалении операции)
+     */
+    void add(long date, TransactionType type, int categoryId, long amount) {
+        long day = Math.floorDiv(date, NANOS_PER_DAY);
+        if (lastDayBucket == null || day != lastDay) {
+            lastDayBucket = days.computeIfAbsent(day, key -> new Bucket());
+            lastMonthBucket = months.computeIfAbsent(monthKey(LocalDate.ofEpochDay(day)), key -> new Bucket());
+            lastDay = day;
+        }
+        lastDayBucket.add(type, categoryId, amount);
+        lastMonthBucket.add(type, categoryId, amount);
+    }
+
+    Bucket month(YearMonth month) {
+        return months.get(month.getYear() * 12 + month.getMonthValue() - 1);
+    }
+
+    /**
+     * Дневные агрегаты за период
+     * @param from первый день (включительно)
+     * @param to последний день (включительно)
+     * @return агрегаты по дням
+     */
+    NavigableMap<Long, Bucket> days(LocalDate from, LocalDate to) {
+        return days.subMap(from.toEpochDay(), true, to.toEpochDay(), true);
+    }
+
+    private static int monthKey(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+}
@@ -0,0 +1,125 @@
+package finance.models;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Правило регулярной операции: зарплата, аренда, подписка
+ * Срок k-го повторения вычисляется от начальной даты, а не от предыдущего повторения,
+ * поэтому ежемесячное правило на 31-е число в коротком месяце сдвигается на его последний день
+ * и в следующем месяце возвращается к 31-му. Правило неизменяемо: учет выполненных повторений
+ * дает новый экземпляр с увеличенным счетчиком
+ */
+public final class RecurringRule {
+    /**
+     * Единица периода повторения
+     */
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    private final long id;
+    private final TransactionType type;
+    private final String category;
+    // Сумма в минимальных единицах, см. Money
+    private final long amount;
+    private final String description;
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDateTime start;
+    private final LocalDateTime until;
+    private final long fired;
+
+    /**
+     * @param id идентификатор правила
+     * @param type тип создаваемых операций
+     * @param category категория операций
+     * @param amount сумма операции в минимальных единицах
+     * @param description описание операций
+     * @param frequency единица периода
+     * @param interval число единиц периода между повторениями
+     * @param start срок первого повторения
+     * @param until последний допустимый срок повторения (включительно) или null без ограничения
+     * @param fired число уже выполненных повторений
+     * @throws IllegalArgumentException если параметры правила некорректны
+     */
+    public RecurringRule(long id, TransactionType type, String category, long amount, String description,
+                         Frequency frequency, int interval, LocalDateTime start, LocalDateTime until, long fired) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма должна быть положительной");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Период повторения должен быть положительным");
+        }
+        if (!Transaction.isSupportedDate(start)) {
+            throw new IllegalArgumentException("Срок первого повторения вне поддерживаемого диапазона дат");
+        }
+        if (until != null && until.isBefore(start)) {
+            throw new IllegalArgumentException("Окончание повторений раньше их начала");
+        }
+        this.id = id;
+        this.type = Objects.requireNonNull(type);
+        this.category = Objects.requireNonNull(category);
+        this.amount = amount;
+        this.description = description == null ? "" : description;
+        this.frequency = Objects.requireNonNull(frequency);
+        this.interval = interval;
+        this.start = Objects.requireNonNull(start);
+        this.until = until;
+        this.fired = fired;
+    }
+
+    public long getId() { return id; }
+    public TransactionType getType() { return type; }
+    public String getCategory() { return category; }
+    public double getAmount() { return Money.toMajor(amount); }
+    public long getAmountMinor() { return amount; }
+    public String getDescription() { return description; }
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+    public LocalDateTime getStart() { return start; }
+    public LocalDateTime getUntil() { return until; }
+    /** Число выполненных повторений */
+    public long getFired() { return fired; }
+
+    /**
+     * Срок следующего повторения
+     * @return срок или null, если повторения закончились
+     */
+    public LocalDateTime getNextFire() {
+        LocalDateTime next = occurrence(fired);
+        return until != null && next.isAfter(until) ? null : next;
+    }
+
+    /**
+     * Срок повторения с заданным номером
+     * @param index номер повторения, начиная с 0
+     */
+    public LocalDateTime occurrence(long index) {
+        long units = Math.multiplyExact(index, (long) interval);
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(units);
+            case WEEKLY:
+                return start.plusWeeks(units);
+            default:
+                return start.plusMonths(units);
+        }
+    }
+
+    /**
+     * Операция повторения с заданным номером; дата операции - срок повторения
+     * @param index номер повторения
+     * @return новая транзакция
+     */
+    public Transaction materialize(long index) {
+        return new Transaction(TransactionIds.next(), type, category, amount, description, occurrence(index));
+    }
+
+    /**
+     * Правило после выполнения еще нескольких повторений
+     * @param count число выполненных повторений
+     */
+    public RecurringRule advance(long count) {
+        return new RecurringRule(id, type, category, amount, description, frequency, interval, start, until,
+                fired + count);
+    }
+}
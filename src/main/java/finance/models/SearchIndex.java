@@ -0,0 +1,223 @@
+package finance.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Обратный индекс слов описаний транзакций кошелька
+ * Каждому слову соответствует возрастающий список номеров строк хранилища. Слова хранятся
+ * в нижнем регистре с заменой ё на е, поэтому поиск не зависит от регистра для кириллицы и латиницы.
+ * Поиск по началу слова обходит диапазон упорядоченного словаря. Удаленные строки из списков
+ * не вычеркиваются, а пропускаются при поиске; при уплотнении хранилища индекс строится заново.
+ * Названия категорий не индексируются: категорий мало, и они проверяются при каждом запросе
+ */
+final class SearchIndex {
+    // Список строк слова: элемент 0 - длина списка, далее номера строк по возрастанию
+    private final TreeMap<String, int[]> postings = new TreeMap<>();
+    private final TransactionColumns columns;
+    private final CategoryRegistry categories;
+    private final StringBuilder token = new StringBuilder();
+
+    SearchIndex(TransactionColumns columns, CategoryRegistry categories) {
+        this.columns = columns;
+        this.categories = categories;
+    }
+
+    /**
+     * Индексирование всех живых строк хранилища
+     */
+    void rebuild() {
+        postings.clear();
+        for (int row = 0; row < columns.size(); row++) {
+            if (!columns.isDeleted(row)) {
+                add(row);
+            }
+        }
+    }
+
+    /**
+     * Индексирование описания строки
+     * @param row номер строки
+     */
+    void add(int row) {
+        tokenize(columns.description(row), word -> postings.compute(word, (key, rows) -> insert(rows, row)));
+    }
+
+    /**
+     * Исключение строки из индекса перед заменой ее описания
+     * @param row номер строки
+     */
+    void remove(int row) {
+        tokenize(columns.description(row), word -> {
+            int[] rows = postings.get(word);
+            if (rows == null) {
+                return;
+            }
+            int index = Arrays.binarySearch(rows, 1, rows[0] + 1, row);
+            if (index > 0) {
+                System.arraycopy(rows, index + 1, rows, index, rows[0] - index);
+                if (--rows[0] == 0) {
+                    postings.remove(word);
+                }
+            }
+        });
+    }
+
+    /**
+     * Поиск строк, каждое слово запроса в которых является началом слова описания или названия категории
+     * @param query текст запроса; пустой запрос подходит ко всем строкам
+     * @param type тип операции или null для любого типа
+     * @param from начало периода в наносекундах эпохи (включительно)
+     * @param to конец периода в наносекундах эпохи (не включительно)
+     * @param limit наибольшее количество строк
+     * @return номера строк, начиная с добавленной последней
+     */
+    int[] search(String query, TransactionType type, long from, long to, int limit) {
+        BitSet matched = null;
+        for (String term : terms(query)) {
+            BitSet rows = new BitSet(columns.size());
+            for (int[] list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                for (int i = 1; i <= list[0]; i++) {
+                    rows.set(list[i]);
+                }
+            }
+            boolean[] categoryIds = matchingCategories(term);
+            if (categoryIds != null) {
+                addCategoryRows(rows, categoryIds);
+            }
+            if (matched == null) {
+                matched = rows;
+            } else {
+                matched.and(rows);
+            }
+            if (matched.isEmpty()) {
+                return new int[0];
+            }
+        }
+
+        int[] result = new int[Math.max(0, Math.min(limit, columns.liveSize()))];
+        int count = 0;
+        int row = matched == null ? columns.size() - 1 : matched.length() - 1;
+        while (row >= 0 && count < result.length) {
+            if (!columns.isDeleted(row) && (type == null || columns.type(row) == type)) {
+                long date = columns.date(row);
+                if (date >= from && date < to) {
+                    result[count++] = row;
+                }
+            }
+            row = matched == null ? row - 1 : matched.previousSetBit(row - 1);
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Количество различных слов в индексе
+     */
+    int size() {
+        return postings.size();
+    }
+
+    /**
+     * Идентификаторы категорий, в названии которых есть слово, начинающееся с term
+     * @return признаки по идентификаторам или null, если таких категорий нет
+     */
+    private boolean[] matchingCategories(String term) {
+        List<Category> all = categories.getCategories();
+        boolean[] ids = new boolean[all.size()];
+        boolean[] found = {false};
+        for (Category category : all) {
+            tokenize(category.getName(), word -> {
+                if (word.startsWith(term)) {
+                    ids[category.getId()] = true;
+                    found[0] = true;
+                }
+            });
+        }
+        return found[0] ? ids : null;
+    }
+
+    /**
+     * Отметка строк выбранных категорий; колонка категорий читается по сегментам подряд,
+     * а биты собираются словами по 64 строки
+     */
+    private void addCategoryRows(BitSet rows, boolean[] categoryIds) {
+        long[] words = new long[(columns.size() + 63) >>> 6];
+        for (int s = 0; s < columns.segmentCount(); s++) {
+            int[] rowCategories = columns.segment(s).categories;
+            int base = s << TransactionColumns.SEGMENT_SHIFT;
+            int length = columns.segmentLength(s);
+            for (int i = 0; i < length; i++) {
+                int id = rowCategories[i];
+                if (id < categoryIds.length && categoryIds[id]) {
+                    int row = base + i;
+                    words[row >>> 6] |= 1L << row;
+                }
+            }
+        }
+        rows.or(BitSet.valueOf(words));
+    }
+
+    private List<String> terms(String query) {
+        TreeMap<String, Boolean> distinct = new TreeMap<>();
+        tokenize(query, word -> distinct.put(word, Boolean.TRUE));
+        // Слово запроса, продолжающее другое слово запроса, уже сужает выборку сильнее
+        distinct.keySet().removeIf(word -> {
+            Map.Entry<String, Boolean> next = distinct.higherEntry(word);
+            return next != null && next.getKey().startsWith(word);
+        });
+        return List.copyOf(distinct.keySet());
+    }
+
+    /**
+     * Добавление строки в список; строки обычно добавляются по возрастанию, поэтому в конец
+     */
+    private static int[] insert(int[] rows, int row) {
+        if (rows == null) {
+            rows = new int[4];
+        }
+        int size = rows[0];
+        if (size > 0 && rows[size] == row) {
+            return rows;
+        }
+        if (size + 1 == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        int index = size + 1;
+        if (size > 0 && rows[size] > row) {
+            index = Arrays.binarySearch(rows, 1, size + 1, row);
+            if (index > 0) {
+                return rows;
+            }
+            index = -index - 1;
+            System.arraycopy(rows, index, rows, index + 1, size + 1 - index);
+        }
+        rows[index] = row;
+        rows[0] = size + 1;
+        return rows;
+    }
+
+    /**
+     * Разбиение текста на слова из букв и цифр с приведением к нижнему регистру и заменой ё на е
+     */
+    private void tokenize(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        token.setLength(0);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (token.length() > 0) {
+                String word = token.toString();
+                token.setLength(0);
+                consumer.accept(word);
+            }
+        }
+    }
+}
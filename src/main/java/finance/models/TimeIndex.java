@@ -0,0 +1,167 @@
+package finance.models;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Индекс строк хранилища по времени операции
+ * Строки, добавленные в хронологическом порядке, лежат в массиве, упорядоченном по дате.
+ * Строки с датой раньше последней добавленной (задним числом) попадают во вторичный
+ * навигируемый индекс. Запросы последних N операций и диапазонов дат сливают оба источника
+ * и пропускают строки, помеченные удаленными
+ */
+final class TimeIndex {
+    private final TransactionColumns columns;
+    private int[] ordered = new int[16];
+    private int orderedSize;
+    private long lastDate = Long.MIN_VALUE;
+    private final TreeMap<Long, int[]> backdated = new TreeMap<>();
+
+    TimeIndex(TransactionColumns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Учет новой строки хранилища
+     * @param row номер строки
+     */
+    void add(int row) {
+        long date = columns.date(row);
+        if (date >= lastDate) {
+            if (orderedSize == ordered.length) {
+                ordered = Arrays.copyOf(ordered, orderedSize * 2);
+            }
+            ordered[orderedSize++] = row;
+            lastDate = date;
+        } else {
+            backdated.merge(date, new int[] { row }, TimeIndex::concat);
+        }
+    }
+
+    /**
+     * Построение индекса по всем неудаленным строкам хранилища
+     */
+    void rebuild() {
+        orderedSize = 0;
+        lastDate = Long.MIN_VALUE;
+        backdated.clear();
+        for (int row = 0; row < columns.size(); row++) {
+            if (!columns.isDeleted(row)) {
+                add(row);
+            }
+        }
+    }
+
+    /**
+     * Последние по дате строки, начиная с самой новой
+     * @param count максимальное количество строк
+     * @return номера строк
+     */
+    int[] recent(int count) {
+        int[] result = new int[Math.max(0, Math.min(count, columns.liveSize()))];
+        int n = 0;
+        int i = orderedSize - 1;
+        Iterator<Map.Entry<Long, int[]>> buckets = backdated.descendingMap().entrySet().iterator();
+        int[] bucket = null;
+        int b = -1;
+        long bucketDate = 0;
+
+        while (n < result.length) {
+            if (bucket == null && buckets.hasNext()) {
+                Map.Entry<Long, int[]> entry = buckets.next();
+                bucketDate = entry.getKey();
+                bucket = entry.getValue();
+                b = bucket.length - 1;
+            }
+            int row;
+            if (i >= 0 && (bucket == null || columns.date(ordered[i]) >= bucketDate)) {
+                row = ordered[i--];
+            } else {
+                row = bucket[b--];
+                if (b < 0) {
+                    bucket = null;
+                }
+            }
+            if (!columns.isDeleted(row)) {
+                result[n++] = row;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Строки с датой в полуинтервале [from, to) в хронологическом порядке
+     * @param from начало интервала (включительно), в наносекундах эпохи
+     * @param to конец интервала (не включительно), в наносекундах эпохи
+     * @return номера строк
+     */
+    int[] between(long from, long to) {
+        if (from >= to) {
+            return new int[0];
+        }
+        int start = lowerBound(from);
+        int end = lowerBound(to);
+        Map<Long, int[]> range = backdated.subMap(from, true, to, false);
+        int total = end - start;
+        for (int[] rows : range.values()) {
+            total += rows.length;
+        }
+
+        int[] result = new int[total];
+        int n = 0;
+        int taken = 0;
+        int i = start;
+        Iterator<Map.Entry<Long, int[]>> buckets = range.entrySet().iterator();
+        int[] bucket = null;
+        int b = 0;
+        long bucketDate = 0;
+
+        while (taken < total) {
+            if (bucket == null && buckets.hasNext()) {
+                Map.Entry<Long, int[]> entry = buckets.next();
+                bucketDate = entry.getKey();
+                bucket = entry.getValue();
+                b = 0;
+            }
+            int row;
+            if (i < end && (bucket == null || columns.date(ordered[i]) <= bucketDate)) {
+                row = ordered[i++];
+            } else {
+                row = bucket[b++];
+                if (b == bucket.length) {
+                    bucket = null;
+                }
+            }
+            taken++;
+            if (!columns.isDeleted(row)) {
+                result[n++] = row;
+            }
+        }
+        return n == total ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Первая позиция упорядоченного массива с датой не меньше заданной
+     */
+    private int lowerBound(long date) {
+        int low = 0;
+        int high = orderedSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.date(ordered[mid]) < date) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] concat(int[] left, int[] right) {
+        int[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+}
@@ -1,34 +1,113 @@
 package finance.models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.ZoneOffset;
 
 
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
-    
-    private String id;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Поля старого формата (идентификатор строкой, сумма в double) для чтения ранее записанных снимков
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("id", String.class),
+        new ObjectStreamField("type", TransactionType.class),
+        new ObjectStreamField("amount", double.class),
+        new ObjectStreamField("category", String.class),
+        new ObjectStreamField("description", String.class),
+        new ObjectStreamField("date", LocalDateTime.class)
+    };
+
+    private long id;
     private TransactionType type;
-    private double amount;
+    // Сумма в минимальных единицах, см. Money
+    private long amount;
     private String category;
     private String description;
     private LocalDateTime date;
 
     public Transaction(TransactionType type, String category, double amount, String description) {
-        this.id = UUID.randomUUID().toString();
+        this(type, category, amount, description, LocalDateTime.now());
+    }
+
+    /**
+     * Конструктор транзакции с заданной датой операции, например при импорте выписки
+     */
+    public Transaction(TransactionType type, String category, double amount, String description,
+                       LocalDateTime date) {
+        this(TransactionIds.next(), type, category, Money.ofMajor(amount), description, date);
+    }
+
+    /**
+     * Конструктор для восстановления сохраненной транзакции
+     * Сохраняет исходные идентификатор и дату операции
+     * @param amount сумма в минимальных единицах
+     */
+    public Transaction(long id, TransactionType type, String category, long amount,
+                       String description, LocalDateTime date) {
+        this.id = id;
         this.type = type;
         this.amount = amount;
         this.category = category;
         this.description = description;
-        this.date = LocalDateTime.now();
+        this.date = date;
+    }
+
+    /**
+     * Можно ли сохранить дату операции: даты хранятся в наносекундах эпохи UTC в long,
+     * что покрывает годы примерно с 1678 по 2261
+     * @param date дата операции
+     * @return true если дата в поддерживаемом диапазоне
+     */
+    public static boolean isSupportedDate(LocalDateTime date) {
+        long seconds = date.toEpochSecond(ZoneOffset.UTC);
+        return seconds > Long.MIN_VALUE / NANOS_PER_SECOND && seconds < Long.MAX_VALUE / NANOS_PER_SECOND;
     }
 
     // Геттеры
-    public String getId() { return id; }
+    public long getId() { return id; }
     public TransactionType getType() { return type; }
-    public double getAmount() { return amount; }
+    public double getAmount() { return Money.toMajor(amount); }
+    public long getAmountMinor() { return amount; }
     public String getCategory() { return category; }
     public String getDescription() { return description; }
     public LocalDateTime getDate() { return date; }
-}
\ No newline at end of file
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Transaction)) return false;
+        return id == ((Transaction) o).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", Long.toString(id));
+        fields.put("type", type);
+        fields.put("amount", Money.toMajor(amount));
+        fields.put("category", category);
+        fields.put("description", description);
+        fields.put("date", date);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = TransactionIds.fromLegacy((String) fields.get("id", ""));
+        type = (TransactionType) fields.get("type", null);
+        amount = Money.ofMajor(fields.get("amount", 0.0));
+        category = (String) fields.get("category", null);
+        description = (String) fields.get("description", null);
+        date = (LocalDateTime) fields.get("date", null);
+    }
+}
@@ -0,0 +1,267 @@
+package finance.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Колоночное хранилище транзакций кошелька
+ * Поля транзакций лежат в параллельных массивах примитивов, разбитых на сегменты
+ * фиксированного размера. Категория хранится идентификатором из словаря кошелька.
+ * Объекты Transaction создаются только по запросу.
+ * Удаленная строка остается на месте с типом DELETED, пока кошелек не уплотнит хранилище,
+ * поэтому номера строк живых транзакций при удалении не меняются.
+ * Сегменты копируются при записи: после выдачи снимка (share) изменение существующей строки
+ * выполняется в копии сегмента, а снимок продолжает видеть прежние массивы
+ */
+final class TransactionColumns {
+    static final int SEGMENT_SHIFT = 12;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    static final byte DELETED = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final CategoryRegistry registry;
+    private Segment[] segments = new Segment[0];
+    private int size;
+    private int live;
+    // Номер поколения снимков: сегменты прежних поколений могут быть видны снимкам
+    private int epoch;
+
+    TransactionColumns(CategoryRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Сегмент колонок
+     * Последний сегмент растет удвоением до SEGMENT_SIZE, остальные всегда заполнены полностью.
+     * Рост и копирование при записи создают новый сегмент, массивы сегмента не подменяются
+     */
+    static final class Segment {
+        final long[] ids;
+        final byte[] types;
+        final long[] amounts;
+        final int[] categories;
+        final long[] dates;
+        final String[] descriptions;
+        final int epoch;
+
+        Segment(int capacity, int epoch) {
+            this(new long[capacity], new byte[capacity], new long[capacity], new int[capacity],
+                    new long[capacity], new String[capacity], epoch);
+        }
+
+        private Segment(long[] ids, byte[] types, long[] amounts, int[] categories, long[] dates,
+                        String[] descriptions, int epoch) {
+            this.ids = ids;
+            this.types = types;
+            this.amounts = amounts;
+            this.categories = categories;
+            this.dates = dates;
+            this.descriptions = descriptions;
+            this.epoch = epoch;
+        }
+
+        int capacity() {
+            return types.length;
+        }
+
+        Segment copy(int capacity, int epoch) {
+            return new Segment(Arrays.copyOf(ids, capacity), Arrays.copyOf(types, capacity),
+                    Arrays.copyOf(amounts, capacity), Arrays.copyOf(categories, capacity),
+                    Arrays.copyOf(dates, capacity), Arrays.copyOf(descriptions, capacity), epoch);
+        }
+    }
+
+    /**
+     * Число строк, включая удаленные
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Число неудаленных строк
+     */
+    int liveSize() {
+        return live;
+    }
+
+    int segmentCount() {
+        return (size + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+    }
+
+    Segment segment(int index) {
+        return segments[index];
+    }
+
+    int segmentLength(int index) {
+        return Math.min(SEGMENT_SIZE, size - (index << SEGMENT_SHIFT));
+    }
+
+    /**
+     * Выдача сегментов для неизменяемого снимка
+     * Стоимость пропорциональна числу сегментов, а не строк: строки не копируются.
+     * Последующие изменения существующих строк выполняются в копиях сегментов
+     * @return сегменты, содержащие строки [0, size())
+     */
+    Segment[] share() {
+        epoch++;
+        return Arrays.copyOf(segments, segmentCount());
+    }
+
+    /**
+     * Добавление транзакции в конец хранилища
+     * @param transaction транзакция
+     * @return номер строки
+     */
+    int add(Transaction transaction) {
+        long date = toEpochNanos(transaction.getDate());
+        return add(transaction.getId(), transaction.getType(), registry.intern(transaction.getCategory()).getId(),
+                transaction.getAmountMinor(), date, transaction.getDescription());
+    }
+
+    /**
+     * Добавление строки из значений колонок
+     * @return номер строки
+     */
+    int add(long id, TransactionType type, int categoryId, long amount, long date, String description) {
+        int row = size;
+        Segment segment = segmentForAppend(row);
+        int i = row & SEGMENT_MASK;
+        segment.ids[i] = id;
+        segment.types[i] = (byte) type.ordinal();
+        segment.amounts[i] = amount;
+        segment.categories[i] = categoryId;
+        segment.dates[i] = date;
+        segment.descriptions[i] = description;
+        size++;
+        live++;
+        return row;
+    }
+
+    /**
+     * Замена значений строки без изменения ее идентификатора и даты
+     */
+    void set(int row, TransactionType type, int categoryId, long amount, String description) {
+        Segment segment = writable(row);
+        int i = row & SEGMENT_MASK;
+        segment.types[i] = (byte) type.ordinal();
+        segment.amounts[i] = amount;
+        segment.categories[i] = categoryId;
+        segment.descriptions[i] = description;
+    }
+
+    /**
+     * Пометка строки удаленной; номера остальных строк не меняются
+     * @param row номер строки
+     */
+    void delete(int row) {
+        Segment segment = writable(row);
+        int i = row & SEGMENT_MASK;
+        segment.types[i] = DELETED;
+        segment.descriptions[i] = null;
+        live--;
+    }
+
+    boolean isDeleted(int row) {
+        return segments[row >>> SEGMENT_SHIFT].types[row & SEGMENT_MASK] == DELETED;
+    }
+
+    /**
+     * Материализация транзакции из колонок
+     * @param row номер строки
+     * @return объект транзакции
+     */
+    Transaction get(int row) {
+        Segment segment = segments[row >>> SEGMENT_SHIFT];
+        int i = row & SEGMENT_MASK;
+        return new Transaction(segment.ids[i], TYPES[segment.types[i]], registry.get(segment.categories[i]).getName(),
+                segment.amounts[i], segment.descriptions[i], fromEpochNanos(segment.dates[i]));
+    }
+
+    TransactionType type(int row) {
+        return TYPES[segments[row >>> SEGMENT_SHIFT].types[row & SEGMENT_MASK]];
+    }
+
+    long amount(int row) {
+        return segments[row >>> SEGMENT_SHIFT].amounts[row & SEGMENT_MASK];
+    }
+
+    int category(int row) {
+        return segments[row >>> SEGMENT_SHIFT].categories[row & SEGMENT_MASK];
+    }
+
+    long id(int row) {
+        return segments[row >>> SEGMENT_SHIFT].ids[row & SEGMENT_MASK];
+    }
+
+    long date(int row) {
+        return segments[row >>> SEGMENT_SHIFT].dates[row & SEGMENT_MASK];
+    }
+
+    String description(int row) {
+        return segments[row >>> SEGMENT_SHIFT].descriptions[row & SEGMENT_MASK];
+    }
+
+    /**
+     * Дата операции в наносекундах эпохи UTC
+     * @throws IllegalArgumentException если дата не помещается в long, см. Transaction.isSupportedDate
+     */
+    static long toEpochNanos(LocalDateTime date) {
+        if (!Transaction.isSupportedDate(date)) {
+            throw new IllegalArgumentException("Дата операции вне поддерживаемого диапазона: " + date);
+        }
+        return date.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + date.getNano();
+    }
+
+    /**
+     * Граница периода запроса в наносекундах эпохи; даты вне диапазона хранения приводятся к его краю
+     */
+    static long toEpochNanosBound(LocalDateTime date) {
+        if (Transaction.isSupportedDate(date)) {
+            return toEpochNanos(date);
+        }
+        return date.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Сегмент строки для изменения на месте; сегмент, видимый снимкам, предварительно копируется
+     */
+    private Segment writable(int row) {
+        int index = row >>> SEGMENT_SHIFT;
+        Segment segment = segments[index];
+        if (segment.epoch != epoch) {
+            segment = segment.copy(segment.capacity(), epoch);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Сегмент для добавления строки
+     * Новые строки пишутся за пределами строк, видимых снимкам, поэтому копирование не требуется
+     */
+    private Segment segmentForAppend(int row) {
+        int index = row >>> SEGMENT_SHIFT;
+        if (index == segments.length) {
+            segments = Arrays.copyOf(segments, index + 1);
+        }
+        Segment segment = segments[index];
+        if (segment == null) {
+            segment = new Segment(index == 0 ? INITIAL_CAPACITY : SEGMENT_SIZE, epoch);
+            segments[index] = segment;
+        } else if ((row & SEGMENT_MASK) == segment.capacity()) {
+            segment = segment.copy(Math.min(SEGMENT_SIZE, segment.capacity() * 2), epoch);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,78 @@
+package finance.models;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор 64-битных идентификаторов транзакций
+ * Идентификатор упорядочен по времени создания: миллисекунды от 2024-01-01 (41 бит),
+ * номер узла (10 бит, системное свойство finance.node), порядковый номер внутри миллисекунды (12 бит).
+ * В пределах узла идентификаторы строго возрастают, в том числе при переводе часов назад
+ */
+public final class TransactionIds {
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final int TIME_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE = (Integer.getInteger("finance.node", 0) & ((1L << NODE_BITS) - 1)) << SEQUENCE_BITS;
+
+    private static final AtomicLong last = new AtomicLong();
+
+    private TransactionIds() {
+    }
+
+    /**
+     * Следующий идентификатор
+     * При исчерпании порядковых номеров миллисекунды берется следующая миллисекунда
+     * @return положительный идентификатор, больший всех ранее выданных этим узлом
+     */
+    public static long next() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        while (true) {
+            long previous = last.get();
+            long time = previous >>> TIME_SHIFT;
+            long next;
+            if (now > time) {
+                next = (now << TIME_SHIFT) | NODE;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = previous + 1;
+            } else {
+                next = ((time + 1) << TIME_SHIFT) | NODE;
+            }
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Идентификатор для транзакции, сохраненной в старом формате со строковым идентификатором
+     * Преобразование детерминировано, поэтому при повторной загрузке получается тот же идентификатор.
+     * Десятичная запись, помещающаяся в long, разбирается как есть, UUID сворачивается в 63 бита, прочие строки хешируются
+     * @param id строковый идентификатор
+     * @return неотрицательный идентификатор
+     */
+    public static long fromLegacy(String id) {
+        if (!id.isEmpty() && id.length() <= 19 && id.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                // больше Long.MAX_VALUE - хешируется как обычная строка
+            }
+        }
+        if (id.length() == 36 && id.charAt(8) == '-' && id.charAt(13) == '-') {
+            try {
+                UUID uuid = UUID.fromString(id);
+                return (uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits()) & Long.MAX_VALUE;
+            } catch (IllegalArgumentException e) {
+                // не UUID - хешируется как обычная строка
+            }
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001B3L;
+        }
+        return hash & Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,132 @@
+package finance.models;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемый снимок транзакций кошелька
+ * Создается за время, пропорциональное числу сегментов хранилища, без копирования строк.
+ * Последующие изменения кошелька снимку не видны: измененные сегменты кошелек копирует,
+ * а добавленные строки лежат за границей снимка. Снимок можно читать без блокировок
+ * из любого потока, объекты Transaction создаются только при обращении к элементу
+ */
+public final class TransactionView extends AbstractList<Transaction> implements RandomAccess {
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final TransactionColumns.Segment[] segments;
+    private final int rows;
+    private final int live;
+    private final String[] categoryNames;
+    // Номера живых строк; строятся при первом доступе по позиции, если в снимке есть удаленные строки
+    private volatile int[] liveRows;
+
+    TransactionView(TransactionColumns.Segment[] segments, int rows, int live, String[] categoryNames) {
+        this.segments = segments;
+        this.rows = rows;
+        this.live = live;
+        this.categoryNames = categoryNames;
+    }
+
+    @Override
+    public int size() {
+        return live;
+    }
+
+    @Override
+    public Transaction get(int index) {
+        return materialize(row(index));
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int row = skipDeleted(0);
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Transaction next() {
+                if (row >= rows) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = materialize(row);
+                row = skipDeleted(row + 1);
+                return transaction;
+            }
+        };
+    }
+
+    /**
+     * Обход транзакций снимка в порядке добавления без материализации объектов
+     * @param visitor обработчик строк
+     */
+    public void forEachTransaction(TransactionVisitor visitor) {
+        for (int s = 0; s < segments.length; s++) {
+            TransactionColumns.Segment segment = segments[s];
+            int length = Math.min(TransactionColumns.SEGMENT_SIZE, rows - (s << TransactionColumns.SEGMENT_SHIFT));
+            for (int i = 0; i < length; i++) {
+                if (segment.types[i] == TransactionColumns.DELETED) {
+                    continue;
+                }
+                visitor.visit(segment.ids[i], TYPES[segment.types[i]], segment.categories[i],
+                        segment.amounts[i], segment.dates[i], segment.descriptions[i]);
+            }
+        }
+    }
+
+    /**
+     * Название категории по идентификатору на момент снимка
+     * @param categoryId идентификатор категории
+     * @return название категории
+     */
+    public String getCategoryName(int categoryId) {
+        return categoryNames[categoryId];
+    }
+
+    /**
+     * Количество категорий на момент снимка; идентификаторы категорий - от 0 до этого числа
+     */
+    public int getCategoryCount() {
+        return categoryNames.length;
+    }
+
+    private int row(int index) {
+        if (index < 0 || index >= live) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + live);
+        }
+        if (live == rows) {
+            return index;
+        }
+        int[] mapping = liveRows;
+        if (mapping == null) {
+            mapping = new int[live];
+            int n = 0;
+            for (int row = skipDeleted(0); row < rows; row = skipDeleted(row + 1)) {
+                mapping[n++] = row;
+            }
+            liveRows = mapping;
+        }
+        return mapping[index];
+    }
+
+    private int skipDeleted(int row) {
+        while (row < rows && segments[row >>> TransactionColumns.SEGMENT_SHIFT]
+                .types[row & TransactionColumns.SEGMENT_MASK] == TransactionColumns.DELETED) {
+            row++;
+        }
+        return row;
+    }
+
+    private Transaction materialize(int row) {
+        TransactionColumns.Segment segment = segments[row >>> TransactionColumns.SEGMENT_SHIFT];
+        int i = row & TransactionColumns.SEGMENT_MASK;
+        return new Transaction(segment.ids[i], TYPES[segment.types[i]], categoryNames[segment.categories[i]],
+                segment.amounts[i], segment.descriptions[i],
+                TransactionColumns.fromEpochNanos(segment.dates[i]));
+    }
+}
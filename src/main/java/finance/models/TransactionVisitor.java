@@ -0,0 +1,10 @@
+package finance.models;
+
+/**
+ * Обход транзакций кошелька без создания объектов Transaction
+ * Суммы передаются в минимальных единицах, даты - в наносекундах эпохи (UTC)
+ */
+@FunctionalInterface
+public interface TransactionVisitor {
+    void visit(long id, TransactionType type, int categoryId, long amount, long date, String description);
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package finance.models;
+
+/**
+ * Заявка на перевод средств другому пользователю
+ * Используется для пакетных переводов (например, выплат многим получателям от одного плательщика)
+ */
+public class TransferRequest {
+    private final String toLogin;
+    private final double amount;
+    private final String description;
+
+    public TransferRequest(String toLogin, double amount, String description) {
+        this.toLogin = toLogin;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public String getToLogin() { return toLogin; }
+    public double getAmount() { return amount; }
+    public String getDescription() { return description; }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package finance.models;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 public class User implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -8,12 +9,22 @@ public class User implements Serializable {
     private String login;
     private String password;
     private Wallet wallet;
+    // Срок ближайшего повторения регулярных операций; хранится в индексе учетных записей,
+    // чтобы планировщику не загружать кошельки. Значение в файле индекса может быть раньше
+    // действительного срока, но не позже него
+    private transient volatile LocalDateTime recurringDue;
 
     public User(String login, String password) {
         this.login = login;
         this.password = password;
         this.wallet = new Wallet();
     }
+    
+    public User(String login, String password, Wallet wallet) {
+        this.login = login;
+        this.password = password;
+        this.wallet = wallet;
+    }
  
     public String getLogin() { return login; }
     public void setLogin(String login) { this.login = login; }
@@ -23,4 +34,7 @@ public class User implements Serializable {
     
     public Wallet getWallet() { return wallet; }
     public void setWallet(Wallet wallet) { this.wallet = wallet; }
+    
+    public LocalDateTime getRecurringDue() { return recurringDue; }
+    public void setRecurringDue(LocalDateTime recurringDue) { this.recurringDue = recurringDue; }
 }
\ No newline at end of file
@@ -1,37 +1,388 @@
 package finance.models;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 public class Wallet implements Serializable {
-    private Map<String, Double> budgets;
-    private List<Transaction> transactions;
+    private static final long serialVersionUID = -3526717119286860825L;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    // Уплотнение хранилища, когда удаленных строк больше живых (но не меньше порога)
+    private static final int COMPACT_THRESHOLD = 1024;
+    
+    // Поля старого формата сохранены в описании для чтения ранее записанных снимков
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("budgets", Map.class),
+        new ObjectStreamField("transactions", List.class)
+    };
+    
+    private transient CategoryRegistry categories;
+    private transient TransactionColumns columns;
+    private transient IdIndex ids;
+    private transient TimeIndex timeIndex;
+    private transient PeriodRollups rollups;
+    // Строится при первом поиске и далее поддерживается при изменениях
+    private transient SearchIndex searchIndex;
+    // Правила регулярных операций по идентификаторам в порядке добавления
+    private transient Map<Long, RecurringRule> recurring;
+    
+    // Общие суммы в минимальных единицах, суммы по категориям хранятся в Category
+    private transient long totalIncome;
+    private transient long totalExpenses;
     
     public Wallet() {
-        this.budgets = new HashMap<>();
-        this.transactions = new ArrayList<>();
+        init();
     }
      
-    public Map<String, Double> getBudgets() { return new HashMap<>(budgets); }
-    public List<Transaction> getTransactions() { return new ArrayList<>(transactions); }
-    public void setBudget(String category, double amount) { budgets.put(category, amount); }
-    public void addTransaction(Transaction transaction) { transactions.add(transaction); }
+    public Map<String, Double> getBudgets() {
+        Map<String, Double> result = new HashMap<>();
+        for (Category category : categories.getCategories()) {
+            if (category.isBudgeted()) {
+                result.put(category.getName(), Money.toMajor(category.getBudgeting()));
+            }
+        }
+        return result;
+    }
+    
+    public void setBudget(String category, double amount) {
+        setBudgetMinor(category, Money.ofMajor(amount));
+    }
+    
+    /**
+     * Установка бюджета категории в минимальных единицах
+     */
+    public void setBudgetMinor(String category, long amount) {
+        categories.intern(category).setBudget(amount);
+    }
+    
+    public List<Category> getCategories() {
+        return categories.getCategories();
+    }
+    
+    /**
+     * Поиск категории по названию
+     * @param name название категории
+     * @return категория или null если операций и бюджета по ней нет
+     */
+    public Category getCategory(String name) {
+        return categories.find(name);
+    }
+    
+    /**
+     * Все транзакции в порядке добавления
+     * @return неизменяемый снимок без копирования строк, см. {@link #view()}
+     */
+    public List<Transaction> getTransactions() {
+        return view();
+    }
+    
+    /**
+     * Неизменяемый снимок транзакций кошелька
+     * Создается без копирования строк; последующие изменения кошелька снимку не видны,
+     * поэтому снимок, полученный под блокировкой, можно читать после ее освобождения
+     * @return снимок транзакций
+     */
+    public TransactionView view() {
+        return new TransactionView(columns.share(), columns.size(), columns.liveSize(), categories.names());
+    }
+    
+    public int getTransactionCount() {
+        return columns.liveSize();
+    }
+    
+    /**
+     * Добавление транзакции
+     * Транзакция с уже существующим идентификатором заменяет прежнюю в индексе идентификаторов
+     * @param transaction транзакция
+     */
+    public void addTransaction(Transaction transaction) {
+        int row = columns.add(transaction);
+        ids.put(transaction.getId(), row);
+        timeIndex.add(row);
+        indexText(row);
+        account(row, 1);
+    }
+    
+    /**
+     * Поиск транзакции по идентификатору
+     * @param id идентификатор транзакции
+     * @return транзакция или null если она не найдена
+     */
+    public Transaction getTransaction(long id) {
+        int row = ids.get(id);
+        return row < 0 ? null : columns.get(row);
+    }
+    
+    /**
+     * Замена транзакции с тем же идентификатором
+     * При неизменной дате значения заменяются на месте, иначе строка удаляется и добавляется заново
+     * @param transaction новые значения транзакции
+     * @return true если транзакция найдена и заменена
+     */
+    public boolean updateTransaction(Transaction transaction) {
+        int row = ids.get(transaction.getId());
+        if (row < 0) {
+            return false;
+        }
+        long date = TransactionColumns.toEpochNanos(transaction.getDate());
+        account(row, -1);
+        if (columns.date(row) == date) {
+            if (searchIndex != null) {
+                searchIndex.remove(row);
+            }
+            columns.set(row, transaction.getType(), categories.intern(transaction.getCategory()).getId(),
+                    transaction.getAmountMinor(), transaction.getDescription());
+            indexText(row);
+            account(row, 1);
+        } else {
+            columns.delete(row);
+            addTransaction(transaction);
+            compactIfSparse();
+        }
+        return true;
+    }
+    
+    /**
+     * Добавление пакета транзакций, например при импорте выписки
+     * @param transactions транзакции в порядке добавления
+     */
+    public void addTransactions(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            addTransaction(transaction);
+        }
+    }
+    
+    /**
+     * Обход всех транзакций в порядке добавления без материализации объектов
+     * @param visitor обработчик строк
+     */
+    public void forEachTransaction(TransactionVisitor visitor) {
+        for (int s = 0; s < columns.segmentCount(); s++) {
+            TransactionColumns.Segment segment = columns.segment(s);
+            int length = columns.segmentLength(s);
+            for (int i = 0; i < length; i++) {
+                if (segment.types[i] == TransactionColumns.DELETED) {
+                    continue;
+                }
+                visitor.visit(segment.ids[i], TYPES[segment.types[i]], segment.categories[i],
+                        segment.amounts[i], segment.dates[i], segment.descriptions[i]);
+            }
+        }
+    }
+    
+    /**
+     * Восстановление категории при загрузке сохраненных данных
+     * Категории должны восстанавливаться в порядке их идентификаторов
+     * @param name название категории
+     * @param budgeted установлен ли бюджет
+     * @param budget бюджет в минимальных единицах
+     * @return идентификатор категории
+     */
+    public int restoreCategory(String name, boolean budgeted, long budget) {
+        Category category = categories.intern(name);
+        if (budgeted) {
+            category.setBudget(budget);
+        }
+        return category.getId();
+    }
+    
+    /**
+     * Восстановление транзакции при загрузке сохраненных данных без создания объекта Transaction
+     * @param id идентификатор транзакции
+     * @param type тип операции
+     * @param categoryId идентификатор ранее восстановленной категории
+     * @param amount сумма в минимальных единицах
+     * @param date дата в наносекундах эпохи (UTC)
+     * @param description описание
+     */
+    public void restoreTransaction(long id, TransactionType type, int categoryId, long amount,
+                                   long date, String description) {
+        Objects.checkIndex(categoryId, categories.size());
+        int row = columns.add(id, type, categoryId, amount, date, description);
+        ids.put(id, row);
+        timeIndex.add(row);
+        indexText(row);
+        account(row, 1);
+    }
     
     public boolean removeBudget(String category) {
-        return budgets.remove(category) != null;
+        Category found = categories.find(category);
+        if (found == null || !found.isBudgeted()) {
+            return false;
+        }
+        found.clearBudget();
+        return true;
     } 
     public boolean removeTransaction(Transaction transaction) {
-        return transactions.remove(transaction);
+        return removeTransaction(transaction.getId());
+    }
+    
+    /**
+     * Удаление транзакции по идентификатору
+     * Строка помечается удаленной; хранилище уплотняется, когда удаленных строк становится больше живых
+     * @param id идентификатор транзакции
+     * @return true если транзакция найдена и удалена
+     */
+    public boolean removeTransaction(long id) {
+        int row = ids.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        account(row, -1);
+        columns.delete(row);
+        compactIfSparse();
+        return true;
+    }
+    
+    /**
+     * Добавление правила регулярной операции или замена правила с тем же идентификатором
+     * @param rule правило
+     */
+    public void putRecurringRule(RecurringRule rule) {
+        recurring.put(rule.getId(), rule);
+    }
+    
+    /**
+     * Удаление правила регулярной операции; уже созданные по нему операции остаются
+     * @param id идентификатор правила
+     * @return true если правило найдено и удалено
+     */
+    public boolean removeRecurringRule(long id) {
+        return recurring.remove(id) != null;
+    }
+    
+    public RecurringRule getRecurringRule(long id) {
+        return recurring.get(id);
+    }
+    
+    public List<RecurringRule> getRecurringRules() {
+        return new ArrayList<>(recurring.values());
+    }
+    
+    /**
+     * Ближайший срок повторения среди правил кошелька
+     * @return срок или null, если повторений не осталось
+     */
+    public LocalDateTime getNextRecurringFire() {
+        LocalDateTime earliest = null;
+        for (RecurringRule rule : recurring.values()) {
+            LocalDateTime next = rule.getNextFire();
+            if (next != null && (earliest == null || next.isBefore(earliest))) {
+                earliest = next;
+            }
+        }
+        return earliest;
+    }
+    
+    /**
+     * Подготовка операций по наступившим срокам регулярных правил; кошелек не изменяется
+     * Повторения, пропущенные за время простоя, создаются все сразу в хронологическом порядке;
+     * дата операции - срок ее повторения. Подготовленное применяется вызовом applyRecurring,
+     * поэтому его можно сначала записать в журнал
+     * @param now момент, по который включительно выполняются повторения
+     * @param limit наибольшее число создаваемых операций; оставшиеся повторения остаются просроченными
+     * @param added список, в который добавляются созданные операции
+     * @return правила, по которым созданы операции, с учетом выполненных повторений
+     */
+    public List<RecurringRule> planRecurring(LocalDateTime now, int limit, List<Transaction> added) {
+        List<RecurringRule> advanced = new ArrayList<>();
+        int first = added.size();
+        for (RecurringRule rule : recurring.values()) {
+            long index = rule.getFired();
+            while (added.size() - first < limit) {
+                LocalDateTime next = rule.occurrence(index);
+                if (next.isAfter(now) || (rule.getUntil() != null && next.isAfter(rule.getUntil()))) {
+                    break;
+                }
+                added.add(rule.materialize(index++));
+            }
+            if (index > rule.getFired()) {
+                advanced.add(rule.advance(index - rule.getFired()));
+            }
+        }
+        added.subList(first, added.size()).sort(Comparator.comparing(Transaction::getDate));
+        return advanced;
+    }
+    
+    /**
+     * Применение подготовленных planRecurring операций и новых состояний правил
+     * @param advanced правила с учетом выполненных повторений
+     * @param created созданные операции
+     */
+    public void applyRecurring(List<RecurringRule> advanced, List<Transaction> created) {
+        for (RecurringRule rule : advanced) {
+            recurring.put(rule.getId(), rule);
+        }
+        addTransactions(created);
+    }
+    
+    /**
+     * Поиск операций по словам описания и названия категории
+     * Каждое слово запроса должно быть началом какого-либо слова описания или категории операции;
+     * регистр букв и различие е/ё не учитываются. Индекс слов строится при первом поиске
+     * за время, пропорциональное числу операций, и далее обновляется вместе с кошельком
+     * @param query слова запроса; пустой запрос подходит ко всем операциям
+     * @param type тип операции или null для любого типа
+     * @param from начало периода (включительно) или null
+     * @param to конец периода (не включительно) или null
+     * @param limit наибольшее количество операций
+     * @return найденные операции, начиная с добавленной последней
+     */
+    public List<Transaction> search(String query, TransactionType type, LocalDateTime from, LocalDateTime to,
+                                    int limit) {
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex(columns, categories);
+            searchIndex.rebuild();
+        }
+        return materialize(searchIndex.search(query, type,
+                from == null ? Long.MIN_VALUE : TransactionColumns.toEpochNanosBound(from),
+                to == null ? Long.MAX_VALUE : TransactionColumns.toEpochNanosBound(to), limit));
+    }
+    
+    /**
+     * Последние операции по дате
+     * @param count количество операций
+     * @return операции, начиная с самой новой
+     */
+    public List<Transaction> getRecentTransactions(int count) {
+        return materialize(timeIndex.recent(count));
+    }
+    
+    /**
+     * Операции за период
+     * @param from начало периода (включительно)
+     * @param to конец периода (не включительно)
+     * @return операции в хронологическом порядке
+     */
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return materialize(timeIndex.between(TransactionColumns.toEpochNanosBound(from),
+                TransactionColumns.toEpochNanosBound(to)));
     }
     
     public List<Transaction> getTransactionsByType(TransactionType type) {
         List<Transaction> result = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            if (transaction.getType() == type) {
-                result.add(transaction);
+        byte code = (byte) type.ordinal();
+        for (int s = 0; s < columns.segmentCount(); s++) {
+            TransactionColumns.Segment segment = columns.segment(s);
+            int length = columns.segmentLength(s);
+            int base = s << TransactionColumns.SEGMENT_SHIFT;
+            for (int i = 0; i < length; i++) {
+                if (segment.types[i] == code) {
+                    result.add(columns.get(base + i));
+                }
             }
         }
         return result;
@@ -39,60 +390,266 @@ public class Wallet implements Serializable {
     
     public List<Transaction> getTransactionsByCategory(String category) {
         List<Transaction> result = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            if (transaction.getCategory().equals(category)) {
-                result.add(transaction);
+        Category found = categories.find(category);
+        if (found == null) {
+            return result;
+        }
+        int categoryId = found.getId();
+        for (int s = 0; s < columns.segmentCount(); s++) {
+            TransactionColumns.Segment segment = columns.segment(s);
+            int length = columns.segmentLength(s);
+            int base = s << TransactionColumns.SEGMENT_SHIFT;
+            for (int i = 0; i < length; i++) {
+                if (segment.categories[i] == categoryId && segment.types[i] != TransactionColumns.DELETED) {
+                    result.add(columns.get(base + i));
+                }
             }
         }
         return result;
     }
      
     public double getTotalIncome() {
-        double total = 0;
-        for (Transaction transaction : transactions) {
-            if (transaction.getType() == TransactionType.INCOME) {
-                total += transaction.getAmount();
+        return Money.toMajor(totalIncome);
+    }
+    
+    public double getTotalExpenses() {
+        return Money.toMajor(totalExpenses);
+    }
+    
+    public double getBalance() {
+        return Money.toMajor(totalIncome - totalExpenses);
+    }
+    
+    public long getTotalIncomeMinor() {
+        return totalIncome;
+    }
+    
+    public long getTotalExpensesMinor() {
+        return totalExpenses;
+    }
+    
+    /**
+     * Точный баланс в минимальных единицах, для сравнения сумм без погрешности double
+     */
+    public long getBalanceMinor() {
+        return totalIncome - totalExpenses;
+    }
+    
+    public double getSpentByCategory(String category) {
+        Category found = categories.find(category);
+        return found == null ? 0 : Money.toMajor(found.getUsed());
+    }
+    
+    public double getEarnedByCategory(String category) {
+        Category found = categories.find(category);
+        return found == null ? 0 : Money.toMajor(found.getEarned());
+    }
+    
+    public Map<String, Double> getExpensesByCategory() {
+        Map<String, Double> result = new HashMap<>();
+        for (Category category : categories.getCategories()) {
+            if (category.getExpenseCount() > 0) {
+                result.put(category.getName(), Money.toMajor(category.getUsed()));
             }
         }
-        return total;
+        return result;
     }
     
-    public double getTotalExpenses() {
-        double total = 0;
-        for (Transaction transaction : transactions) {
-            if (transaction.getType() == TransactionType.EXPENSE) {
-                total += transaction.getAmount();
+    public Map<String, Double> getIncomeByCategory() {
+        Map<String, Double> result = new HashMap<>();
+        for (Category category : categories.getCategories()) {
+            if (category.getIncomeCount() > 0) {
+                result.put(category.getName(), Money.toMajor(category.getEarned()));
             }
         }
-        return total;
+        return result;
     }
     
-    public double getBalance() {
-        return getTotalIncome() - getTotalExpenses();
+    /**
+     * Сумма операций типа за месяц
+     * @param type тип операций
+     * @param month месяц
+     * @return сумма
+     */
+    public double getTotal(TransactionType type, YearMonth month) {
+        PeriodRollups.Bucket bucket = rollups.month(month);
+        return bucket == null ? 0 : Money.toMajor(bucket.total(type));
     }
     
-    public double getSpentByCategory(String category) {
-        double total = 0;
-        for (Transaction transaction : transactions) {
-            if (transaction.getType() == TransactionType.EXPENSE && 
-                transaction.getCategory().equals(category)) {
-                total += transaction.getAmount();
+    /**
+     * Сумма операций типа за период
+     * @param type тип операций
+     * @param from первый день периода (включительно)
+     * @param to последний день периода (включительно)
+     * @return сумма
+     */
+    public double getTotal(TransactionType type, LocalDate from, LocalDate to) {
+        long total = 0;
+        for (PeriodRollups.Bucket bucket : rollups.days(from, to).values()) {
+            total += bucket.total(type);
+        }
+        return Money.toMajor(total);
+    }
+    
+    /**
+     * Суммы операций типа по категориям за месяц
+     * @param type тип операций
+     * @param month месяц
+     * @return Map где ключ - категория, значение - сумма
+     */
+    public Map<String, Double> getCategoryTotals(TransactionType type, YearMonth month) {
+        PeriodRollups.Bucket bucket = rollups.month(month);
+        return bucket == null ? new HashMap<>() : toCategoryMap(bucket.byCategory(type));
+    }
+    
+    /**
+     * Суммы операций типа по категориям за период
+     * @param type тип операций
+     * @param from первый день периода (включительно)
+     * @param to последний день периода (включительно)
+     * @return Map где ключ - категория, значение - сумма
+     */
+    public Map<String, Double> getCategoryTotals(TransactionType type, LocalDate from, LocalDate to) {
+        long[] totals = new long[categories.size()];
+        for (PeriodRollups.Bucket bucket : rollups.days(from, to).values()) {
+            long[] byCategory = bucket.byCategory(type);
+            for (int id = 0; id < Math.min(totals.length, byCategory.length); id++) {
+                totals[id] += byCategory[id];
             }
         }
-        return total;
+        return toCategoryMap(totals);
+    }
+    
+    /**
+     * Помесячная динамика операций типа
+     * @param type тип операций
+     * @param from первый месяц (включительно)
+     * @param to последний месяц (включительно)
+     * @return суммы по месяцам в хронологическом порядке, включая месяцы без операций
+     */
+    public Map<YearMonth, Double> getMonthlyTotals(TransactionType type, YearMonth from, YearMonth to) {
+        Map<YearMonth, Double> result = new LinkedHashMap<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            result.put(month, getTotal(type, month));
+        }
+        return result;
     }
     
     public double getRemainingBudget(String category) {
-        Double budget = budgets.get(category);
-        if (budget == null) {
+        Category found = categories.find(category);
+        if (found == null || !found.isBudgeted()) {
             return 0;
         }
-        return budget - getSpentByCategory(category);
+        return Money.toMajor(Money.subtract(found.getBudgeting(), found.getUsed()));
+    }
+    
+    private Map<String, Double> toCategoryMap(long[] totals) {
+        Map<String, Double> result = new HashMap<>();
+        for (int id = 0; id < Math.min(totals.length, categories.size()); id++) {
+            if (totals[id] != 0) {
+                result.put(categories.get(id).getName(), Money.toMajor(totals[id]));
+            }
+        }
+        return result;
+    }
+    
+    private void indexText(int row) {
+        if (searchIndex != null) {
+            searchIndex.add(row);
+        }
+    }
+    
+    private List<Transaction> materialize(int[] rows) {
+        List<Transaction> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(columns.get(row));
+        }
+        return result;
+    }
+    
+    /**
+     * Учет строки хранилища в агрегатах кошелька
+     * @param row номер строки
+     * @param sign 1 при добавлении, -1 при удалении
+     */
+    private void account(int row, int sign) {
+        TransactionType type = columns.type(row);
+        long amount = columns.amount(row);
+        int categoryId = columns.category(row);
+        categories.get(categoryId).account(type, amount, sign);
+        rollups.add(columns.date(row), type, categoryId, sign * amount);
+        if (type == TransactionType.INCOME) {
+            totalIncome += sign * amount;
+        } else {
+            totalExpenses += sign * amount;
+        }
+    }
+    
+    /**
+     * Перенос живых строк в новое хранилище, когда удаленных строк стало больше живых
+     * Агрегаты не пересчитываются: удаленные строки из них уже вычтены
+     */
+    private void compactIfSparse() {
+        int deleted = columns.size() - columns.liveSize();
+        if (deleted < COMPACT_THRESHOLD || deleted <= columns.liveSize()) {
+            return;
+        }
+        TransactionColumns compacted = new TransactionColumns(categories);
+        ids.clear();
+        for (int row = 0; row < columns.size(); row++) {
+            if (!columns.isDeleted(row)) {
+                long id = columns.id(row);
+                ids.put(id, compacted.add(id, columns.type(row), columns.category(row), columns.amount(row),
+                        columns.date(row), columns.description(row)));
+            }
+        }
+        columns = compacted;
+        timeIndex = new TimeIndex(columns);
+        timeIndex.rebuild();
+        searchIndex = null;
+    }
+    
+    private void init() {
+        categories = new CategoryRegistry();
+        columns = new TransactionColumns(categories);
+        ids = new IdIndex();
+        timeIndex = new TimeIndex(columns);
+        rollups = new PeriodRollups();
+        searchIndex = null;
+        recurring = new LinkedHashMap<>();
+        totalIncome = 0;
+        totalExpenses = 0;
+    }
+    
+    /**
+     * Java-сериализация в формате прежних снимков: бюджеты и список транзакций
+     * Сохраняется только для совместимости; хранилище использует SnapshotCodec
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("budgets", getBudgets());
+        fields.put("transactions", new ArrayList<>(getTransactions()));
+        out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        init();
+        
+        Map<String, Double> budgets = (Map<String, Double>) fields.get("budgets", null);
+        List<Transaction> legacy = (List<Transaction>) fields.get("transactions", null);
+        if (budgets != null) {
+            budgets.forEach(this::setBudget);
+        }
+        if (legacy != null) {
+            legacy.forEach(this::addTransaction);
+        }
     }
     
     @Override
     public String toString() {
         return String.format("Wallet{balance=%.2f, budgets=%d, transactions=%d}", 
-                getBalance(), budgets.size(), transactions.size());
+                getBalance(), getBudgets().size(), columns.liveSize());
     }
 }
\ No newline at end of file
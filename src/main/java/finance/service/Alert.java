@@ -0,0 +1,56 @@
+package finance.service;
+
+/**
+ * Оповещение о пересечении порога бюджета или баланса
+ */
+public final class Alert {
+    private final AlertType type;
+    private final String login;
+    private final String category;
+    private final int level;
+    private final double limit;
+    private final double value;
+    
+    Alert(AlertType type, String login, String category, int level, double limit, double value) {
+        this.type = type;
+        this.login = login;
+        this.category = category;
+        this.level = level;
+        this.limit = limit;
+        this.value = value;
+    }
+    
+    public AlertType getType() { return type; }
+    public String getLogin() { return login; }
+    /** Категория бюджета или null для оповещений о балансе */
+    public String getCategory() { return category; }
+    /** Пересеченный уровень бюджета в процентах или 0 для оповещений о балансе */
+    public int getLevel() { return level; }
+    /** Бюджет категории или порог баланса */
+    public double getLimit() { return limit; }
+    /** Потрачено по категории или текущий баланс */
+    public double getValue() { return value; }
+    
+    /**
+     * Текст оповещения для пользователя
+     */
+    public String getMessage() {
+        switch (type) {
+            case BUDGET_EXCEEDED:
+                return "ПРЕДУПРЕЖДЕНИЕ: Превышен бюджет по категории '" + category +
+                       "'! Бюджет: " + limit + ", Потрачено: " + value;
+            case BUDGET_LEVEL:
+                return "ВНИМАНИЕ: Бюджет по категории '" + category + "' израсходован более чем на " + level +
+                       "%! Бюджет: " + limit + ", Потрачено: " + value;
+            case NEGATIVE_BALANCE:
+                return "КРИТИЧЕСКОЕ ПРЕДУПРЕЖДЕНИЕ: Отрицательный баланс! Баланс: " + value;
+            default:
+                return "ВНИМАНИЕ: Низкий баланс! Баланс: " + value;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,179 @@
+package finance.service;
+
+import finance.models.Category;
+import finance.models.Money;
+import finance.models.Wallet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Движок оповещений о бюджетах и балансе
+ * Сравнивает состояние одной категории и баланса до и после операции и создает оповещение,
+ * только если операция пересекла порог. Стоимость проверки не зависит ни от истории операций,
+ * ни от числа бюджетов кошелька
+ */
+final class AlertEngine {
+    private volatile int[] budgetLevels = { 80, 100 };
+    // Порог низкого баланса в минимальных единицах
+    private volatile long lowBalance = 1000 * Money.SCALE;
+    private final List<AlertListener> listeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Состояние категорий и баланса, запомненное перед операцией
+     */
+    final class Check {
+        private final String login;
+        private final String[] categoryNames;
+        private final boolean[] budgeted;
+        private final long[] budget;
+        private final long[] spent;
+        private final long balance;
+        
+        private Check(String login, Wallet wallet, String[] categoryNames) {
+            this.login = login;
+            this.categoryNames = categoryNames;
+            this.budgeted = new boolean[categoryNames.length];
+            this.budget = new long[categoryNames.length];
+            this.spent = new long[categoryNames.length];
+            for (int i = 0; i < categoryNames.length; i++) {
+                Category category = wallet.getCategory(categoryNames[i]);
+                budgeted[i] = category != null && category.isBudgeted();
+                budget[i] = category == null ? 0 : category.getBudgeting();
+                spent[i] = category == null ? 0 : category.getUsed();
+            }
+            this.balance = wallet.getBalanceMinor();
+        }
+        
+        /**
+         * Сравнение с состоянием после операции
+         * @param wallet кошелек после операции; может быть другим объектом, если кошелек перезагружался
+         * @return оповещения о пересеченных порогах, обычно пустой список
+         */
+        List<Alert> finish(Wallet wallet) {
+            List<Alert> alerts = Collections.emptyList();
+            for (int i = 0; i < categoryNames.length; i++) {
+                Alert budgetAlert = checkBudget(wallet, i);
+                if (budgetAlert != null) {
+                    if (alerts.isEmpty()) {
+                        alerts = new ArrayList<>(2);
+                    }
+                    alerts.add(budgetAlert);
+                }
+            }
+            Alert balanceAlert = checkBalance(wallet);
+            if (balanceAlert != null) {
+                if (alerts.isEmpty()) {
+                    alerts = new ArrayList<>(1);
+                }
+                alerts.add(balanceAlert);
+            }
+            return alerts;
+        }
+        
+        /**
+         * Наивысший уровень бюджета категории, который был не превышен до операции и превышен после нее
+         */
+        private Alert checkBudget(Wallet wallet, int index) {
+            Category category = wallet.getCategory(categoryNames[index]);
+            if (category == null || !category.isBudgeted()) {
+                return null;
+            }
+            int[] levels = budgetLevels;
+            for (int i = levels.length - 1; i >= 0; i--) {
+                int level = levels[i];
+                if (over(category.getUsed(), category.getBudgeting(), level)
+                        && !(budgeted[index] && over(spent[index], budget[index], level))) {
+                    return new Alert(level >= 100 ? AlertType.BUDGET_EXCEEDED : AlertType.BUDGET_LEVEL, login,
+                            category.getName(), level, category.getBudgetAmount(), category.getUsedAmount());
+                }
+            }
+            return null;
+        }
+        
+        private Alert checkBalance(Wallet wallet) {
+            long current = wallet.getBalanceMinor();
+            long threshold = lowBalance;
+            if (current < 0 && balance >= 0) {
+                return new Alert(AlertType.NEGATIVE_BALANCE, login, null, 0, 0, Money.toMajor(current));
+            }
+            if (current >= 0 && current < threshold && balance >= threshold) {
+                return new Alert(AlertType.LOW_BALANCE, login, null, 0, Money.toMajor(threshold),
+                        Money.toMajor(current));
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Запоминание состояния перед операцией
+     * Вызывается под блокировкой полосы пользователя
+     * @param login логин владельца кошелька
+     * @param wallet кошелек
+     * @param category категория операции или null если операция не затрагивает бюджеты
+     * @return проверка, которую нужно завершить после операции
+     */
+    Check begin(String login, Wallet wallet, String category) {
+        return new Check(login, wallet, category == null ? new String[0] : new String[] { category });
+    }
+    
+    /**
+     * Запоминание состояния перед пакетом операций по нескольким категориям
+     * Пакет проверяется один раз: по каждой категории и балансу создается не более одного оповещения
+     * @param login логин владельца кошелька
+     * @param wallet кошелек
+     * @param categories категории операций пакета
+     * @return проверка, которую нужно завершить после пакета
+     */
+    Check beginAll(String login, Wallet wallet, Collection<String> categories) {
+        return new Check(login, wallet, categories.toArray(new String[0]));
+    }
+    
+    /**
+     * Доставка оповещений получателям
+     * Вызывается после освобождения блокировок
+     */
+    void publish(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            for (AlertListener listener : listeners) {
+                listener.onAlert(alert);
+            }
+        }
+    }
+    
+    void addListener(AlertListener listener) {
+        listeners.add(listener);
+    }
+    
+    void removeListener(AlertListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Установка уровней бюджета в процентах
+     * Уровень 100 и выше соответствует превышению бюджета
+     */
+    void setBudgetLevels(int... levels) {
+        int[] sorted = levels.clone();
+        Arrays.sort(sorted);
+        if (sorted.length == 0 || sorted[0] <= 0) {
+            throw new IllegalArgumentException("Уровни бюджета должны быть положительными");
+        }
+        budgetLevels = sorted;
+    }
+    
+    void setLowBalance(double threshold) {
+        lowBalance = Money.ofMajor(threshold);
+    }
+    
+    /**
+     * Превышен ли уровень бюджета; сравнение в минимальных единицах без округления
+     */
+    private static boolean over(long spent, long budget, int level) {
+        return spent * 100 > budget * level;
+    }
+}
@@ -0,0 +1,10 @@
+package finance.service;
+
+/**
+ * Получатель оповещений сервиса
+ * Вызывается после завершения операции, вне блокировок пользователей
+ */
+@FunctionalInterface
+public interface AlertListener {
+    void onAlert(Alert alert);
+}
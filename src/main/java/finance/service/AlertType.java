@@ -0,0 +1,15 @@
+package finance.service;
+
+/**
+ * Вид оповещения
+ */
+public enum AlertType {
+    /** Расходы по категории превысили один из уровней бюджета ниже 100% */
+    BUDGET_LEVEL,
+    /** Расходы по категории превысили бюджет */
+    BUDGET_EXCEEDED,
+    /** Баланс опустился ниже порога низкого баланса */
+    LOW_BALANCE,
+    /** Баланс стал отрицательным */
+    NEGATIVE_BALANCE
+}
@@ -0,0 +1,159 @@
+package finance.service;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронная доставка сообщений через ограниченную очередь
+ * Отправитель только ставит сообщение в очередь; текст формируется и передается получателю
+ * в отдельном потоке доставки, поэтому операции не ждут вывода в консоль.
+ * При заполненной очереди сообщение отбрасывается (DROP) или отправитель ждет места (BLOCK).
+ * Число отброшенных сообщений сообщается получателю, когда очередь освобождается
+ */
+public final class AsyncNotificationSink implements NotificationSink {
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Поведение при заполненной очереди
+     */
+    public enum Overflow {
+        /** Отбросить сообщение и учесть его в счетчике отброшенных */
+        DROP,
+        /** Дождаться места в очереди */
+        BLOCK
+    }
+
+    private static final class Message {
+        final Level level;
+        final Supplier<String> text;
+
+        Message(Level level, Supplier<String> text) {
+            this.level = level;
+            this.text = text;
+        }
+    }
+
+    // Признак завершения потока доставки
+    private static final Message STOP = new Message(Level.INFO, () -> "");
+
+    private final BlockingQueue<Message> queue;
+    private final Thread worker;
+    private final LongAdder dropped = new LongAdder();
+    private volatile NotificationSink target;
+    private volatile Overflow overflow;
+    private volatile boolean closed;
+    private long reportedDropped;
+
+    /**
+     * @param capacity размер очереди
+     * @param overflow поведение при заполненной очереди
+     * @param target получатель; вызывается только из потока доставки
+     */
+    public AsyncNotificationSink(int capacity, Overflow overflow, NotificationSink target) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflow = Objects.requireNonNull(overflow);
+        this.target = Objects.requireNonNull(target);
+        this.worker = new Thread(this::deliver, "notifications");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void publish(Level level, Supplier<String> message) {
+        Message entry = new Message(level, message);
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        if (overflow == Overflow.BLOCK) {
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+            }
+        } else if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    public void setTarget(NotificationSink target) {
+        this.target = Objects.requireNonNull(target);
+    }
+
+    public void setOverflow(Overflow overflow) {
+        this.overflow = Objects.requireNonNull(overflow);
+    }
+
+    /**
+     * Количество отброшенных сообщений с момента создания
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Количество сообщений, ожидающих доставки
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Доставка оставшихся сообщений и остановка потока доставки
+     * Сообщения, отправленные после закрытия, отбрасываются
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!queue.offer(STOP, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                worker.interrupt();
+            }
+            worker.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver() {
+        try {
+            while (true) {
+                Message message = queue.take();
+                if (message == STOP) {
+                    break;
+                }
+                send(message.level, message.text);
+                if (queue.isEmpty()) {
+                    reportDropped();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reportDropped();
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            long lost = total - reportedDropped;
+            reportedDropped = total;
+            send(Level.ERROR, () -> "Очередь сообщений переполнена, пропущено сообщений: " + lost);
+        }
+    }
+
+    private void send(Level level, Supplier<String> text) {
+        try {
+            target.publish(level, text);
+        } catch (RuntimeException e) {
+            // Ошибка получателя не должна останавливать доставку остальных сообщений
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package finance.service;
+
+import java.util.List;
+
+/**
+ * Итог импорта выписки
+ */
+public final class ImportResult {
+    private final int imported;
+    private final int skipped;
+    private final List<String> errors;
+    
+    ImportResult(int imported, int skipped, List<String> errors) {
+        this.imported = imported;
+        this.skipped = skipped;
+        this.errors = List.copyOf(errors);
+    }
+    
+    /** Количество добавленных транзакций */
+    public int getImported() { return imported; }
+    /** Количество пропущенных некорректных строк */
+    public int getSkipped() { return skipped; }
+    /** Описания первых ошибок разбора с номерами строк */
+    public List<String> getErrors() { return errors; }
+}
@@ -1,33 +1,249 @@
 package finance.service;
 
+import finance.metrics.LatencyHistogram;
+import finance.metrics.MetricsRegistry;
 import finance.models.*;
+import finance.storage.CsvStatementReader;
+import finance.storage.Durability;
+import finance.storage.ExportFormat;
+import finance.storage.TransactionExporter;
+import finance.storage.LegacySnapshotMigrator;
+import finance.storage.TransactionJournal;
+import finance.storage.UserStore;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.FileNotFoundException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import org.springframework.stereotype.Service;
 
 /**
  * Сервис управления финансовыми операциями пользователей
- * Обеспечивает регистрацию, авторизацию, управление транзакциями и бюджетами
+ * Обеспечивает регистрацию, авторизацию, управление транзакциями и бюджетами.
+ * Потокобезопасен: каждая операция выполняется в рамках сессии пользователя,
+ * изменения кошелька защищены блокировкой полосы, к которой относится логин.
+ * Изменения записываются в журнал фоновым потоком группами; в режиме DURABLE операция
+ * дожидается сброса своей записи на диск уже после освобождения блокировок
  */
 @Service
 public class ManageService {  
     private Map<String, User> users;
-    private User currentUser;
-    private final String DATA_FILE = "finance_data.ser";
+    private final Map<String, Session> sessions;
+    private final StripedLocks locks;
+    private final AtomicBoolean checkpointScheduled;
+    private final ReentrantLock checkpointLock;
+    private final ExecutorService checkpointer;
+    private final String DATA_DIR = "finance_data";
+    private final String SNAPSHOT_FILE = "finance_data.bin";
+    private final String LEGACY_DATA_FILE = "finance_data.ser";
+    private final String JOURNAL_FILE = "finance_data.journal";
+    private final int CHECKPOINT_INTERVAL = 1000;
+    private final long GROUP_COMMIT_INTERVAL_MS = 0;
+    private final int GROUP_COMMIT_MAX_RECORDS = 1024;
+    private final int LOCK_STRIPES = 64;
+    private final String TRANSFER_CATEGORY = "Перевод";
+    private final String TRANSFER_TO_PREFIX = "Перевод пользователю: ";
+    private final long MAX_RESIDENT_TRANSACTIONS = Long.getLong("finance.cache.transactions", 2_000_000);
+    private final int IMPORT_BATCH_SIZE = 10_000;
+    private final int NOTIFICATION_QUEUE_CAPACITY = 4096;
+    private final int RECURRING_BATCH_SIZE = 10_000;
+    private final int RECURRING_BATCH_USERS = 1024;
+    private final long RECURRING_RETRY_MINUTES = 1;
+    private final TransactionJournal journal;
+    private final UserStore store;
+    private final WalletCache wallets;
+    private final AtomicBoolean indexDirty;
+    private final AlertEngine alerts;
+    private final AsyncNotificationSink notifications;
+    private final RecurringScheduler recurring;
+    private final Path directory;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram registerTimer;
+    private final LatencyHistogram loginTimer;
+    private final LatencyHistogram incomeTimer;
+    private final LatencyHistogram expenseTimer;
+    private final LatencyHistogram budgetTimer;
+    private final LatencyHistogram transferTimer;
+    private final LatencyHistogram importTimer;
+    private final LatencyHistogram checkpointTimer;
+    private final LatencyHistogram reportTimer;
+    private final LatencyHistogram recurringTimer;
+    private final LongAdder recurringFired;
+    private final LongAdder checkpointBytes;
+    private volatile Durability durability = Durability.DURABLE;
     
     /**
-     * Конструктор сервиса управления
-     * Инициализирует хранилище пользователей и загружает данные
+     * Конструктор сервиса управления с файлами данных в рабочем каталоге
      */
     public ManageService() {
-        this.users = new HashMap<>();
+        this(Paths.get(""));
+    }
+    
+    /**
+     * Конструктор сервиса управления
+     * Загружает только индекс учетных записей; кошельки читаются по требованию
+     * и удерживаются в памяти в ограниченном кэше
+     * @param directory каталог с файлами данных
+     */
+    public ManageService(Path directory) {
+        this.directory = directory;
+        this.metrics = new MetricsRegistry();
+        this.registerTimer = metrics.timer("register");
+        this.loginTimer = metrics.timer("login");
+        this.incomeTimer = metrics.timer("addIncome");
+        this.expenseTimer = metrics.timer("addExpense");
+        this.budgetTimer = metrics.timer("setBudget");
+        this.transferTimer = metrics.timer("transfer");
+        this.importTimer = metrics.timer("importStatement");
+        this.checkpointTimer = metrics.timer("checkpoint");
+        this.reportTimer = metrics.timer("operatorReport");
+        this.recurringTimer = metrics.timer("recurring.tick");
+        this.recurringFired = metrics.counter("recurring.fired");
+        this.checkpointBytes = metrics.counter("checkpoint.bytes");
+        this.users = new ConcurrentHashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
+        this.locks = new StripedLocks(LOCK_STRIPES);
+        this.checkpointScheduled = new AtomicBoolean();
+        this.checkpointLock = new ReentrantLock();
+        this.checkpointer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.indexDirty = new AtomicBoolean();
+        this.notifications = new AsyncNotificationSink(NOTIFICATION_QUEUE_CAPACITY,
+                AsyncNotificationSink.Overflow.DROP, (level, message) -> System.out.println(message.get()));
+        this.alerts = new AlertEngine();
+        this.alerts.addListener(alert -> notifications.publish(NotificationSink.Level.ALERT, alert::getMessage));
+        try {
+            this.journal = new TransactionJournal(directory.resolve(JOURNAL_FILE),
+                    GROUP_COMMIT_INTERVAL_MS, GROUP_COMMIT_MAX_RECORDS);
+            this.store = new UserStore(directory.resolve(DATA_DIR));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось открыть хранилище данных: " + e.getMessage(), e);
+        }
+        this.wallets = new WalletCache(store, locks, journal, MAX_RESIDENT_TRANSACTIONS, notifications);
+        this.recurring = new RecurringScheduler(this::fireRecurring, notifications);
+        registerStorageMetrics();
+        
+        long started = System.nanoTime();
         loadData();
+        metrics.timer("startup.load").record(System.nanoTime() - started);
+        recurring.start();
+    }
+    
+    /**
+     * Выбор режима подтверждения записи изменений
+     * @param durability ASYNC - не ждать сброса журнала на диск, DURABLE - ждать
+     */
+    public void setDurability(Durability durability) {
+        this.durability = Objects.requireNonNull(durability);
+    }
+    
+    /**
+     * Реестр метрик сервиса: длительности операций, сбросы журнала, контрольные точки, кэш кошельков
+     * @return реестр метрик
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Подписка на оповещения о бюджетах и балансе
+     * По умолчанию подключен получатель, выводящий оповещения в консоль
+     * @param listener получатель оповещений
+     */
+    public void addAlertListener(AlertListener listener) {
+        alerts.addListener(Objects.requireNonNull(listener));
+    }
+    
+    /**
+     * Получатель сообщений сервиса: оповещений, результатов операций, сведений о загрузке и сохранении
+     * Вызывается в отдельном потоке доставки, операции его не ждут. По умолчанию сообщения выводятся в консоль
+     * @param sink получатель сообщений
+     */
+    public void setNotificationSink(NotificationSink sink) {
+        notifications.setTarget(sink);
+    }
+    
+    /**
+     * Поведение при переполнении очереди сообщений
+     * @param overflow DROP - отбрасывать сообщения, BLOCK - ждать места в очереди
+     */
+    public void setNotificationOverflow(AsyncNotificationSink.Overflow overflow) {
+        notifications.setOverflow(overflow);
+    }
+    
+    /**
+     * Отписка от оповещений
+     * @param listener получатель оповещений
+     */
+    public void removeAlertListener(AlertListener listener) {
+        alerts.removeListener(listener);
+    }
+    
+    /**
+     * Настройка уровней бюджета, при пересечении которых отправляются оповещения
+     * @param percents уровни в процентах от бюджета; 100 и выше - превышение бюджета
+     * @throws IllegalArgumentException если уровни не заданы или не положительны
+     */
+    public void setBudgetAlertLevels(int... percents) {
+        alerts.setBudgetLevels(percents);
+    }
+    
+    /**
+     * Настройка порога низкого баланса
+     * @param threshold баланс, ниже которого отправляется оповещение
+     */
+    public void setLowBalanceThreshold(double threshold) {
+        alerts.setLowBalance(threshold);
+    }
+    
+    /**
+     * Запись контрольной точки вне очереди: измененные кошельки и индекс записываются в файлы,
+     * из журнала операций удаляются учтенные в них записи
+     */
+    public void checkpoint() {
+        saveData();
+    }
+    
+    /**
+     * Завершение работы: запись контрольной точки и закрытие журнала
+     * Записи, поставленные в очередь в режиме ASYNC, сбрасываются на диск до закрытия
+     */
+    public void close() {
+        recurring.close();
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveData();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            error(() -> "Ошибка сохранения данных: " + e.getMessage());
+        }
+        notifications.close();
     }
      
     
@@ -36,288 +252,1263 @@ public class ManageService {
      * @param login логин пользователя
      * @param password пароль пользователя
      * @return true если регистрация успешна, false если пользователь уже существует
+     * @throws IllegalArgumentException если логин или пароль не указаны
      */
     public boolean register(String login, String password) {
-        if (users.containsKey(login)) {
-            return false;
+        long started = System.nanoTime();
+        try {
+            if (login == null || password == null) {
+                throw new IllegalArgumentException("Логин и пароль обязательны");
+            }
+            ReentrantLock lock = locks.lockFor(login);
+            long lsn;
+            lock.lock();
+            try {
+                // Регистрации одного логина упорядочены блокировкой его полосы
+                if (users.containsKey(login)) {
+                    return false;
+                }
+                lsn = commit(journal.newBatch().register(login, password));
+                User user = new User(login, password);
+                users.put(login, user);
+                wallets.add(user);
+                indexDirty.set(true);
+            } finally {
+                lock.unlock();
+            }
+            awaitDurable(lsn);
+            maybeCheckpoint();
+            return true;
+        } finally {
+            registerTimer.record(System.nanoTime() - started);
         }
-        users.put(login, new User(login, password));
-        saveData();
-        return true;
     }
     
     /**
      * Авторизация пользователя в системе
      * @param login логин пользователя
      * @param password пароль пользователя
-     * @return true если авторизация успешна, false если неверные данные
+     * @return новая сессия пользователя или null если неверные данные
      */
-    public boolean login(String login, String password) {
-        User user = users.get(login);
-        if (user != null && user.getPassword().equals(password)) {
-            currentUser = user;
-            return true;
+    public Session login(String login, String password) {
+        long started = System.nanoTime();
+        try {
+            if (login == null || login.isBlank()) {
+                return null;
+            }
+            User user = users.get(login);
+            if (user != null && user.getPassword().equals(password)) {
+                Session session = new Session(user);
+                sessions.put(session.getToken(), session);
+                return session;
+            }
+            return null;
+        } finally {
+            loginTimer.record(System.nanoTime() - started);
         }
-        return false;
     }
     
     /**
-     * Выход пользователя из системы с сохранением данных
+     * Выход пользователя из системы
+     * Все изменения уже записаны в журнал операций в момент их выполнения
+     * @param session сессия пользователя
      */
-    public void logout() {
-        saveData();
-        currentUser = null;
+    public void logout(Session session) {
+        if (session != null) {
+            sessions.remove(session.getToken());
+        }
     }
     
     /**
-     * Получение текущего авторизованного пользователя
-     * @return текущий пользователь или null если пользователь не авторизован
+     * Поиск активной сессии по токену
+     * @param token токен сессии
+     * @return сессия или null если сессия не найдена или завершена
      */
-    public User getCurrentUser() {
-        return currentUser;
+    public Session getSession(String token) {
+        return token == null ? null : sessions.get(token);
     }
      
     
     /**
      * Добавление дохода пользователю
+     * @param session сессия пользователя
      * @param category категория дохода
      * @param amount сумма дохода
      * @param description описание операции
      * @throws IllegalStateException если пользователь не авторизован
-     * @throws IllegalArgumentException если сумма некорректна
+     * @throws IllegalArgumentException если категория не указана или сумма некорректна
      */
-    public void addIncome(String category, double amount, String description) {
-        checkUserLoggedIn();
-        validateAmount(amount);
-        
-        Transaction transaction = new Transaction(TransactionType.INCOME, category, amount, description);
-        currentUser.getWallet().addTransaction(transaction);
-        checkAlerts();
+    public void addIncome(Session session, String category, double amount, String description) {
+        long started = System.nanoTime();
+        try {
+            addTransaction(session, TransactionType.INCOME, category, amount, description);
+        } finally {
+            incomeTimer.record(System.nanoTime() - started);
+        }
     }
     
     /**
      * Добавление расхода пользователю
+     * @param session сессия пользователя
      * @param category категория расхода
      * @param amount сумма расхода
      * @param description описание операции
      * @throws IllegalStateException если пользователь не авторизован
-     * @throws IllegalArgumentException если сумма некорректна
+     * @throws IllegalArgumentException если категория не указана или сумма некорректна
      */
-    public void addExpense(String category, double amount, String description) {
-        checkUserLoggedIn();
-        validateAmount(amount);
-        
-        Transaction transaction = new Transaction(TransactionType.EXPENSE, category, amount, description);
-        currentUser.getWallet().addTransaction(transaction);
-        checkAlerts();
+    public void addExpense(Session session, String category, double amount, String description) {
+        long started = System.nanoTime();
+        try {
+            addTransaction(session, TransactionType.EXPENSE, category, amount, description);
+        } finally {
+            expenseTimer.record(System.nanoTime() - started);
+        }
     }
     
     /**
      * Установка бюджета для категории расходов
+     * @param session сессия пользователя
      * @param category категория расходов
      * @param amount сумма бюджета
      * @throws IllegalStateException если пользователь не авторизован
-     * @throws IllegalArgumentException если сумма некорректна
+     * @throws IllegalArgumentException если категория не указана или сумма некорректна
      */
-    public void setBudget(String category, double amount) {
-        checkUserLoggedIn();
-        validateAmount(amount);
+    public void setBudget(Session session, String category, double amount) {
+        long started = System.nanoTime();
+        try {
+            User user = checkUserLoggedIn(session);
+            validateCategory(category);
+            long minor = validateAmount(amount);
         
-        currentUser.getWallet().setBudget(category, amount);
-        checkAlerts();
+            ReentrantLock lock = locks.lockFor(user.getLogin());
+            long lsn;
+            List<Alert> raised;
+            lock.lock();
+            try {
+                Wallet wallet = wallets.get(user);
+                AlertEngine.Check check = alerts.begin(user.getLogin(), wallet, category);
+                lsn = commit(journal.newBatch().budget(user.getLogin(), category, minor));
+                wallet.setBudgetMinor(category, minor);
+                wallets.markDirty(user);
+                raised = check.finish(wallet);
+            } finally {
+                lock.unlock();
+            }
+            alerts.publish(raised);
+            awaitDurable(lsn);
+            maybeCheckpoint();
+        } finally {
+            budgetTimer.record(System.nanoTime() - started);
+        }
     }
      
     /**
      * Расчет общего дохода пользователя
+     * @param session сессия пользователя
      * @return общая сумма доходов
      */
-    public double getTotalIncome() {
-        return currentUser.getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public double getTotalIncome(Session session) {
+        return read(session, Wallet::getTotalIncome);
     }
     
     /**
      * Расчет общего расхода пользователя
+     * @param session сессия пользователя
      * @return общая сумма расходов
      */
-    public double getTotalExpense() {
-        return currentUser.getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public double getTotalExpense(Session session) {
+        return read(session, Wallet::getTotalExpenses);
     }
     
     /**
      * Расчет текущего баланса пользователя
+     * @param session сессия пользователя
      * @return разница между доходами и расходами
      */
-    public double getBalance() {
-        return getTotalIncome() - getTotalExpense();
+    public double getBalance(Session session) {
+        return read(session, Wallet::getBalance);
     }
     
     /**
      * Получение доходов сгруппированных по категориям
+     * @param session сессия пользователя
      * @return Map где ключ - категория, значение - сумма доходов
      */
-    public Map<String, Double> getIncomeByCategory() {
-        return currentUser.getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .collect(Collectors.groupingBy(
-                    Transaction::getCategory,
-                    Collectors.summingDouble(Transaction::getAmount)
-                ));
+    public Map<String, Double> getIncomeByCategory(Session session) {
+        return read(session, Wallet::getIncomeByCategory);
     }
     
     /**
      * Получение расходов сгруппированных по категориям
+     * @param session сессия пользователя
      * @return Map где ключ - категория, значение - сумма расходов
      */
-    public Map<String, Double> getExpensesByCategory() {
-        return currentUser.getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .collect(Collectors.groupingBy(
-                    Transaction::getCategory,
-                    Collectors.summingDouble(Transaction::getAmount)
-                ));
+    public Map<String, Double> getExpensesByCategory(Session session) {
+        return read(session, Wallet::getExpensesByCategory);
+    }
+    
+    /**
+     * Получение сумм операций по категориям за месяц
+     * Отвечает по помесячным агрегатам кошелька, не читая сами транзакции
+     * @param session сессия пользователя
+     * @param type тип операций
+     * @param month месяц
+     * @return Map где ключ - категория, значение - сумма
+     */
+    public Map<String, Double> getCategoryTotals(Session session, TransactionType type, YearMonth month) {
+        return read(session, wallet -> wallet.getCategoryTotals(type, month));
+    }
+    
+    /**
+     * Получение сумм операций по категориям за период
+     * @param session сессия пользователя
+     * @param type тип операций
+     * @param from первый день периода (включительно)
+     * @param to последний день периода (включительно)
+     * @return Map где ключ - категория, значение - сумма
+     */
+    public Map<String, Double> getCategoryTotals(Session session, TransactionType type,
+                                                 LocalDate from, LocalDate to) {
+        return read(session, wallet -> wallet.getCategoryTotals(type, from, to));
+    }
+    
+    /**
+     * Получение суммы операций за месяц
+     * @param session сессия пользователя
+     * @param type тип операций
+     * @param month месяц
+     * @return сумма
+     */
+    public double getMonthTotal(Session session, TransactionType type, YearMonth month) {
+        return read(session, wallet -> wallet.getTotal(type, month));
+    }
+    
+    /**
+     * Получение помесячной динамики операций за последние месяцы
+     * @param session сессия пользователя
+     * @param type тип операций
+     * @param months количество месяцев, включая текущий
+     * @return суммы по месяцам в хронологическом порядке
+     */
+    public Map<YearMonth, Double> getMonthlyTrend(Session session, TransactionType type, int months) {
+        YearMonth to = YearMonth.now();
+        YearMonth from = to.minusMonths(Math.max(1, months) - 1);
+        return read(session, wallet -> wallet.getMonthlyTotals(type, from, to));
+    }
+    
+    /**
+     * Получение установленных бюджетов по категориям
+     * @param session сессия пользователя
+     * @return Map где ключ - категория, значение - сумма бюджета
+     */
+    public Map<String, Double> getBudgets(Session session) {
+        return read(session, Wallet::getBudgets);
     }
      
     
     /**
      * Перевод средств между пользователями
+     * Списание у отправителя и зачисление получателю выполняются атомарно
+     * @param session сессия отправителя
      * @param toUserLogin логин получателя
      * @param amount сумма перевода
      * @param description описание перевода
      * @return true если перевод выполнен успешно, false в случае ошибки
      */
-    public boolean transfer(String toUserLogin, double amount, String description) {
-        checkUserLoggedIn();
-        validateAmount(amount);
-        
-        User recipient = users.get(toUserLogin);
-        if (recipient == null) {
-            System.out.println("Пользователь '" + toUserLogin + "' не найден");
+    public boolean transfer(Session session, String toUserLogin, double amount, String description) {
+        if (!transferBatch(session, List.of(new TransferRequest(toUserLogin, amount, description)))) {
             return false;
         }
+        info(() -> "Перевод пользователю '" + toUserLogin + "' выполнен успешно!");
+        return true;
+    }
+    
+    /**
+     * Пакетный перевод средств от одного отправителя многим получателям
+     * Все заявки проверяются и применяются за один проход под блокировками всех затронутых
+     * полос, захваченными по возрастанию индекса, и записываются в журнал одним кадром.
+     * Пакет применяется целиком либо не применяется вовсе
+     * @param session сессия отправителя
+     * @param requests заявки на перевод
+     * @return true если все переводы выполнены, false если получатель не найден или недостаточно средств
+     * @throws IllegalStateException если пользователь не авторизован
+     * @throws IllegalArgumentException если сумма одной из заявок некорректна
+     */
+    public boolean transferBatch(Session session, List<TransferRequest> requests) {
+        long started = System.nanoTime();
+        try {
+            User sender = checkUserLoggedIn(session);
         
-        if (getBalance() < amount) {
-            System.out.println("Недостаточно средств для перевода");
-            return false;
+            List<User> recipients = new ArrayList<>(requests.size());
+            BitSet stripes = new BitSet();
+            stripes.set(locks.indexOf(sender.getLogin()));
+            long[] amounts = new long[requests.size()];
+            long total = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                TransferRequest request = requests.get(i);
+                amounts[i] = validateAmount(request.getAmount());
+                User recipient = users.get(request.getToLogin());
+                if (recipient == null) {
+                    info(() -> "Пользователь '" + request.getToLogin() + "' не найден");
+                    return false;
+                }
+                recipients.add(recipient);
+                stripes.set(locks.indexOf(recipient.getLogin()));
+                total = Money.add(total, amounts[i]);
+            }
+        
+            long lsn;
+            List<Alert> raised;
+            locks.lockAll(stripes);
+            try {
+                Wallet senderWallet = wallets.get(sender);
+                if (senderWallet.getBalanceMinor() < total) {
+                    info(() -> "Недостаточно средств для перевода");
+                    return false;
+                }
+                AlertEngine.Check check = alerts.begin(sender.getLogin(), senderWallet, TRANSFER_CATEGORY);
+            
+                // Пакет целиком записывается в журнал до изменения кошельков
+                Transaction[] outgoing = new Transaction[requests.size()];
+                Transaction[] incoming = new Transaction[requests.size()];
+                TransactionJournal.Batch batch = journal.newBatch();
+                for (int i = 0; i < requests.size(); i++) {
+                    String description = normalizeDescription(requests.get(i).getDescription());
+                    User recipient = recipients.get(i);
+                    LocalDateTime now = LocalDateTime.now();
+                    outgoing[i] = new Transaction(TransactionIds.next(), TransactionType.EXPENSE, TRANSFER_CATEGORY,
+                            amounts[i], TRANSFER_TO_PREFIX + recipient.getLogin() + " - " + description, now);
+                    incoming[i] = new Transaction(TransactionIds.next(), TransactionType.INCOME, TRANSFER_CATEGORY,
+                            amounts[i], "Перевод от: " + sender.getLogin() + " - " + description, now);
+                    batch.transaction(sender.getLogin(), outgoing[i])
+                         .transaction(recipient.getLogin(), incoming[i]);
+                }
+                lsn = commit(batch);
+                for (int i = 0; i < requests.size(); i++) {
+                    User recipient = recipients.get(i);
+                    senderWallet.addTransaction(outgoing[i]);
+                    wallets.get(recipient).addTransaction(incoming[i]);
+                    wallets.markDirty(recipient);
+                }
+                wallets.markDirty(sender);
+                raised = check.finish(senderWallet);
+            } finally {
+                locks.unlockAll(stripes);
+            }
+            alerts.publish(raised);
+            awaitDurable(lsn);
+            maybeCheckpoint();
+            return true;
+        } finally {
+            transferTimer.record(System.nanoTime() - started);
         }
+    }
+    
+    /**
+     * Импорт банковской выписки в формате CSV
+     * Файл читается потоково; транзакции сохраняют даты из выписки и добавляются пакетами,
+     * каждый пакет записывается в журнал одним кадром. Оповещения по отдельным строкам не создаются:
+     * баланс проверяется один раз по итогам импорта
+     * @param session сессия пользователя
+     * @param file путь к файлу выписки
+     * @return количество импортированных и пропущенных строк
+     * @throws IOException если файл не удалось прочитать или у него нет нужных колонок
+     * @throws IllegalStateException если пользователь не авторизован
+     */
+    public ImportResult importStatement(Session session, Path file) throws IOException {
+        long started = System.nanoTime();
+        try {
+            User user = checkUserLoggedIn(session);
+            ReentrantLock lock = locks.lockFor(user.getLogin());
         
-        this.addExpense("Перевод", amount, "Перевод пользователю: " + toUserLogin + " - " + description);
-        recipient.getWallet().addTransaction(
-            new Transaction(TransactionType.INCOME, "Перевод", amount, 
-                           "Перевод от: " + currentUser.getLogin() + " - " + description)
-        );
+            AlertEngine.Check check;
+            lock.lock();
+            try {
+                check = alerts.begin(user.getLogin(), wallets.get(user), null);
+            } finally {
+                lock.unlock();
+            }
         
-        saveData();
-        System.out.println("Перевод пользователю '" + toUserLogin + "' выполнен успешно!");
-        return true;
+            int imported = 0;
+            long lsn = 0;
+            List<Transaction> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            ImportResult result;
+            try (CsvStatementReader reader = CsvStatementReader.open(file)) {
+                Transaction transaction;
+                while ((transaction = reader.next()) != null) {
+                    batch.add(transaction);
+                    if (batch.size() == IMPORT_BATCH_SIZE) {
+                        lsn = importBatch(user, batch);
+                        imported += batch.size();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    lsn = importBatch(user, batch);
+                    imported += batch.size();
+                }
+                result = new ImportResult(imported, reader.getSkippedCount(), reader.getErrors());
+            }
+        
+            List<Alert> raised;
+            lock.lock();
+            try {
+                raised = check.finish(wallets.get(user));
+            } finally {
+                lock.unlock();
+            }
+            alerts.publish(raised);
+            awaitDurable(lsn);
+            maybeCheckpoint();
+            return result;
+        } finally {
+            importTimer.record(System.nanoTime() - started);
+        }
+    }
+    
+    /**
+     * Экспорт всех транзакций пользователя в файл
+     * Строки пишутся потоково, без построения списка транзакций в памяти.
+     * Экспортируется снимок кошелька на момент вызова: блокировка полосы держится только
+     * на время создания снимка, изменения во время записи файла не ждут ее окончания
+     * @param session сессия пользователя
+     * @param file путь к файлу; существующий файл перезаписывается
+     * @param format формат файла
+     * @return количество экспортированных транзакций
+     * @throws IOException при ошибке записи
+     * @throws IllegalStateException если пользователь не авторизован
+     */
+    public long exportTransactions(Session session, Path file, ExportFormat format) throws IOException {
+        TransactionView transactions = read(session, Wallet::view);
+        try (FileChannel channel = openExportFile(file)) {
+            return TransactionExporter.writeTransactions(transactions, channel, format);
+        }
+    }
+    
+    /**
+     * Экспорт сумм доходов, расходов и бюджетов по категориям пользователя в файл
+     * @param session сессия пользователя
+     * @param file путь к файлу; существующий файл перезаписывается
+     * @param format формат файла
+     * @return количество экспортированных категорий
+     * @throws IOException при ошибке записи
+     * @throws IllegalStateException если пользователь не авторизован
+     */
+    public long exportCategoryTotals(Session session, Path file, ExportFormat format) throws IOException {
+        return export(session, file, (wallet, channel) ->
+                TransactionExporter.writeCategoryTotals(wallet, channel, format));
     }
     
     /**
      * Получение последних транзакций пользователя
+     * @param session сессия пользователя
      * @param count количество транзакций для возврата
      * @return список последних транзакций отсортированных по дате (сначала новые)
      */
-    public List<Transaction> getRecentTransactions(int count) {
-        return currentUser.getWallet().getTransactions().stream()
-                .sorted((t1, t2) -> t2.getDate().compareTo(t1.getDate()))
-                .limit(count)
-                .collect(Collectors.toList());
+    public List<Transaction> getRecentTransactions(Session session, int count) {
+        return read(session, wallet -> wallet.getRecentTransactions(count));
     }
-     
+    
+    /**
+     * Поиск транзакций пользователя по словам описания и названия категории
+     * @param session сессия пользователя
+     * @param query слова запроса; каждое должно быть началом слова описания или категории, регистр не учитывается
+     * @param type тип операции или null для любого типа
+     * @param from начало периода (включительно) или null
+     * @param to конец периода (не включительно) или null
+     * @param limit наибольшее количество транзакций
+     * @return найденные транзакции, начиная с добавленной последней
+     */
+    public List<Transaction> searchTransactions(Session session, String query, TransactionType type,
+                                                LocalDateTime from, LocalDateTime to, int limit) {
+        return read(session, wallet -> wallet.search(query, type, from, to, limit));
+    }
+    
+    /**
+     * Получение транзакций пользователя за период
+     * @param session сессия пользователя
+     * @param from начало периода (включительно)
+     * @param to конец периода (не включительно)
+     * @return список транзакций в хронологическом порядке
+     */
+    public List<Transaction> getTransactionsBetween(Session session, LocalDateTime from, LocalDateTime to) {
+        return read(session, wallet -> wallet.getTransactionsBetween(from, to));
+    }
+    
+    /**
+     * Поиск транзакции пользователя по идентификатору
+     * @param session сессия пользователя
+     * @param id идентификатор транзакции
+     * @return транзакция или null если она не найдена
+     */
+    public Transaction getTransaction(Session session, long id) {
+        return read(session, wallet -> wallet.getTransaction(id));
+    }
+    
+    /**
+     * Удаление транзакции пользователя по идентификатору
+     * @param session сессия пользователя
+     * @param id идентификатор транзакции
+     * @return true если транзакция найдена и удалена
+     * @throws IllegalStateException если пользователь не авторизован
+     */
+    public boolean removeTransaction(Session session, long id) {
+        User user = checkUserLoggedIn(session);
+        
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        long lsn;
+        List<Alert> raised;
+        lock.lock();
+        try {
+            Wallet wallet = wallets.get(user);
+            Transaction transaction = wallet.getTransaction(id);
+            if (transaction == null) {
+                return false;
+            }
+            AlertEngine.Check check = alerts.begin(user.getLogin(), wallet, transaction.getCategory());
+            lsn = commit(journal.newBatch().remove(user.getLogin(), id));
+            wallet.removeTransaction(id);
+            wallets.markDirty(user);
+            raised = check.finish(wallet);
+        } finally {
+            lock.unlock();
+        }
+        alerts.publish(raised);
+        awaitDurable(lsn);
+        maybeCheckpoint();
+        return true;
+    }
+    
     /**
-     * Проверка всех типов оповещений
+     * Добавление правила регулярной операции
+     * Операции по правилу создает планировщик в сроки повторений. Если начало правила в прошлом,
+     * пропущенные повторения создаются сразу, с датами их сроков
+     * @param session сессия пользователя
+     * @param type тип операций
+     * @param category категория операций
+     * @param amount сумма операции
+     * @param description описание операций
+     * @param frequency единица периода повторения
+     * @param interval число единиц периода между повторениями
+     * @param start срок первого повторения
+     * @param until последний допустимый срок повторения (включительно) или null без ограничения
+     * @return идентификатор правила
+     * @throws IllegalStateException если пользователь не авторизован
+     * @throws IllegalArgumentException если категория не указана, сумма или период некорректны
      */
-    private void checkAlerts() {
-        checkBudgetAlerts();
-        checkBalanceAlert();
+    public long addRecurringRule(Session session, TransactionType type, String category, double amount,
+                                 String description, RecurringRule.Frequency frequency, int interval,
+                                 LocalDateTime start, LocalDateTime until) {
+        User user = checkUserLoggedIn(session);
+        validateCategory(category);
+        RecurringRule rule = new RecurringRule(TransactionIds.next(), type, category, validateAmount(amount),
+                description, frequency, interval, start, until, 0);
+        
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        long lsn;
+        lock.lock();
+        try {
+            Wallet wallet = wallets.get(user);
+            lsn = commit(journal.newBatch().recurringRule(user.getLogin(), rule));
+            wallet.putRecurringRule(rule);
+            wallets.markDirty(user);
+            reschedule(user, wallet);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(lsn);
+        maybeCheckpoint();
+        return rule.getId();
     }
     
     /**
-     * Проверка превышения бюджетов по категориям
+     * Удаление правила регулярной операции; созданные по нему операции остаются
+     * @param session сессия пользователя
+     * @param id идентификатор правила
+     * @return true если правило найдено и удалено
+     * @throws IllegalStateException если пользователь не авторизован
      */
-    private void checkBudgetAlerts() {
-        Map<String, Double> budgets = currentUser.getWallet().getBudgets();
-        Map<String, Double> expenses = getExpensesByCategory();
+    public boolean removeRecurringRule(Session session, long id) {
+        User user = checkUserLoggedIn(session);
         
-        for (Map.Entry<String, Double> budgetEntry : budgets.entrySet()) {
-            String category = budgetEntry.getKey();
-            double budget = budgetEntry.getValue();
-            double spent = expenses.getOrDefault(category, 0.0);
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        long lsn;
+        lock.lock();
+        try {
+            Wallet wallet = wallets.get(user);
+            if (wallet.getRecurringRule(id) == null) {
+                return false;
+            }
+            lsn = commit(journal.newBatch().removeRecurringRule(user.getLogin(), id));
+            wallet.removeRecurringRule(id);
+            wallets.markDirty(user);
+            reschedule(user, wallet);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(lsn);
+        maybeCheckpoint();
+        return true;
+    }
+    
+    /**
+     * Правила регулярных операций пользователя
+     * @param session сессия пользователя
+     * @return правила в порядке добавления
+     */
+    public List<RecurringRule> getRecurringRules(Session session) {
+        return read(session, Wallet::getRecurringRules);
+    }
+    
+    /**
+     * Создание операций по всем наступившим срокам регулярных правил всех пользователей
+     * Вызывается планировщиком; вызов вне очереди полезен после долгого простоя или в пакетном режиме.
+     * Пользователи берутся из очереди по сроку пакетами: каждый пакет применяется под блокировками
+     * затронутых полос, записывается в журнал одним кадром и проверяется на оповещения один раз
+     * на кошелек. Пропущенные за время простоя повторения создаются в тех же пакетах
+     * @return количество созданных операций
+     */
+    public long fireRecurring() {
+        long fired = 0;
+        LocalDateTime now = LocalDateTime.now();
+        List<String> due;
+        while (!(due = recurring.pollDue(now, RECURRING_BATCH_USERS)).isEmpty()) {
+            fired += fireRecurringBatch(due, now);
+        }
+        return fired;
+    }
+    
+    /**
+     * Операции пакета регулярных операций одного кошелька, подготовленные до изменения кошелька
+     */
+    private record RecurringPlan(User user, Wallet wallet, AlertEngine.Check check, List<RecurringRule> advanced,
+                                 List<Transaction> created) { }
+    
+    /**
+     * Один пакет регулярных операций
+     * Кошельки сначала загружаются в кэш, каждый под блокировкой только своей полосы, чтобы чтение
+     * файлов не задерживало пользователей других полос. Затем под блокировками всех затронутых полос
+     * операции готовятся без изменения кошельков, записываются в журнал одним кадром и только после
+     * этого применяются. Пользователи, не поместившиеся в пакет по числу операций, возвращаются
+     * в очередь с прежним сроком; при ошибке в очередь возвращаются все еще не поставленные пользователи
+     * @param logins пользователи с наступившим сроком
+     * @param now момент, по который выполняются повторения
+     * @return количество созданных операций
+     */
+    private long fireRecurringBatch(List<String> logins, LocalDateTime now) {
+        long started = System.nanoTime();
+        Set<String> pending = new HashSet<>(logins);
+        try {
+            List<User> owners = new ArrayList<>(logins.size());
+            BitSet stripes = new BitSet();
+            for (String login : logins) {
+                User user = users.get(login);
+                if (user == null) {
+                    pending.remove(login);
+                    continue;
+                }
+                ReentrantLock lock = locks.lockFor(login);
+                lock.lock();
+                try {
+                    wallets.get(user);
+                    owners.add(user);
+                    stripes.set(locks.indexOf(login));
+                } catch (UncheckedIOException e) {
+                    error(() -> "Ошибка загрузки кошелька " + login + ": " + e.getMessage());
+                    recurring.schedule(login, now.plusMinutes(RECURRING_RETRY_MINUTES));
+                    pending.remove(login);
+                } finally {
+                    lock.unlock();
+                }
+            }
             
-            if (spent > budget) {
-                System.out.println("ПРЕДУПРЕЖДЕНИЕ: Превышен бюджет по категории '" + category + 
-                                 "'! Бюджет: " + budget + ", Потрачено: " + spent);
-            } else if (spent > budget * 0.8) {
-                System.out.println("ВНИМАНИЕ: Бюджет по категории '" + category + 
-                                 "' почти исчерпан! Бюджет: " + budget + ", Потрачено: " + spent);
+            int fired = 0;
+            long lsn;
+            List<Alert> raised = new ArrayList<>();
+            locks.lockAll(stripes);
+            try {
+                TransactionJournal.Batch batch = journal.newBatch();
+                List<RecurringPlan> plans = new ArrayList<>();
+                for (User user : owners) {
+                    if (fired >= RECURRING_BATCH_SIZE) {
+                        recurring.schedule(user.getLogin(), user.getRecurringDue());
+                        pending.remove(user.getLogin());
+                        continue;
+                    }
+                    // Кошелек загружен выше; если его успели вытеснить, он загружается повторно
+                    Wallet wallet;
+                    try {
+                        wallet = wallets.get(user);
+                    } catch (UncheckedIOException e) {
+                        error(() -> "Ошибка загрузки кошелька " + user.getLogin() + ": " + e.getMessage());
+                        recurring.schedule(user.getLogin(), now.plusMinutes(RECURRING_RETRY_MINUTES));
+                        pending.remove(user.getLogin());
+                        continue;
+                    }
+                    Set<String> categories = new HashSet<>();
+                    for (RecurringRule rule : wallet.getRecurringRules()) {
+                        LocalDateTime next = rule.getNextFire();
+                        if (next != null && !next.isAfter(now) && rule.getType() == TransactionType.EXPENSE) {
+                            categories.add(rule.getCategory());
+                        }
+                    }
+                    AlertEngine.Check check = alerts.beginAll(user.getLogin(), wallet, categories);
+                    List<Transaction> created = new ArrayList<>();
+                    List<RecurringRule> advanced = wallet.planRecurring(now, RECURRING_BATCH_SIZE - fired, created);
+                    for (Transaction transaction : created) {
+                        batch.transaction(user.getLogin(), transaction);
+                    }
+                    for (RecurringRule rule : advanced) {
+                        batch.recurringRule(user.getLogin(), rule);
+                    }
+                    plans.add(new RecurringPlan(user, wallet, check, advanced, created));
+                    fired += created.size();
+                }
+                lsn = commit(batch);
+                
+                for (RecurringPlan plan : plans) {
+                    if (!plan.advanced().isEmpty()) {
+                        plan.wallet().applyRecurring(plan.advanced(), plan.created());
+                        wallets.markDirty(plan.user());
+                        raised.addAll(plan.check().finish(plan.wallet()));
+                    }
+                    reschedule(plan.user(), plan.wallet());
+                    pending.remove(plan.user().getLogin());
+                }
+            } finally {
+                locks.unlockAll(stripes);
+            }
+            alerts.publish(raised);
+            recurringFired.add(fired);
+            recurringTimer.record(System.nanoTime() - started);
+            awaitDurable(lsn);
+            maybeCheckpoint();
+            return fired;
+        } finally {
+            // Извлеченные из очереди пользователи, которые не были поставлены заново из-за ошибки;
+            // прежний срок не позже действительного, поэтому повторения не будут пропущены
+            for (String login : pending) {
+                User user = users.get(login);
+                if (user != null && user.getRecurringDue() != null) {
+                    recurring.schedule(login, user.getRecurringDue());
+                }
             }
         }
     }
     
     /**
-     * Проверка состояния баланса пользователя
+     * Постановка пользователя в очередь планировщика по ближайшему сроку правил его кошелька
+     * Вызывается под блокировкой полосы пользователя. Индекс учетных записей перезаписывается,
+     * только если срок стал раньше: более поздний срок в файле индекса был бы пропущен после перезапуска
      */
-    private void checkBalanceAlert() {
-        double balance = getBalance();
-        if (balance < 0) {
-            System.out.println("КРИТИЧЕСКОЕ ПРЕДУПРЕЖДЕНИЕ: Отрицательный баланс! Баланс: " + balance);
-        } else if (balance < 1000) {
-            System.out.println("ВНИМАНИЕ: Низкий баланс! Баланс: " + balance);
+    private void reschedule(User user, Wallet wallet) {
+        LocalDateTime due = wallet.getNextRecurringFire();
+        LocalDateTime previous = user.getRecurringDue();
+        user.setRecurringDue(due);
+        if (due != null && (previous == null || due.isBefore(previous))) {
+            indexDirty.set(true);
         }
+        recurring.schedule(user.getLogin(), due);
+    }
+    
+    /**
+     * Добавление транзакции в кошелек пользователя под блокировкой его полосы
+     */
+    private void addTransaction(Session session, TransactionType type, String category,
+                                double amount, String description) {
+        User user = checkUserLoggedIn(session);
+        validateCategory(category);
+        long minor = validateAmount(amount);
+        
+        Transaction transaction = new Transaction(TransactionIds.next(), type, category, minor,
+                normalizeDescription(description), LocalDateTime.now());
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        long lsn;
+        List<Alert> raised;
+        lock.lock();
+        try {
+            Wallet wallet = wallets.get(user);
+            AlertEngine.Check check = alerts.begin(user.getLogin(), wallet, category);
+            lsn = commit(journal.newBatch().transaction(user.getLogin(), transaction));
+            wallet.addTransaction(transaction);
+            wallets.markDirty(user);
+            raised = check.finish(wallet);
+        } finally {
+            lock.unlock();
+        }
+        alerts.publish(raised);
+        awaitDurable(lsn);
+        maybeCheckpoint();
     }
-     
     
+    /**
+     * Добавление пакета импортированных транзакций под блокировкой полосы пользователя
+     * @return LSN последней записи пакета в журнале
+     */
+    private long importBatch(User user, List<Transaction> batch) {
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        lock.lock();
+        try {
+            Wallet wallet = wallets.get(user);
+            TransactionJournal.Batch entry = journal.newBatch();
+            for (Transaction transaction : batch) {
+                entry.transaction(user.getLogin(), transaction);
+            }
+            long lsn = commit(entry);
+            wallet.addTransactions(batch);
+            wallets.markDirty(user);
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Запись кошелька в файл экспорта
+     */
+    @FunctionalInterface
+    private interface WalletExport {
+        long write(Wallet wallet, FileChannel channel) throws IOException;
+    }
+    
+    /**
+     * Экспорт кошелька пользователя в файл под блокировкой его полосы
+     */
+    private long export(Session session, Path file, WalletExport export) throws IOException {
+        User user = checkUserLoggedIn(session);
+        try (FileChannel channel = openExportFile(file)) {
+            ReentrantLock lock = locks.lockFor(user.getLogin());
+            lock.lock();
+            try {
+                return export.write(wallets.get(user), channel);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Сводный отчет оператора по всем пользователям: обороты по категориям, распределение балансов,
+     * пользователи с наибольшими расходами и переводы между пользователями
+     * Кошельки обходятся параллельно в отдельном пуле fork-join; у каждого потока свой накопитель,
+     * накопители сливаются в конце. Загруженный кошелек читается по снимку, который берется под
+     * блокировкой его полосы за время, не зависящее от числа транзакций; остальные кошельки читаются
+     * из файлов в обход кэша. Поэтому отчет не задерживает операции пользователей и не вытесняет
+     * из кэша их кошельки. Отчет не является единым срезом: операции во время обхода могут войти
+     * в него для одних пользователей и не войти для других
+     * @param top количество позиций в рейтингах расходов и переводов
+     * @return отчет
+     */
+    public OperatorReport buildOperatorReport(int top) {
+        long started = System.nanoTime();
+        List<User> all = new ArrayList<>(users.values());
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            ReportAccumulator total = pool.submit(() -> all.parallelStream().collect(
+                    () -> new ReportAccumulator(top, TRANSFER_CATEGORY, TRANSFER_TO_PREFIX),
+                    (accumulator, user) -> accumulator.add(user.getLogin(), reportView(user)),
+                    ReportAccumulator::merge)).get();
+            return total.toReport();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Построение отчета прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+            reportTimer.record(System.nanoTime() - started);
+        }
+    }
+    
+    /**
+     * Снимок транзакций пользователя для отчета без загрузки кошелька в кэш
+     */
+    private TransactionView reportView(User user) {
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        lock.lock();
+        try {
+            // Под блокировкой полосы кошелек не меняется. Вытеснение может выгрузить его в любой момент,
+            // но сначала записывает его файл, поэтому при null читается актуальный файл
+            Wallet resident = user.getWallet();
+            if (resident != null) {
+                return resident.view();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            // Файл вытесненного кошелька актуален и заменяется атомарно, поэтому читается без блокировки
+            UserStore.StoredWallet stored = store.loadWallet(user.getLogin());
+            return stored != null ? stored.getWallet().view() : new Wallet().view();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать кошелек пользователя " + user.getLogin(), e);
+        }
+    }
+    
+    /**
+     * Сообщение о результате операции или состоянии данных; текст формируется при доставке
+     */
+    private void info(Supplier<String> message) {
+        notifications.publish(NotificationSink.Level.INFO, message);
+    }
+    
+    private void error(Supplier<String> message) {
+        notifications.publish(NotificationSink.Level.ERROR, message);
+    }
+    
+    private static FileChannel openExportFile(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Чтение данных кошелька пользователя под блокировкой его полосы
+     */
+    private <T> T read(Session session, Function<Wallet, T> reader) {
+        User user = checkUserLoggedIn(session);
+        ReentrantLock lock = locks.lockFor(user.getLogin());
+        lock.lock();
+        try {
+            return reader.apply(wallets.get(user));
+        } finally {
+            lock.unlock();
+        }
+    }
+     
     /**
      * Проверка авторизации пользователя
+     * @param session сессия пользователя
+     * @return пользователь сессии
      * @throws IllegalStateException если пользователь не авторизован
      */
-    private void checkUserLoggedIn() {
-        if (currentUser == null) {
+    private User checkUserLoggedIn(Session session) {
+        if (session == null || !sessions.containsKey(session.getToken())) {
             throw new IllegalStateException("Пользователь не авторизован");
         }
+        return session.getUser();
     }
     
     /**
      * Валидация суммы операции
      * @param amount сумма для проверки
+     * @return сумма в минимальных единицах, округленная до копейки
      * @throws IllegalArgumentException если сумма некорректна
      */
-    private void validateAmount(double amount) {
-        if (amount <= 0) {
+    private long validateAmount(double amount) {
+        long minor = Money.ofMajor(amount);
+        if (minor <= 0) {
             throw new IllegalArgumentException("Сумма должна быть положительной");
         }
+        return minor;
+    }
+    
+    /**
+     * Проверка категории операции
+     * Проверяется до изменения кошелька: запись без категории не попадает ни в память, ни в журнал
+     * @param category категория
+     * @throws IllegalArgumentException если категория не указана
+     */
+    private void validateCategory(String category) {
+        if (category == null) {
+            throw new IllegalArgumentException("Категория не указана");
+        }
+    }
+    
+    /**
+     * Описание операции; отсутствующее описание хранится пустой строкой
+     */
+    private static String normalizeDescription(String description) {
+        return description == null ? "" : description;
     }
      
     
     /**
-     * Загрузка данных пользователей из файла
+     * Постановка пакета операций в очередь записи журнала
+     * Вызывается под блокировками до изменения кошельков, поэтому не ждет сброса на диск.
+     * Если пакет не принят журналом, операция прерывается, не изменив данные в памяти
+     * @param batch пакет записей журнала
+     * @return LSN последней записи пакета
+     * @throws UncheckedIOException если журнал закрыт или предыдущая запись завершилась ошибкой
+     */
+    private long commit(TransactionJournal.Batch batch) {
+        try {
+            return batch.append();
+        } catch (IOException e) {
+            error(() -> "Ошибка сохранения данных: " + e.getMessage());
+            throw new UncheckedIOException("Не удалось записать операцию в журнал", e);
+        }
+    }
+    
+    /**
+     * Ожидание сброса записи журнала на диск в режиме DURABLE
+     * Вызывается после освобождения блокировок, чтобы другие операции могли попасть в ту же группу записи
+     * @param lsn LSN последней записи операции
+     * @throws UncheckedIOException в режиме DURABLE, если запись не сброшена на диск
+     */
+    private void awaitDurable(long lsn) {
+        if (durability != Durability.DURABLE || lsn == 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(lsn);
+        } catch (IOException e) {
+            error(() -> "Ошибка сохранения данных: " + e.getMessage());
+            throw new UncheckedIOException("Операция не сохранена на диск", e);
+        }
+    }
+    
+    /**
+     * Планирование контрольной точки при накоплении достаточного числа записей в журнале
+     * Контрольная точка записывается в фоновом потоке; одновременно запланировано не более одной
+     */
+    private void maybeCheckpoint() {
+        if (journal.getRecordCount() < CHECKPOINT_INTERVAL || !checkpointScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            checkpointer.execute(() -> {
+                try {
+                    if (journal.getRecordCount() >= CHECKPOINT_INTERVAL) {
+                        saveData();
+                    }
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            checkpointScheduled.set(false);
+        }
+    }
+    
+    /**
+     * Регистрация метрик журнала и кэша кошельков
+     */
+    private void registerStorageMetrics() {
+        LatencyHistogram flushTimer = metrics.timer("journal.flush");
+        LongAdder flushBytes = metrics.counter("journal.flush.bytes");
+        LongAdder flushRecords = metrics.counter("journal.flush.records");
+        journal.setFlushListener((records, bytes, nanos) -> {
+            flushTimer.record(nanos);
+            flushBytes.add(bytes);
+            flushRecords.add(records);
+        });
+        metrics.gauge("wallet.cache.hits", wallets::getHits);
+        metrics.gauge("wallet.cache.misses", wallets::getMisses);
+        metrics.gauge("wallet.cache.hit.percent", () -> {
+            long hits = wallets.getHits();
+            long total = hits + wallets.getMisses();
+            return total == 0 ? 0 : hits * 100 / total;
+        });
+        metrics.gauge("wallet.cache.evictions", wallets::getEvictions);
+        metrics.gauge("wallet.cache.resident", wallets::size);
+        metrics.gauge("wallet.cache.weight", wallets::getWeight);
+        metrics.gauge("wallet.write.bytes", wallets::getBytesWritten);
+        metrics.gauge("users", users::size);
+        metrics.gauge("recurring.scheduled", recurring::size);
+        metrics.gauge("notifications.pending", notifications::getPending);
+        metrics.gauge("notifications.dropped", notifications::getDropped);
+        metrics.gauge("sessions", sessions::size);
+    }
+    
+    /**
+     * Загрузка данных: индекс учетных записей и хвост журнала операций
+     * Полный снимок прежнего формата однократно разбивается на файлы пользователей.
+     * При восстановлении загружаются только кошельки, упомянутые в журнале
      */
-    @SuppressWarnings("unchecked")
     private void loadData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-            users = (Map<String, User>) ois.readObject();
-            System.out.println("Данные успешно загружены");
-        } catch (FileNotFoundException e) {
-            System.out.println("Файл данных не найден, создается новый...");
-        } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Ошибка загрузки данных: " + e.getMessage());
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path legacy = directory.resolve(LEGACY_DATA_FILE);
+        long indexLsn = 0;
+        try {
+            if (!store.hasIndex()) {
+                if (Files.notExists(snapshot) && Files.exists(legacy)) {
+                    LegacySnapshotMigrator.migrate(legacy, snapshot);
+                }
+                if (Files.exists(snapshot)) {
+                    int migrated = store.importSnapshot(snapshot);
+                    info(() -> "Данные перенесены в новый формат хранения, пользователей: " + migrated);
+                }
+            }
+            if (store.hasIndex()) {
+                indexLsn = store.loadIndex(users);
+                info(() -> "Данные успешно загружены");
+            } else {
+                info(() -> "Файл данных не найден, создается новый...");
+            }
+        } catch (IOException e) {
+            error(() -> "Ошибка загрузки данных: " + e.getMessage());
+        }
+        
+        // Записи не новее индекса учтены контрольной точкой, на которой он записан; номер последней
+        // записи журнала продолжает нумерацию с кадра-метки, оставленного очисткой журнала
+        long registeredLsn = indexLsn;
+        wallets.beginReplay();
+        try {
+            int applied = journal.replay(indexLsn, new TransactionJournal.Handler() {
+                @Override
+                public void onRegister(long lsn, String login, String password) {
+                    if (lsn > registeredLsn) {
+                        User user = new User(login, password);
+                        if (users.putIfAbsent(login, user) == null) {
+                            wallets.add(user);
+                            indexDirty.set(true);
+                        }
+                    }
+                }
+                
+                @Override
+                public void onTransaction(long lsn, String login, Transaction transaction) {
+                    User user = users.get(login);
+                    if (user != null) {
+                        Wallet wallet = wallets.get(user);
+                        if (lsn > wallets.storedLsn(user)) {
+                            wallet.addTransaction(transaction);
+                            wallets.markDirty(user);
+                        }
+                    }
+                }
+                
+                @Override
+                public void onBudget(long lsn, String login, String category, long amount) {
+                    User user = users.get(login);
+                    if (user != null) {
+                        Wallet wallet = wallets.get(user);
+                        if (lsn > wallets.storedLsn(user)) {
+                            wallet.setBudgetMinor(category, amount);
+                            wallets.markDirty(user);
+                        }
+                    }
+                }
+                
+                @Override
+                public void onRemove(long lsn, String login, long id) {
+                    User user = users.get(login);
+                    if (user != null) {
+                        Wallet wallet = wallets.get(user);
+                        if (lsn > wallets.storedLsn(user)) {
+                            wallet.removeTransaction(id);
+                            wallets.markDirty(user);
+                        }
+                    }
+                }
+                
+                @Override
+                public void onRecurringRule(long lsn, String login, RecurringRule rule) {
+                    User user = users.get(login);
+                    if (user != null) {
+                        Wallet wallet = wallets.get(user);
+                        if (lsn > wallets.storedLsn(user)) {
+                            wallet.putRecurringRule(rule);
+                            wallets.markDirty(user);
+                            reschedule(user, wallet);
+                        }
+                    }
+                }
+                
+                @Override
+                public void onRemoveRecurringRule(long lsn, String login, long id) {
+                    User user = users.get(login);
+                    if (user != null) {
+                        Wallet wallet = wallets.get(user);
+                        if (lsn > wallets.storedLsn(user)) {
+                            wallet.removeRecurringRule(id);
+                            wallets.markDirty(user);
+                            reschedule(user, wallet);
+                        }
+                    }
+                }
+            });
+            if (applied > 0) {
+                info(() -> "Восстановлено операций из журнала: " + applied);
+            }
+        } catch (IOException e) {
+            error(() -> "Ошибка чтения журнала операций: " + e.getMessage());
+        } finally {
+            wallets.endReplay();
+        }
+        
+        // Сроки из индекса могут быть раньше действительных: такой кошелек один раз
+        // загрузится планировщиком и получит точный срок
+        for (User user : users.values()) {
+            if (user.getRecurringDue() != null) {
+                recurring.schedule(user.getLogin(), user.getRecurringDue());
+            }
         }
     }
     
     /**
-     * Сохранение данных пользователей в файл
+     * Запись контрольной точки: измененные кошельки и, при регистрации новых пользователей, индекс
+     * Полосы захватываются по одной и только на время копирования измененных кошельков в память;
+     * файлы пишутся после освобождения полосы, поэтому операции пользователей не ждут диска.
+     * Первый проход по полосам дожидается применения всех записей журнала до номера контрольной
+     * точки, второй снимает копии. Каждый файл пишется во временный файл и атомарно заменяет
+     * предыдущий, после чего из журнала удаляются кадры, учтенные контрольной точкой
      */
     private void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(users);
-            System.out.println("Данные успешно сохранены");
-        } catch (IOException e) {
-            System.out.println("Ошибка сохранения данных: " + e.getMessage());
+        long started = System.nanoTime();
+        checkpointLock.lock();
+        try {
+            long lsn = journal.getLastLsn();
+            // Записи выдаются под блокировкой полосы и применяются под ней же: после прохода
+            // по всем полосам записи до lsn применены к кошелькам и отмечены в кэше
+            for (int stripe = 0; stripe < locks.size(); stripe++) {
+                locks.get(stripe).lock();
+                locks.get(stripe).unlock();
+            }
+            
+            List<List<User>> dirty = new ArrayList<>(locks.size());
+            for (int stripe = 0; stripe < locks.size(); stripe++) {
+                dirty.add(new ArrayList<>());
+            }
+            for (User user : wallets.dirtyUsers()) {
+                dirty.get(locks.indexOf(user.getLogin())).add(user);
+            }
+            long bytes = 0;
+            for (int stripe = 0; stripe < locks.size(); stripe++) {
+                if (dirty.get(stripe).isEmpty()) {
+                    continue;
+                }
+                List<WalletCache.Snapshot> snapshots = new ArrayList<>();
+                long snapshotLsn = 0;
+                ReentrantLock lock = locks.get(stripe);
+                try {
+                    lock.lock();
+                    try {
+                        for (User user : dirty.get(stripe)) {
+                            WalletCache.Snapshot snapshot = wallets.snapshot(user);
+                            if (snapshot != null) {
+                                snapshots.add(snapshot);
+                                snapshotLsn = Math.max(snapshotLsn, snapshot.getLsn());
+                            }
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    // Файл кошелька не должен опережать журнал
+                    journal.awaitDurable(snapshotLsn);
+                } catch (IOException | RuntimeException e) {
+                    wallets.abort(snapshots);
+                    throw e;
+                }
+                bytes += wallets.write(snapshots);
+            }
+            
+            if (indexDirty.getAndSet(false)) {
+                bytes += store.saveIndex(users.values(), lsn);
+            }
+            journal.truncateThrough(lsn);
+            checkpointBytes.add(bytes);
+            checkpointTimer.record(System.nanoTime() - started);
+            info(() -> "Данные успешно сохранены");
+        } catch (IOException | RuntimeException e) {
+            // Ошибка не должна выходить из задачи: исполнитель контрольных точек перестал бы их выполнять
+            indexDirty.set(true);
+            error(() -> "Ошибка сохранения данных: " + e);
+        } finally {
+            checkpointLock.unlock();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package finance.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Получатель сообщений сервиса: оповещений, сообщений о результате операций и ошибок хранилища
+ * Текст передается поставщиком и формируется только получателем, поэтому отправитель
+ * не тратит время на сборку строки, если сообщение будет отброшено или выведено позже
+ */
+@FunctionalInterface
+public interface NotificationSink {
+    /**
+     * Вид сообщения
+     */
+    enum Level {
+        /** Результат операции или сведения о загрузке и сохранении данных */
+        INFO,
+        /** Оповещение о бюджете или балансе */
+        ALERT,
+        /** Ошибка хранилища */
+        ERROR
+    }
+
+    void publish(Level level, Supplier<String> message);
+}
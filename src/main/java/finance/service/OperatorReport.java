@@ -0,0 +1,166 @@
+package finance.service;
+
+import java.util.List;
+
+/**
+ * Сводный отчет оператора по всем пользователям
+ * Суммы в основных единицах валюты
+ */
+public final class OperatorReport {
+    private final long users;
+    private final double totalBalance;
+    private final double minBalance;
+    private final double maxBalance;
+    private final List<CategoryFlow> categories;
+    private final List<BalanceBucket> balances;
+    private final List<Spender> topSpenders;
+    private final double transferVolume;
+    private final long transferCount;
+    private final List<TransferRoute> topRoutes;
+
+    OperatorReport(long users, double totalBalance, double minBalance, double maxBalance,
+                   List<CategoryFlow> categories, List<BalanceBucket> balances, List<Spender> topSpenders,
+                   double transferVolume, long transferCount, List<TransferRoute> topRoutes) {
+        this.users = users;
+        this.totalBalance = totalBalance;
+        this.minBalance = minBalance;
+        this.maxBalance = maxBalance;
+        this.categories = List.copyOf(categories);
+        this.balances = List.copyOf(balances);
+        this.topSpenders = List.copyOf(topSpenders);
+        this.transferVolume = transferVolume;
+        this.transferCount = transferCount;
+        this.topRoutes = List.copyOf(topRoutes);
+    }
+
+    /**
+     * Обороты по категории у всех пользователей
+     */
+    public static final class CategoryFlow {
+        private final String category;
+        private final double income;
+        private final double expense;
+        private final long incomeCount;
+        private final long expenseCount;
+
+        CategoryFlow(String category, double income, double expense, long incomeCount, long expenseCount) {
+            this.category = category;
+            this.income = income;
+            this.expense = expense;
+            this.incomeCount = incomeCount;
+            this.expenseCount = expenseCount;
+        }
+
+        public String getCategory() { return category; }
+        public double getIncome() { return income; }
+        public double getExpense() { return expense; }
+        public long getIncomeCount() { return incomeCount; }
+        public long getExpenseCount() { return expenseCount; }
+    }
+
+    /**
+     * Интервал гистограммы балансов [from, to)
+     */
+    public static final class BalanceBucket {
+        private final double from;
+        private final double to;
+        private final long users;
+
+        BalanceBucket(double from, double to, long users) {
+            this.from = from;
+            this.to = to;
+            this.users = users;
+        }
+
+        /** Нижняя граница или -Infinity для отрицательных балансов */
+        public double getFrom() { return from; }
+        /** Верхняя граница (не включается) или Infinity для последнего интервала */
+        public double getTo() { return to; }
+        public long getUsers() { return users; }
+    }
+
+    /**
+     * Пользователь с наибольшими расходами; переводы другим пользователям не учитываются
+     */
+    public static final class Spender {
+        private final String login;
+        private final double expenses;
+
+        Spender(String login, double expenses) {
+            this.login = login;
+            this.expenses = expenses;
+        }
+
+        public String getLogin() { return login; }
+        public double getExpenses() { return expenses; }
+    }
+
+    /**
+     * Переводы от одного пользователя другому
+     */
+    public static final class TransferRoute {
+        private final String from;
+        private final String to;
+        private final double amount;
+        private final long count;
+
+        TransferRoute(String from, String to, double amount, long count) {
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+            this.count = count;
+        }
+
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+        public double getAmount() { return amount; }
+        public long getCount() { return count; }
+    }
+
+    public long getUsers() { return users; }
+    public double getTotalBalance() { return totalBalance; }
+    public double getMinBalance() { return minBalance; }
+    public double getMaxBalance() { return maxBalance; }
+    public double getMeanBalance() { return users == 0 ? 0 : totalBalance / users; }
+    /** Обороты по категориям в порядке убывания расходов */
+    public List<CategoryFlow> getCategories() { return categories; }
+    /** Распределение балансов по десятичным порядкам */
+    public List<BalanceBucket> getBalances() { return balances; }
+    /** Пользователи с наибольшими расходами в порядке убывания */
+    public List<Spender> getTopSpenders() { return topSpenders; }
+    /** Сумма всех переводов между пользователями */
+    public double getTransferVolume() { return transferVolume; }
+    public long getTransferCount() { return transferCount; }
+    /** Направления переводов с наибольшим объемом в порядке убывания */
+    public List<TransferRoute> getTopRoutes() { return topRoutes; }
+
+    /**
+     * Текстовое представление отчета для консоли
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Пользователей: %d, суммарный баланс: %.2f, средний: %.2f, мин: %.2f, макс: %.2f%n",
+                users, totalBalance, getMeanBalance(), minBalance, maxBalance));
+        out.append(String.format("%n%-24s %16s %16s %10s %10s%n", "категория", "доходы", "расходы", "дох. шт", "расх. шт"));
+        for (CategoryFlow flow : categories) {
+            out.append(String.format("%-24s %16.2f %16.2f %10d %10d%n", flow.category, flow.income, flow.expense,
+                    flow.incomeCount, flow.expenseCount));
+        }
+        out.append(String.format("%n%-32s %10s%n", "баланс", "польз."));
+        for (BalanceBucket bucket : balances) {
+            String range = Double.isInfinite(bucket.from) ? "< " + (long) bucket.to
+                    : Double.isInfinite(bucket.to) ? ">= " + (long) bucket.from
+                    : (long) bucket.from + " .. " + (long) bucket.to;
+            out.append(String.format("%-32s %10d%n", range, bucket.users));
+        }
+        out.append(String.format("%n%-24s %16s%n", "пользователь", "расходы"));
+        for (Spender spender : topSpenders) {
+            out.append(String.format("%-24s %16.2f%n", spender.login, spender.expenses));
+        }
+        out.append(String.format("%nПереводы: %d на сумму %.2f%n", transferCount, transferVolume));
+        for (TransferRoute route : topRoutes) {
+            out.append(String.format("%-24s -> %-24s %16.2f %8d%n", route.from, route.to, route.amount, route.count));
+        }
+        return out.toString();
+    }
+}
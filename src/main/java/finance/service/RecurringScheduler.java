@@ -0,0 +1,184 @@
+package finance.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Очередь пользователей по сроку ближайшего повторения их регулярных операций
+ * Пользователь стоит в очереди один раз, с ближайшим сроком среди всех правил своего кошелька,
+ * поэтому ни правила, ни кошельки не перебираются: поток планировщика спит до срока первого
+ * элемента кучи или до постановки более раннего срока и тогда запускает обработку.
+ * При переносе срока прежний элемент кучи не удаляется, а пропускается при извлечении
+ */
+final class RecurringScheduler {
+    // Наибольшее время сна: страховка от перевода системных часов
+    private static final long MAX_SLEEP_MILLIS = 60_000;
+    // Пауза после ошибки обработки, чтобы не повторять ее непрерывно
+    private static final long RETRY_MILLIS = 5_000;
+
+    /**
+     * Обработка наступивших сроков; вызывается в потоке планировщика
+     */
+    @FunctionalInterface
+    interface Tick {
+        void run();
+    }
+
+    private record Entry(LocalDateTime due, String login) { }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparing(Entry::due));
+    private final Map<String, LocalDateTime> scheduled = new HashMap<>();
+    private final Tick tick;
+    private final NotificationSink notifications;
+    private final Thread thread;
+    private boolean closed;
+
+    /**
+     * @param tick обработка наступивших сроков
+     * @param notifications получатель сообщений об ошибках обработки
+     */
+    RecurringScheduler(Tick tick, NotificationSink notifications) {
+        this.tick = tick;
+        this.notifications = notifications;
+        this.thread = new Thread(this::run, "recurring");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Запуск потока планировщика
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Установка срока ближайшего повторения пользователя
+     * Вызывается под блокировкой полосы пользователя, поэтому срок всегда соответствует кошельку
+     * @param login логин пользователя
+     * @param due срок или null, если повторений не осталось
+     */
+    synchronized void schedule(String login, LocalDateTime due) {
+        if (due == null) {
+            scheduled.remove(login);
+            return;
+        }
+        LocalDateTime previous = scheduled.put(login, due);
+        if (due.equals(previous)) {
+            return;
+        }
+        if (queue.size() > 2 * scheduled.size() + 64) {
+            compact();
+        } else {
+            queue.add(new Entry(due, login));
+        }
+        if (!queue.peek().due.isBefore(due)) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Извлечение пользователей, срок которых наступил
+     * Извлеченные пользователи снимаются с очереди: обработчик ставит их заново с новым сроком
+     * @param now текущий момент
+     * @param max наибольшее число пользователей
+     * @return логины в порядке сроков
+     */
+    synchronized List<String> pollDue(LocalDateTime now, int max) {
+        List<String> due = new ArrayList<>();
+        Entry head;
+        while (due.size() < max && (head = queue.peek()) != null && !head.due.isAfter(now)) {
+            queue.poll();
+            if (head.due.equals(scheduled.get(head.login))) {
+                scheduled.remove(head.login);
+                due.add(head.login);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Число пользователей с запланированными повторениями
+     */
+    synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Остановка потока планировщика; текущая обработка завершается
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        if (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (awaitDue()) {
+            try {
+                tick.run();
+            } catch (RuntimeException e) {
+                notifications.publish(NotificationSink.Level.ERROR,
+                        () -> "Ошибка выполнения регулярных операций: " + e.getMessage());
+                synchronized (this) {
+                    sleep(RETRY_MILLIS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ожидание наступления срока первого элемента очереди
+     * @return false если планировщик остановлен
+     */
+    private synchronized boolean awaitDue() {
+        while (!closed) {
+            Entry head = queue.peek();
+            while (head != null && !head.due.equals(scheduled.get(head.login))) {
+                queue.poll();
+                head = queue.peek();
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (head != null && !head.due.isAfter(now)) {
+                return true;
+            }
+            sleep(head == null ? MAX_SLEEP_MILLIS
+                    : Math.min(MAX_SLEEP_MILLIS, Duration.between(now, head.due).toMillis() + 1));
+        }
+        return false;
+    }
+
+    /**
+     * Сон под монитором планировщика; прерывается постановкой более раннего срока и остановкой
+     */
+    private void sleep(long millis) {
+        try {
+            if (!closed) {
+                wait(millis);
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+    }
+
+    /**
+     * Удаление из кучи элементов с перенесенными сроками
+     */
+    private void compact() {
+        queue.clear();
+        scheduled.forEach((login, due) -> queue.add(new Entry(due, login)));
+    }
+}
@@ -0,0 +1,260 @@
+package finance.service;
+
+import finance.models.Money;
+import finance.models.TransactionType;
+import finance.models.TransactionView;
+import finance.models.TransactionVisitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Накопитель сводного отчета по части пользователей
+ * Каждый поток обхода заполняет свой накопитель без синхронизации, затем накопители
+ * сливаются попарно (merge). Суммы накапливаются точно, в минимальных единицах
+ */
+final class ReportAccumulator {
+    // Нижние границы интервалов гистограммы балансов в минимальных единицах: 0, 1, 10, ..., 10^7;
+    // балансы ниже нуля попадают в отдельный первый интервал
+    private static final long[] BALANCE_BOUNDS = {
+        0, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000
+    };
+    // Порядок рейтингов от худшего к лучшему; при равных суммах лучше тот, чей логин меньше
+    private static final Comparator<Spender> BY_SPENT =
+            Comparator.comparingLong((Spender spender) -> spender.amount)
+                    .thenComparing(Spender::login, Comparator.reverseOrder());
+    private static final Comparator<Map.Entry<Route, long[]>> BY_VOLUME =
+            Comparator.comparingLong((Map.Entry<Route, long[]> route) -> route.getValue()[0])
+                    .thenComparing(route -> route.getKey().from, Comparator.reverseOrder())
+                    .thenComparing(route -> route.getKey().to, Comparator.reverseOrder());
+
+    private final int top;
+    private final String transferCategory;
+    private final String transferPrefix;
+    private final Scan scan = new Scan();
+
+    private long users;
+    private long balanceSum;
+    private long minBalance = Long.MAX_VALUE;
+    private long maxBalance = Long.MIN_VALUE;
+    private final long[] balanceBuckets = new long[BALANCE_BOUNDS.length + 1];
+    // Название категории -> {доходы, расходы, число доходов, число расходов}
+    private final Map<String, long[]> categories = new HashMap<>();
+    // Наименьший из лучших наверху, чтобы вытеснять его за O(log top)
+    private final PriorityQueue<Spender> spenders = new PriorityQueue<>(BY_SPENT);
+    // Направление перевода -> {сумма, количество}
+    private final Map<Route, long[]> routes = new HashMap<>();
+    private long transferVolume;
+    private long transferCount;
+
+    private record Route(String from, String to) { }
+
+    private record Spender(String login, long amount) { }
+
+    /**
+     * @param top количество пользователей и направлений переводов в рейтингах
+     * @param transferCategory категория переводов между пользователями
+     * @param transferPrefix начало описания исходящего перевода, за которым следует логин получателя
+     */
+    ReportAccumulator(int top, String transferCategory, String transferPrefix) {
+        this.top = top;
+        this.transferCategory = transferCategory;
+        this.transferPrefix = transferPrefix;
+    }
+
+    /**
+     * Учет кошелька одного пользователя
+     * @param login логин пользователя
+     * @param transactions снимок транзакций кошелька
+     */
+    void add(String login, TransactionView transactions) {
+        scan.reset(login, transactions);
+        transactions.forEachTransaction(scan);
+
+        long income = 0;
+        long expense = 0;
+        long spent = 0;
+        for (int id = 0; id < transactions.getCategoryCount(); id++) {
+            if (scan.incomeCounts[id] == 0 && scan.expenseCounts[id] == 0) {
+                continue;
+            }
+            long[] flow = categories.computeIfAbsent(transactions.getCategoryName(id), name -> new long[4]);
+            flow[0] += scan.incomes[id];
+            flow[1] += scan.expenses[id];
+            flow[2] += scan.incomeCounts[id];
+            flow[3] += scan.expenseCounts[id];
+            income += scan.incomes[id];
+            expense += scan.expenses[id];
+            if (id != scan.transferId) {
+                spent += scan.expenses[id];
+            }
+        }
+        addBalance(income - expense);
+        if (spent > 0) {
+            offer(spenders, new Spender(login, spent));
+        }
+    }
+
+    /**
+     * Слияние с накопителем другого потока; другой накопитель после этого не используется
+     */
+    void merge(ReportAccumulator other) {
+        users += other.users;
+        balanceSum += other.balanceSum;
+        minBalance = Math.min(minBalance, other.minBalance);
+        maxBalance = Math.max(maxBalance, other.maxBalance);
+        for (int i = 0; i < balanceBuckets.length; i++) {
+            balanceBuckets[i] += other.balanceBuckets[i];
+        }
+        other.categories.forEach((name, flow) -> {
+            long[] merged = categories.computeIfAbsent(name, key -> new long[4]);
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += flow[i];
+            }
+        });
+        for (Spender spender : other.spenders) {
+            offer(spenders, spender);
+        }
+        other.routes.forEach((route, total) -> {
+            long[] merged = routes.computeIfAbsent(route, key -> new long[2]);
+            merged[0] += total[0];
+            merged[1] += total[1];
+        });
+        transferVolume += other.transferVolume;
+        transferCount += other.transferCount;
+    }
+
+    OperatorReport toReport() {
+        List<OperatorReport.CategoryFlow> flows = new ArrayList<>(categories.size());
+        categories.forEach((name, flow) -> flows.add(new OperatorReport.CategoryFlow(
+                name, Money.toMajor(flow[0]), Money.toMajor(flow[1]), flow[2], flow[3])));
+        flows.sort(Comparator.comparingDouble(OperatorReport.CategoryFlow::getExpense).reversed()
+                .thenComparing(OperatorReport.CategoryFlow::getCategory));
+
+        List<OperatorReport.BalanceBucket> buckets = new ArrayList<>(balanceBuckets.length);
+        for (int i = 0; i < balanceBuckets.length; i++) {
+            double from = i == 0 ? Double.NEGATIVE_INFINITY : Money.toMajor(BALANCE_BOUNDS[i - 1]);
+            double to = i == BALANCE_BOUNDS.length ? Double.POSITIVE_INFINITY : Money.toMajor(BALANCE_BOUNDS[i]);
+            buckets.add(new OperatorReport.BalanceBucket(from, to, balanceBuckets[i]));
+        }
+
+        List<OperatorReport.Spender> topSpenders = new ArrayList<>(spenders.size());
+        for (Spender spender : descending(spenders)) {
+            topSpenders.add(new OperatorReport.Spender(spender.login, Money.toMajor(spender.amount)));
+        }
+
+        PriorityQueue<Map.Entry<Route, long[]>> ranked = new PriorityQueue<>(BY_VOLUME);
+        for (Map.Entry<Route, long[]> route : routes.entrySet()) {
+            offer(ranked, route);
+        }
+        List<OperatorReport.TransferRoute> topRoutes = new ArrayList<>(ranked.size());
+        for (Map.Entry<Route, long[]> route : descending(ranked)) {
+            topRoutes.add(new OperatorReport.TransferRoute(route.getKey().from, route.getKey().to,
+                    Money.toMajor(route.getValue()[0]), route.getValue()[1]));
+        }
+
+        return new OperatorReport(users, Money.toMajor(balanceSum),
+                users == 0 ? 0 : Money.toMajor(minBalance), users == 0 ? 0 : Money.toMajor(maxBalance),
+                flows, buckets, topSpenders, Money.toMajor(transferVolume), transferCount, topRoutes);
+    }
+
+    private void addBalance(long balance) {
+        users++;
+        balanceSum += balance;
+        minBalance = Math.min(minBalance, balance);
+        maxBalance = Math.max(maxBalance, balance);
+        int bucket = 0;
+        while (bucket < BALANCE_BOUNDS.length && balance >= BALANCE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        balanceBuckets[bucket]++;
+    }
+
+    private void addTransfer(String from, String description, long amount) {
+        if (description == null || !description.startsWith(transferPrefix)) {
+            return;
+        }
+        int end = description.indexOf(" - ", transferPrefix.length());
+        String to = description.substring(transferPrefix.length(), end < 0 ? description.length() : end);
+        long[] total = routes.computeIfAbsent(new Route(from, to), key -> new long[2]);
+        total[0] += amount;
+        total[1]++;
+        transferVolume += amount;
+        transferCount++;
+    }
+
+    /**
+     * Добавление кандидата в рейтинг из top лучших; наверху очереди - наименьший из них
+     */
+    private <T> void offer(PriorityQueue<T> queue, T candidate) {
+        if (queue.size() < top) {
+            queue.add(candidate);
+        } else if (top > 0 && queue.comparator().compare(candidate, queue.peek()) > 0) {
+            queue.poll();
+            queue.add(candidate);
+        }
+    }
+
+    private static <T> List<T> descending(PriorityQueue<T> queue) {
+        List<T> sorted = new ArrayList<>(queue);
+        sorted.sort(Collections.reverseOrder(queue.comparator()));
+        return sorted;
+    }
+
+    /**
+     * Обход строк одного кошелька: суммы по идентификаторам категорий и исходящие переводы
+     * Массивы переиспользуются между кошельками и растут до наибольшего числа категорий
+     */
+    private final class Scan implements TransactionVisitor {
+        private String login;
+        private int transferId;
+        private long[] incomes = new long[16];
+        private long[] expenses = new long[16];
+        private long[] incomeCounts = new long[16];
+        private long[] expenseCounts = new long[16];
+
+        void reset(String login, TransactionView transactions) {
+            this.login = login;
+            int count = transactions.getCategoryCount();
+            if (incomes.length < count) {
+                int capacity = Math.max(count, incomes.length * 2);
+                incomes = new long[capacity];
+                expenses = new long[capacity];
+                incomeCounts = new long[capacity];
+                expenseCounts = new long[capacity];
+            } else {
+                Arrays.fill(incomes, 0, count, 0);
+                Arrays.fill(expenses, 0, count, 0);
+                Arrays.fill(incomeCounts, 0, count, 0);
+                Arrays.fill(expenseCounts, 0, count, 0);
+            }
+            transferId = -1;
+            for (int id = 0; id < count; id++) {
+                if (transferCategory.equals(transactions.getCategoryName(id))) {
+                    transferId = id;
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void visit(long id, TransactionType type, int categoryId, long amount, long date, String description) {
+            if (type == TransactionType.INCOME) {
+                incomes[categoryId] += amount;
+                incomeCounts[categoryId]++;
+            } else {
+                expenses[categoryId] += amount;
+                expenseCounts[categoryId]++;
+                if (categoryId == transferId) {
+                    addTransfer(login, description, amount);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package finance.service;
+
+import finance.models.User;
+import java.util.UUID;
+
+/**
+ * Сессия авторизованного пользователя
+ * Передается во все операции сервиса вместо глобального текущего пользователя,
+ * поэтому один экземпляр сервиса может обслуживать много пользователей одновременно
+ */
+public final class Session {
+    private final String token;
+    private final User user;
+    
+    Session(User user) {
+        this.token = UUID.randomUUID().toString();
+        this.user = user;
+    }
+    
+    public String getToken() { return token; }
+    public User getUser() { return user; }
+    public String getLogin() { return user.getLogin(); }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package finance.service;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, распределенных по логинам пользователей
+ * Операции над разными кошельками попадают, как правило, в разные полосы и не конкурируют
+ */
+final class StripedLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    
+    /**
+     * @param count количество полос, округляется вверх до степени двойки
+     */
+    StripedLocks(int count) {
+        int size = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * Номер полосы для логина
+     * @param login логин пользователя
+     * @return индекс полосы
+     */
+    int indexOf(String login) {
+        int h = login.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /**
+     * Количество полос
+     */
+    int size() {
+        return stripes.length;
+    }
+    
+    ReentrantLock get(int index) {
+        return stripes[index];
+    }
+    
+    ReentrantLock lockFor(String login) {
+        return stripes[indexOf(login)];
+    }
+    
+    /**
+     * Захват набора полос по возрастанию индекса
+     * Единый порядок захвата исключает взаимную блокировку при операциях над несколькими кошельками
+     * @param indexes индексы полос
+     */
+    void lockAll(BitSet indexes) {
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            stripes[i].lock();
+        }
+    }
+    
+    void unlockAll(BitSet indexes) {
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            stripes[i].unlock();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,378 @@
+package finance.service;
+
+import finance.models.User;
+import finance.models.Wallet;
+import finance.storage.TransactionJournal;
+import finance.storage.UserStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэш загруженных кошельков с вытеснением давно не использовавшихся (LRU)
+ * Размер кэша ограничен суммарным количеством транзакций в загруженных кошельках.
+ * Измененный кошелек при вытеснении записывается в свой файл. Кошелек пользователя,
+ * полоса которого захвачена другим потоком, не вытесняется: им в этот момент пользуются.
+ * Жертвы выбираются под монитором кэша, а сброс журнала и запись файлов выполняются вне его:
+ * пока кошелек вытесняется, ждут только обращения к нему самому.
+ * Перед записью кошелька дожидается сброса журнала на диск, чтобы файл кошелька
+ * не опережал журнал. Контрольная точка снимает копии измененных кошельков под блокировками
+ * их полос, а файлы пишет после их освобождения; до окончания записи такой кошелек не вытесняется.
+ * Во время восстановления из журнала вытеснение отключено: записи еще не применены ко всем
+ * кошелькам, и номер последней записи журнала не соответствует состоянию вытесняемого кошелька
+ */
+final class WalletCache {
+    private final UserStore store;
+    private final StripedLocks locks;
+    private final TransactionJournal journal;
+    private final long maxWeight;
+    private final NotificationSink notifications;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // Суммарный вес кошельков, которые сейчас вытесняются
+    private long evictingWeight;
+    // Идет восстановление из журнала; кошельки не вытесняются
+    private boolean replaying;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private static final class Entry {
+        final User user;
+        long weight;
+        long storedLsn;
+        boolean dirty;
+        // Копия кошелька записывается контрольной точкой
+        boolean flushing;
+        // Кошелек записывается и выгружается вытеснением; обращения к нему ждут окончания
+        boolean evicting;
+
+        Entry(User user, long storedLsn) {
+            this.user = user;
+            this.storedLsn = storedLsn;
+            this.weight = weightOf(user.getWallet());
+        }
+    }
+
+    /**
+     * Копия измененного кошелька, снятая контрольной точкой для записи вне блокировок
+     */
+    static final class Snapshot {
+        private final Entry entry;
+        private final byte[] record;
+        private final long lsn;
+
+        private Snapshot(Entry entry, byte[] record, long lsn) {
+            this.entry = entry;
+            this.record = record;
+            this.lsn = lsn;
+        }
+
+        long getLsn() {
+            return lsn;
+        }
+    }
+
+    /**
+     * @param store хранилище кошельков
+     * @param locks полосы блокировок пользователей
+     * @param journal журнал операций
+     * @param maxWeight максимальное суммарное количество транзакций в загруженных кошельках
+     * @param notifications получатель сообщений об ошибках записи
+     */
+    WalletCache(UserStore store, StripedLocks locks, TransactionJournal journal, long maxWeight,
+                NotificationSink notifications) {
+        this.store = store;
+        this.locks = locks;
+        this.journal = journal;
+        this.maxWeight = maxWeight;
+        this.notifications = notifications;
+    }
+
+    /**
+     * Получение кошелька пользователя с загрузкой из файла при необходимости
+     * Вызывающий поток должен удерживать полосу пользователя
+     * @param user пользователь
+     * @return кошелек пользователя
+     */
+    Wallet get(User user) {
+        synchronized (this) {
+            Entry entry = awaitEviction(user.getLogin());
+            if (entry != null) {
+                hits.increment();
+                return user.getWallet();
+            }
+        }
+        misses.increment();
+
+        UserStore.StoredWallet stored;
+        try {
+            stored = store.loadWallet(user.getLogin());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить кошелек пользователя " + user.getLogin(), e);
+        }
+        user.setWallet(stored != null ? stored.getWallet() : new Wallet());
+
+        synchronized (this) {
+            Entry entry = new Entry(user, stored != null ? stored.getLsn() : 0);
+            entries.put(user.getLogin(), entry);
+            weight += entry.weight;
+        }
+        evict(user);
+        return user.getWallet();
+    }
+
+    /**
+     * Регистрация кошелька нового пользователя, которого еще нет на диске
+     */
+    synchronized void add(User user) {
+        Entry entry = new Entry(user, 0);
+        entry.dirty = true;
+        entries.put(user.getLogin(), entry);
+        weight += entry.weight;
+    }
+
+    /**
+     * Отметка об изменении кошелька; кошелек будет записан при вытеснении или контрольной точке
+     */
+    synchronized void markDirty(User user) {
+        Entry entry = entries.get(user.getLogin());
+        if (entry != null) {
+            entry.dirty = true;
+            long updated = weightOf(user.getWallet());
+            weight += updated - entry.weight;
+            entry.weight = updated;
+        }
+    }
+
+    /**
+     * Номер последней записи журнала, уже учтенной в кошельке пользователя
+     * Используется при восстановлении, чтобы не применить запись журнала дважды
+     */
+    synchronized long storedLsn(User user) {
+        Entry entry = entries.get(user.getLogin());
+        return entry == null ? 0 : entry.storedLsn;
+    }
+
+    /**
+     * Пользователи с измененными кошельками
+     */
+    synchronized List<User> dirtyUsers() {
+        List<User> dirty = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.dirty) {
+                dirty.add(entry.user);
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Копия измененного кошелька для контрольной точки
+     * Вызывающий поток должен удерживать полосу пользователя: копия вместе с номером последней
+     * записи журнала отражает все записи пользователя до этого номера. Кошелек считается
+     * сохраненным и не вытесняется до вызова write
+     * @param user пользователь
+     * @return копия или null если кошелек не загружен или не изменен
+     */
+    Snapshot snapshot(User user) {
+        Entry entry;
+        synchronized (this) {
+            // Вытесняемый кошелек записывает само вытеснение; при его ошибке кошелек остается измененным
+            entry = awaitEviction(user.getLogin());
+            if (entry == null || !entry.dirty) {
+                return null;
+            }
+            entry.dirty = false;
+            entry.flushing = true;
+        }
+        try {
+            return new Snapshot(entry, UserStore.encodeWallet(user.getWallet()), journal.getLastLsn());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entry.dirty = true;
+                entry.flushing = false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Запись копий кошельков в файлы
+     * Вызывается без блокировок после сброса журнала на диск до номеров копий.
+     * При ошибке незаписанные кошельки снова отмечаются измененными
+     * @param snapshots копии, снятые snapshot
+     * @return количество записанных байт
+     * @throws IOException при ошибке записи
+     */
+    long write(List<Snapshot> snapshots) throws IOException {
+        long bytes = 0;
+        int written = 0;
+        try {
+            for (Snapshot snapshot : snapshots) {
+                bytes += store.saveWallet(snapshot.entry.user.getLogin(), snapshot.record, snapshot.lsn);
+                written++;
+            }
+        } finally {
+            release(snapshots, written);
+            bytesWritten.add(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Отказ от записи копий: кошельки снова отмечаются измененными
+     * @param snapshots копии, снятые snapshot
+     */
+    void abort(List<Snapshot> snapshots) {
+        release(snapshots, 0);
+    }
+
+    /**
+     * Отключение вытеснения на время восстановления из журнала
+     */
+    synchronized void beginReplay() {
+        replaying = true;
+    }
+
+    /**
+     * Окончание восстановления: все записи журнала применены, кэш возвращается в пределы размера
+     */
+    void endReplay() {
+        synchronized (this) {
+            replaying = false;
+        }
+        evict(null);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+    
+    long getHits() {
+        return hits.sum();
+    }
+    
+    long getMisses() {
+        return misses.sum();
+    }
+    
+    long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Количество байт, записанных в файлы кошельков при вытеснении и контрольных точках
+     */
+    long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+    
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Вытеснение давно не использовавшихся кошельков до возврата в пределы размера
+     * Жертва отмечается под монитором, пока ее полоса захвачена попыткой без ожидания: в этот момент
+     * кошельком никто не пользуется, а после отметки get для него ждет окончания вытеснения.
+     * Сброс журнала и запись файла выполняются без монитора и без полосы жертвы
+     * @param current пользователь, кошелек которого только что загружен и не вытесняется, или null
+     */
+    private void evict(User current) {
+        List<Entry> victims = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (!replaying && weight - evictingWeight > maxWeight && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.user == current || entry.flushing || entry.evicting) {
+                    continue;
+                }
+                ReentrantLock lock = locks.lockFor(entry.user.getLogin());
+                if (lock.isHeldByCurrentThread() || !lock.tryLock()) {
+                    continue;
+                }
+                entry.evicting = true;
+                lock.unlock();
+                evictingWeight += entry.weight;
+                victims.add(entry);
+            }
+        }
+
+        for (Entry entry : victims) {
+            String login = entry.user.getLogin();
+            boolean saved = false;
+            try {
+                if (entry.dirty) {
+                    long lsn = journal.getLastLsn();
+                    journal.awaitDurable(lsn);
+                    bytesWritten.add(store.saveWallet(login, entry.user.getWallet(), lsn));
+                }
+                saved = true;
+            } catch (IOException e) {
+                notifications.publish(NotificationSink.Level.ERROR,
+                        () -> "Ошибка сохранения кошелька " + login + ": " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    entry.evicting = false;
+                    evictingWeight -= entry.weight;
+                    if (saved) {
+                        entries.remove(login);
+                        weight -= entry.weight;
+                        entry.user.setWallet(null);
+                        evictions.increment();
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ожидание окончания вытеснения кошелька пользователя; вызывается под монитором кэша
+     * @param login логин пользователя
+     * @return запись кэша или null если кошелек не загружен
+     */
+    private Entry awaitEviction(String login) {
+        boolean interrupted = false;
+        Entry entry;
+        while ((entry = entries.get(login)) != null && entry.evicting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return entry;
+    }
+
+    /**
+     * Снятие запрета вытеснения с кошельков записанных и незаписанных копий
+     * @param written число первых копий, файлы которых записаны
+     */
+    private synchronized void release(List<Snapshot> snapshots, int written) {
+        for (int i = 0; i < snapshots.size(); i++) {
+            Snapshot snapshot = snapshots.get(i);
+            snapshot.entry.flushing = false;
+            if (i < written) {
+                snapshot.entry.storedLsn = snapshot.lsn;
+            } else {
+                snapshot.entry.dirty = true;
+            }
+        }
+    }
+
+    private static long weightOf(Wallet wallet) {
+        return wallet.getTransactionCount() + 1;
+    }
+}
\ No newline at end of file
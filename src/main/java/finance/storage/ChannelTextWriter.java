@@ -0,0 +1,220 @@
+package finance.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись текста в канал через переиспользуемые буферы
+ * Символы накапливаются в буфере символов, кодируются в UTF-8 в прямой буфер байтов
+ * и пишутся в канал крупными блоками. Числа, суммы и даты форматируются без создания строк
+ */
+final class ChannelTextWriter implements Closeable {
+    private static final int CHAR_BUFFER_SIZE = 1 << 15;
+    private static final int BYTE_BUFFER_SIZE = 1 << 18;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    private long bytesWritten;
+
+    ChannelTextWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    ChannelTextWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            drainChars();
+        }
+        chars.put(c);
+        return this;
+    }
+
+    ChannelTextWriter append(String text) throws IOException {
+        if (chars.remaining() < text.length()) {
+            drainChars();
+        }
+        if (chars.remaining() >= text.length()) {
+            chars.put(text);
+        } else {
+            for (int i = 0; i < text.length(); i++) {
+                append(text.charAt(i));
+            }
+        }
+        return this;
+    }
+
+    ChannelTextWriter appendLong(long value) throws IOException {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                return append("9223372036854775808");
+            }
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            append((char) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+        return this;
+    }
+
+    /**
+     * Сумма в минимальных единицах (сотых) в виде десятичной дроби с двумя знаками
+     */
+    ChannelTextWriter appendAmount(long minor) throws IOException {
+        if (minor < 0) {
+            append('-');
+            minor = -minor;
+        }
+        appendLong(minor / 100);
+        append('.');
+        long cents = minor % 100;
+        return append((char) ('0' + cents / 10)).append((char) ('0' + cents % 10));
+    }
+
+    /**
+     * Дата в наносекундах эпохи (UTC) в формате yyyy-MM-ddTHH:mm:ss
+     * Календарная дата вычисляется по алгоритму civil_from_days без объектов java.time
+     */
+    ChannelTextWriter appendDate(long epochNanos) throws IOException {
+        long seconds = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+        long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        long secondOfDay = Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        appendPadded(year, 4).append('-');
+        appendPadded(month, 2).append('-');
+        appendPadded(day, 2).append('T');
+        appendPadded(secondOfDay / 3600, 2).append(':');
+        appendPadded(secondOfDay / 60 % 60, 2).append(':');
+        return appendPadded(secondOfDay % 60, 2);
+    }
+
+    /**
+     * Строка в кавычках по правилам CSV, если она содержит разделитель, кавычку или перевод строки;
+     * null записывается пустым полем
+     */
+    ChannelTextWriter appendCsv(String value) throws IOException {
+        if (value == null) {
+            return this;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return append(value);
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        return append('"');
+    }
+
+    /**
+     * Строка JSON в кавычках с экранированием; null записывается литералом null
+     */
+    ChannelTextWriter appendJson(String value) throws IOException {
+        if (value == null) {
+            return append("null");
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': append("\\\""); break;
+                case '\\': append("\\\\"); break;
+                case '\n': append("\\n"); break;
+                case '\r': append("\\r"); break;
+                case '\t': append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        append(c);
+                    }
+            }
+        }
+        return append('"');
+    }
+
+    /**
+     * Запись всех накопленных данных в канал
+     */
+    void flush() throws IOException {
+        drainChars();
+        writeBytes();
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private ChannelTextWriter appendPadded(long value, int width) throws IOException {
+        long limit = 1;
+        for (int i = 1; i < width; i++) {
+            limit *= 10;
+        }
+        for (; limit > 1 && value < limit; limit /= 10) {
+            append('0');
+        }
+        return appendLong(value);
+    }
+
+    private void drainChars() throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (result.isOverflow()) {
+                writeBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        // Незавершенная суррогатная пара остается в буфере до следующего символа
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
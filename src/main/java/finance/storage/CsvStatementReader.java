@@ -0,0 +1,388 @@
+package finance.storage;
+
+import finance.models.Money;
+import finance.models.Transaction;
+import finance.models.TransactionIds;
+import finance.models.TransactionType;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Потоковое чтение банковской выписки в формате CSV
+ * Файл читается построчно, в памяти находится только текущая запись.
+ * Первая строка - заголовок с названиями колонок в любом порядке:
+ * date/дата и amount/сумма обязательны, type/тип, category/категория, description/описание - нет.
+ * Разделитель (запятая, точка с запятой или табуляция) определяется по заголовку, поля могут быть в кавычках;
+ * поле в кавычках может содержать переводы строк, как в файлах экспорта транзакций.
+ * Дата: yyyy-MM-dd или dd.MM.yyyy, с необязательным временем HH:mm[:ss] через пробел или T;
+ * строки с датами вне диапазона хранения (см. Transaction.isSupportedDate) пропускаются.
+ * Без колонки типа доход и расход различаются знаком суммы.
+ * Некорректные строки пропускаются и учитываются в getSkippedCount()
+ */
+public final class CsvStatementReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_ERRORS = 10;
+    private static final String DEFAULT_CATEGORY = "Без категории";
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final int dateColumn;
+    private final int typeColumn;
+    private final int categoryColumn;
+    private final int amountColumn;
+    private final int descriptionColumn;
+    private final String[] fields;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> errors = new ArrayList<>();
+    private long lineNumber;
+    private int skipped;
+
+    /**
+     * Открытие файла выписки в кодировке UTF-8
+     * @param path путь к файлу
+     * @return читатель, установленный на первую строку данных
+     * @throws IOException если файл не удалось прочитать или в заголовке нет обязательных колонок
+     */
+    public static CsvStatementReader open(Path path) throws IOException {
+        Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8);
+        try {
+            return new CsvStatementReader(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param source источник текста выписки
+     * @throws IOException если заголовок не прочитан или в нем нет обязательных колонок
+     */
+    public CsvStatementReader(Reader source) throws IOException {
+        this.reader = new BufferedReader(source, BUFFER_SIZE);
+        String header = reader.readLine();
+        lineNumber = 1;
+        if (header == null) {
+            throw new IOException("Файл выписки пуст");
+        }
+        if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+            header = header.substring(1);
+        }
+        this.delimiter = detectDelimiter(header);
+
+        List<String> names = new ArrayList<>();
+        split(header, names);
+        int date = -1, type = -1, category = -1, amount = -1, description = -1;
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "date": case "дата":
+                    date = i;
+                    break;
+                case "type": case "тип":
+                    type = i;
+                    break;
+                case "category": case "категория":
+                    category = i;
+                    break;
+                case "amount": case "сумма":
+                    amount = i;
+                    break;
+                case "description": case "описание":
+                    description = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (date < 0 || amount < 0) {
+            throw new IOException("В заголовке выписки нет колонок даты и суммы: " + header);
+        }
+        this.dateColumn = date;
+        this.typeColumn = type;
+        this.categoryColumn = category;
+        this.amountColumn = amount;
+        this.descriptionColumn = description;
+        this.fields = new String[names.size()];
+    }
+
+    /**
+     * Чтение следующей корректной строки выписки
+     * @return транзакция с датой из выписки или null в конце файла
+     * @throws IOException при ошибке чтения
+     */
+    public Transaction next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            long firstLine = lineNumber;
+            if (line.isBlank()) {
+                continue;
+            }
+            // Поле в кавычках может содержать перевод строки: запись продолжается до закрывающей кавычки
+            String more;
+            while (endsInsideQuotes(line) && (more = reader.readLine()) != null) {
+                lineNumber++;
+                line = line + '\n' + more;
+            }
+            try {
+                return parse(line);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                skipped++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("строка " + firstLine + ": " + e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Описания первых ошибок разбора с номерами строк
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Transaction parse(String line) {
+        int count = splitInto(line);
+        if (count <= Math.max(dateColumn, amountColumn)) {
+            throw new IllegalArgumentException("недостаточно колонок");
+        }
+        LocalDateTime date = parseDate(fields[dateColumn].trim());
+        long amount = parseAmount(fields[amountColumn]);
+
+        TransactionType type = null;
+        if (typeColumn >= 0 && typeColumn < count && !fields[typeColumn].isBlank()) {
+            type = parseType(fields[typeColumn].trim());
+        }
+        if (type == null) {
+            type = amount < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+        }
+        amount = Math.abs(amount);
+        if (amount == 0) {
+            throw new IllegalArgumentException("некорректная сумма");
+        }
+
+        String category = categoryColumn >= 0 && categoryColumn < count ? fields[categoryColumn].trim() : "";
+        String description = descriptionColumn >= 0 && descriptionColumn < count
+                ? fields[descriptionColumn].trim() : "";
+        return new Transaction(TransactionIds.next(), type, category.isEmpty() ? DEFAULT_CATEGORY : category,
+                amount, description, date);
+    }
+
+    /**
+     * Разбиение строки на поля в переиспользуемый массив
+     * @return число прочитанных полей (лишние поля отбрасываются)
+     */
+    private int splitInto(String line) {
+        int count = 0;
+        int i = 0;
+        int length = line.length();
+        while (i <= length && count < fields.length) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (i < length) {
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                while (i < length && line.charAt(i) != delimiter) {
+                    i++;
+                }
+                fields[count++] = field.toString();
+            } else {
+                int end = line.indexOf(delimiter, i);
+                if (end < 0) {
+                    end = length;
+                }
+                fields[count++] = line.substring(i, end);
+                i = end;
+            }
+            i++;
+        }
+        return count;
+    }
+
+    /**
+     * Остается ли открытым поле в кавычках в конце строки
+     * Кавычка открывает поле только в его начале, как при разбиении строки на поля
+     */
+    private boolean endsInsideQuotes(String line) {
+        boolean quoted = false;
+        boolean fieldStart = true;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else {
+                fieldStart = c == delimiter;
+            }
+        }
+        return quoted;
+    }
+
+    private void split(String line, List<String> out) {
+        int i = 0;
+        while (i <= line.length()) {
+            int end = line.indexOf(delimiter, i);
+            if (end < 0) {
+                end = line.length();
+            }
+            String name = line.substring(i, end).trim();
+            if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            out.add(name);
+            i = end + 1;
+        }
+    }
+
+    private static char detectDelimiter(String header) {
+        char best = ',';
+        int bestCount = -1;
+        for (char candidate : new char[] { ',', ';', '\t' }) {
+            int count = 0;
+            for (int i = 0; i < header.length(); i++) {
+                if (header.charAt(i) == candidate) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static TransactionType parseType(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "income": case "доход": case "приход": case "+":
+                return TransactionType.INCOME;
+            case "expense": case "расход": case "списание": case "-":
+                return TransactionType.EXPENSE;
+            default:
+                throw new IllegalArgumentException("неизвестный тип операции: " + value);
+        }
+    }
+
+    /**
+     * Разбор суммы: пробелы между разрядами допускаются, дробная часть через точку или запятую
+     * @return сумма в минимальных единицах, разобранная точно без промежуточного double
+     */
+    private static long parseAmount(String value) {
+        StringBuilder digits = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == ' ' || c == '\u00A0' || c == '\u202F') {
+                if (digits == null) {
+                    digits = new StringBuilder(value.length()).append(value, 0, i);
+                }
+                if (c == ',') {
+                    digits.append('.');
+                }
+            } else if (digits != null) {
+                digits.append(c);
+            }
+        }
+        String normalized = digits == null ? value : digits.toString();
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("пустая сумма");
+        }
+        try {
+            return Money.parse(normalized.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("некорректная сумма: " + value);
+        }
+    }
+
+    /**
+     * Разбор даты без DateTimeFormatter: yyyy-MM-dd или dd.MM.yyyy, затем необязательно HH:mm[:ss]
+     */
+    private static LocalDateTime parseDate(String value) {
+        int length = value.length();
+        if (length < 10) {
+            throw new IllegalArgumentException("некорректная дата: " + value);
+        }
+        int year, month, day;
+        if (value.charAt(4) == '-' && value.charAt(7) == '-') {
+            year = number(value, 0, 4);
+            month = number(value, 5, 7);
+            day = number(value, 8, 10);
+        } else if (value.charAt(2) == '.' && value.charAt(5) == '.') {
+            day = number(value, 0, 2);
+            month = number(value, 3, 5);
+            year = number(value, 6, 10);
+        } else {
+            throw new IllegalArgumentException("некорректная дата: " + value);
+        }
+        int hour = 0, minute = 0, second = 0;
+        if (length > 10) {
+            char separator = value.charAt(10);
+            if ((separator != ' ' && separator != 'T') || length < 16 || value.charAt(13) != ':') {
+                throw new IllegalArgumentException("некорректное время: " + value);
+            }
+            hour = number(value, 11, 13);
+            minute = number(value, 14, 16);
+            if (length >= 19 && value.charAt(16) == ':') {
+                second = number(value, 17, 19);
+            }
+        }
+        LocalDateTime date = LocalDateTime.of(year, month, day, hour, minute, second);
+        if (!Transaction.isSupportedDate(date)) {
+            throw new IllegalArgumentException("дата вне поддерживаемого диапазона: " + value);
+        }
+        return date;
+    }
+
+    private static int number(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("некорректная дата: " + value);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
@@ -0,0 +1,11 @@
+package finance.storage;
+
+/**
+ * Режим подтверждения записи изменений
+ */
+public enum Durability {
+    /** Операция возвращается сразу после постановки записи в очередь журнала */
+    ASYNC,
+    /** Операция возвращается после сброса записи журнала на диск */
+    DURABLE
+}
@@ -0,0 +1,11 @@
+package finance.storage;
+
+/**
+ * Формат файла экспорта
+ */
+public enum ExportFormat {
+    /** CSV с заголовком, разделитель - запятая; читается импортом выписок */
+    CSV,
+    /** Один JSON-объект на строку (JSON Lines) */
+    JSONL
+}
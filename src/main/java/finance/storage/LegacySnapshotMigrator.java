@@ -0,0 +1,58 @@
+package finance.storage;
+
+import finance.models.User;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Однократный перенос данных из снимка Java-сериализации (finance_data.ser) в двоичный формат
+ * Поддерживает снимки как без номера записи журнала, так и с ним
+ */
+public final class LegacySnapshotMigrator {
+
+    private LegacySnapshotMigrator() {
+    }
+
+    /**
+     * Перенос снимка
+     * @param legacy путь к снимку Java-сериализации
+     * @param target путь к снимку в двоичном формате
+     * @return количество перенесенных пользователей
+     * @throws IOException при ошибке чтения или записи
+     */
+    @SuppressWarnings("unchecked")
+    public static int migrate(Path legacy, Path target) throws IOException {
+        Map<String, User> users;
+        long lsn = 0;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacy)))) {
+            users = (Map<String, User>) in.readObject();
+            try {
+                lsn = in.readLong();
+            } catch (EOFException e) {
+                // Снимок без номера записи журнала
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Неизвестный класс в снимке: " + e.getMessage(), e);
+        }
+        SnapshotCodec.save(target, users.values(), lsn);
+        return users.size();
+    }
+
+    /**
+     * Запуск переноса из командной строки
+     * @param args путь к старому снимку и путь к новому снимку
+     */
+    public static void main(String[] args) throws IOException {
+        Path legacy = Paths.get(args.length > 0 ? args[0] : "finance_data.ser");
+        Path target = Paths.get(args.length > 1 ? args[1] : "finance_data.bin");
+        int count = migrate(legacy, target);
+        System.out.println("Перенесено пользователей: " + count + " -> " + target);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package finance.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Разбор записи двоичного формата хранения, закодированной RecordWriter
+ * Запись целиком читается в переиспользуемый буфер по префиксу длины
+ */
+public final class RecordReader {
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    public RecordReader() {
+        this.buffer = new byte[256];
+    }
+
+    /**
+     * Чтение следующей записи с префиксом длины
+     * @param in поток ввода
+     * @return false если поток закончился до начала записи
+     * @throws IOException при ошибке чтения или оборванной записи
+     */
+    public boolean readFrom(InputStream in) throws IOException {
+        long length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return false;
+                }
+                throw new EOFException("Оборванная запись");
+            }
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift > 28) {
+                throw new IOException("Некорректная длина записи");
+            }
+        }
+        if (length > buffer.length) {
+            buffer = new byte[(int) Math.max(length, buffer.length * 2L)];
+        }
+        int read = in.readNBytes(buffer, 0, (int) length);
+        if (read < length) {
+            throw new EOFException("Оборванная запись");
+        }
+        position = 0;
+        limit = (int) length;
+        return true;
+    }
+
+    /**
+     * Разбор готового массива байтов
+     * @param bytes содержимое записи без префикса длины
+     */
+    public RecordReader wrap(byte[] bytes) {
+        buffer = bytes;
+        position = 0;
+        limit = bytes.length;
+        return this;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    public int readByte() throws IOException {
+        check(1);
+        return buffer[position++];
+    }
+
+    public byte[] readBytes(int length) throws IOException {
+        check(length);
+        byte[] result = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return result;
+    }
+
+    public long readLong() throws IOException {
+        check(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            check(1);
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число переменной длины");
+    }
+
+    public int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Значение вне допустимого диапазона: " + value);
+        }
+        return (int) value;
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        check(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private void check(int length) throws IOException {
+        if (length < 0 || position + length > limit) {
+            throw new EOFException("Запись короче ожидаемого");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package finance.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Буфер для кодирования записи двоичного формата хранения
+ * Целые числа пишутся в формате varint (знаковые - через zigzag), строки - длиной и байтами UTF-8.
+ * Буфер переиспользуется между записями, чтобы не выделять память на каждую запись
+ */
+public final class RecordWriter {
+    private byte[] buffer;
+    private int position;
+
+    public RecordWriter() {
+        this(256);
+    }
+
+    public RecordWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public RecordWriter reset() {
+        position = 0;
+        return this;
+    }
+
+    public int size() {
+        return position;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public RecordWriter writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public RecordWriter writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    public RecordWriter writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Беззнаковое целое переменной длины: 7 бит на байт, старший бит - признак продолжения
+     */
+    public RecordWriter writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Знаковое целое переменной длины в кодировке zigzag
+     */
+    public RecordWriter writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public RecordWriter writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        return writeBytes(bytes);
+    }
+
+    /**
+     * Запись содержимого буфера с префиксом длины
+     * @param out поток вывода
+     * @throws IOException при ошибке записи
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        long length = position;
+        while ((length & ~0x7FL) != 0) {
+            out.write((int) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        out.write((int) length);
+        out.write(buffer, 0, position);
+    }
+
+    private void ensure(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
\ No newline at end of file
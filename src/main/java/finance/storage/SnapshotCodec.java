@@ -0,0 +1,381 @@
+package finance.storage;
+
+import finance.models.Category;
+import finance.models.RecurringRule;
+import finance.models.TransactionType;
+import finance.models.User;
+import finance.models.Wallet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Двоичный формат файлов хранения
+ * Заголовок фиксированной длины: сигнатура вида файла, версия формата, LSN журнала, число записей,
+ * длина и CRC32 тела, CRC32 самого заголовка. Тело - записи с префиксом длины.
+ * Запись пользователя: логин, пароль, категории с бюджетами, транзакции и правила регулярных операций.
+ * Числа кодируются varint, даты и идентификаторы транзакций - разностью с предыдущей транзакцией.
+ * Тело читается только после проверки его контрольной суммы, поэтому поврежденный файл
+ * не дает ни одной записи
+ */
+public final class SnapshotCodec {
+    /** Полный снимок всех пользователей с кошельками */
+    public static final int SNAPSHOT = 0x464E5342;
+    /** Индекс учетных записей без кошельков */
+    public static final int INDEX = 0x464E5349;
+    /** Кошелек одного пользователя */
+    public static final int WALLET = 0x464E5357;
+
+    static final short VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int FLAG_INCOME = 1;
+    // У правила регулярной операции задан последний срок; в индексе - задан срок повторения
+    private static final int FLAG_UNTIL = 4;
+
+    /**
+     * Кодирование одного элемента в запись
+     */
+    @FunctionalInterface
+    public interface Encoder<T> {
+        void encode(RecordWriter out, T item);
+    }
+
+    /**
+     * Обработка одной прочитанной записи
+     */
+    @FunctionalInterface
+    public interface Decoder {
+        void decode(RecordReader in) throws IOException;
+    }
+
+    /**
+     * Загруженный снимок
+     */
+    public static final class Snapshot {
+        private final Map<String, User> users;
+        private final long lsn;
+
+        Snapshot(Map<String, User> users, long lsn) {
+            this.users = users;
+            this.lsn = lsn;
+        }
+
+        public Map<String, User> getUsers() { return users; }
+        public long getLsn() { return lsn; }
+    }
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Запись полного снимка пользователей
+     * @param target путь к файлу снимка
+     * @param users пользователи
+     * @param lsn номер последней записи журнала, учтенной в снимке
+     * @throws IOException при ошибке записи
+     */
+    public static void save(Path target, Collection<User> users, long lsn) throws IOException {
+        writeFile(target, SNAPSHOT, lsn, users, SnapshotCodec::encodeUser);
+    }
+
+    /**
+     * Чтение полного снимка пользователей
+     * @param path путь к файлу снимка
+     * @return загруженный снимок
+     * @throws IOException если файл поврежден или имеет неизвестную версию
+     */
+    public static Snapshot load(Path path) throws IOException {
+        Map<String, User> users = new HashMap<>();
+        long lsn = readFile(path, SNAPSHOT, in -> {
+            User user = decodeUser(in);
+            users.put(user.getLogin(), user);
+        });
+        return new Snapshot(users, lsn);
+    }
+
+    /**
+     * Запись файла во временный файл с последующей атомарной заменой целевого
+     * @param target путь к файлу
+     * @param magic сигнатура вида файла
+     * @param lsn номер последней записи журнала, учтенной в файле
+     * @param items элементы, каждый кодируется в отдельную запись
+     * @param encoder кодировщик элемента
+     * @return размер записанного файла в байтах
+     * @throws IOException при ошибке записи
+     */
+    public static <T> long writeFile(Path target, int magic, long lsn, Collection<T> items,
+                                     Encoder<T> encoder) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            OutputStream out = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc);
+
+            RecordWriter record = new RecordWriter(BUFFER_SIZE);
+            int count = 0;
+            for (T item : items) {
+                encoder.encode(record.reset(), item);
+                record.writeTo(out);
+                count++;
+            }
+            out.flush();
+            long bodyLength = channel.position() - HEADER_SIZE;
+            size = HEADER_SIZE + bodyLength;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(magic).putShort(VERSION).putShort((short) 0).putLong(lsn)
+                  .putInt(count).putLong(bodyLength).putInt((int) crc.getValue());
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, HEADER_SIZE - 4);
+            header.putInt((int) headerCrc.getValue()).flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Чтение файла с проверкой сигнатуры, версии и контрольных сумм
+     * @param path путь к файлу
+     * @param magic ожидаемая сигнатура вида файла
+     * @param decoder обработчик записей
+     * @return LSN журнала, сохраненный в заголовке
+     * @throws IOException если файл поврежден или имеет неизвестную версию
+     */
+    public static long readFile(Path path, int magic, Decoder decoder) throws IOException {
+        long lsn;
+        int count;
+        try (InputStream file = Files.newInputStream(path)) {
+            ByteBuffer header = ByteBuffer.wrap(file.readNBytes(HEADER_SIZE));
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) != magic) {
+                throw new IOException("Файл имеет неверный формат: " + path);
+            }
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, HEADER_SIZE - 4);
+            if ((int) headerCrc.getValue() != header.getInt(HEADER_SIZE - 4)) {
+                throw new IOException("Поврежден заголовок файла: " + path);
+            }
+            header.position(4);
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия формата: " + version);
+            }
+            header.getShort();
+            lsn = header.getLong();
+            count = header.getInt();
+            long bodyLength = header.getLong();
+            int bodyCrc = header.getInt();
+
+            // Первый проход только проверяет тело: записи поврежденного файла не передаются decoder
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[BUFFER_SIZE];
+            long length = 0;
+            for (int read; (read = file.read(chunk)) > 0; ) {
+                crc.update(chunk, 0, read);
+                length += read;
+            }
+            if (length != bodyLength || (int) crc.getValue() != bodyCrc) {
+                throw new IOException("Контрольная сумма не совпадает (ожидалось байт: " + bodyLength + "): " + path);
+            }
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            in.skipNBytes(HEADER_SIZE);
+            RecordReader record = new RecordReader();
+            for (int i = 0; i < count; i++) {
+                if (!record.readFrom(in)) {
+                    throw new IOException("Файл оборван: прочитано записей " + i + " из " + count + ": " + path);
+                }
+                decoder.decode(record);
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Кодирование пользователя вместе с кошельком
+     * @param out буфер записи
+     * @param user пользователь
+     */
+    public static void encodeUser(RecordWriter out, User user) {
+        out.writeString(user.getLogin());
+        out.writeString(user.getPassword());
+        encodeWallet(out, user.getWallet());
+    }
+
+    /**
+     * Декодирование пользователя вместе с кошельком
+     * @param in запись
+     * @return пользователь
+     * @throws IOException если запись повреждена
+     */
+    public static User decodeUser(RecordReader in) throws IOException {
+        User user = new User(in.readString(), in.readString());
+        user.setWallet(decodeWallet(in));
+        user.setRecurringDue(user.getWallet().getNextRecurringFire());
+        return user;
+    }
+
+    /**
+     * Кодирование учетных данных пользователя и срока повторения его регулярных операций без кошелька
+     */
+    public static void encodeCredentials(RecordWriter out, User user) {
+        out.writeString(user.getLogin());
+        out.writeString(user.getPassword());
+        LocalDateTime due = user.getRecurringDue();
+        out.writeByte(due != null ? FLAG_UNTIL : 0);
+        if (due != null) {
+            writeDate(out, due);
+        }
+    }
+
+    /**
+     * Декодирование учетных данных; кошелек не загружается
+     */
+    public static User decodeCredentials(RecordReader in) throws IOException {
+        User user = new User(in.readString(), in.readString(), null);
+        if ((in.readByte() & FLAG_UNTIL) != 0) {
+            user.setRecurringDue(readDate(in));
+        }
+        return user;
+    }
+
+    public static void encodeWallet(RecordWriter out, Wallet wallet) {
+        out.writeVarLong(wallet.getCategories().size());
+        for (Category category : wallet.getCategories()) {
+            out.writeString(category.getName());
+            out.writeByte(category.isBudgeted() ? 1 : 0);
+            out.writeSignedVarLong(category.getBudgeting());
+        }
+
+        out.writeVarLong(wallet.getTransactionCount());
+        long[] previous = { 0, 0 };
+        wallet.forEachTransaction((id, type, categoryId, amount, date, description) -> {
+            out.writeByte(type == TransactionType.INCOME ? FLAG_INCOME : 0);
+            out.writeSignedVarLong(id - previous[0]);
+            out.writeVarLong(categoryId);
+            out.writeSignedVarLong(amount);
+            out.writeSignedVarLong(date - previous[1]);
+            out.writeString(description);
+            previous[0] = id;
+            previous[1] = date;
+        });
+
+        List<RecurringRule> rules = wallet.getRecurringRules();
+        out.writeVarLong(rules.size());
+        for (RecurringRule rule : rules) {
+            encodeRule(out, rule);
+        }
+    }
+
+    public static Wallet decodeWallet(RecordReader in) throws IOException {
+        Wallet wallet = new Wallet();
+        int categoryCount = in.readVarInt();
+        for (int i = 0; i < categoryCount; i++) {
+            String name = in.readString();
+            boolean budgeted = in.readByte() != 0;
+            wallet.restoreCategory(name, budgeted, in.readSignedVarLong());
+        }
+
+        int transactionCount = in.readVarInt();
+        long id = 0;
+        long date = 0;
+        for (int i = 0; i < transactionCount; i++) {
+            int flags = in.readByte();
+            id += in.readSignedVarLong();
+            int categoryId = in.readVarInt();
+            if (categoryId >= categoryCount) {
+                throw new IOException("Некорректная категория транзакции: " + categoryId);
+            }
+            long amount = in.readSignedVarLong();
+            date += in.readSignedVarLong();
+            TransactionType type = (flags & FLAG_INCOME) != 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+            wallet.restoreTransaction(id, type, categoryId, amount, date, in.readString());
+        }
+
+        int ruleCount = in.readVarInt();
+        for (int i = 0; i < ruleCount; i++) {
+            wallet.putRecurringRule(decodeRule(in));
+        }
+        return wallet;
+    }
+
+    private static void encodeRule(RecordWriter out, RecurringRule rule) {
+        out.writeSignedVarLong(rule.getId());
+        out.writeByte((rule.getType() == TransactionType.INCOME ? FLAG_INCOME : 0)
+                | (rule.getUntil() != null ? FLAG_UNTIL : 0));
+        out.writeString(rule.getCategory());
+        out.writeSignedVarLong(rule.getAmountMinor());
+        out.writeString(rule.getDescription());
+        out.writeByte(rule.getFrequency().ordinal());
+        out.writeVarLong(rule.getInterval());
+        writeDate(out, rule.getStart());
+        if (rule.getUntil() != null) {
+            writeDate(out, rule.getUntil());
+        }
+        out.writeVarLong(rule.getFired());
+    }
+
+    private static RecurringRule decodeRule(RecordReader in) throws IOException {
+        long id = in.readSignedVarLong();
+        int flags = in.readByte();
+        String category = in.readString();
+        long amount = in.readSignedVarLong();
+        String description = in.readString();
+        int frequency = in.readByte();
+        if (frequency >= RecurringRule.Frequency.values().length) {
+            throw new IOException("Некорректная периодичность правила: " + frequency);
+        }
+        int interval = in.readVarInt();
+        LocalDateTime start = readDate(in);
+        LocalDateTime until = (flags & FLAG_UNTIL) != 0 ? readDate(in) : null;
+        TransactionType type = (flags & FLAG_INCOME) != 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+        try {
+            return new RecurringRule(id, type, category, amount, description,
+                    RecurringRule.Frequency.values()[frequency], interval, start, until, in.readVarLong());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректное правило регулярной операции: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeDate(RecordWriter out, LocalDateTime date) {
+        out.writeSignedVarLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.writeVarLong(date.getNano());
+    }
+
+    private static LocalDateTime readDate(RecordReader in) throws IOException {
+        long seconds = in.readSignedVarLong();
+        int nanos = in.readVarInt();
+        if (nanos >= 1_000_000_000) {
+            throw new IOException("Некорректная дата: " + nanos);
+        }
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
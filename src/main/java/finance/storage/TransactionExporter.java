@@ -0,0 +1,107 @@
+package finance.storage;
+
+import finance.models.Category;
+import finance.models.TransactionView;
+import finance.models.Wallet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Потоковый экспорт транзакций и сумм по категориям кошелька
+ * Строки кошелька обходятся без создания объектов Transaction и пишутся в канал
+ * через буферы фиксированного размера, поэтому расход памяти не зависит от размера кошелька
+ */
+public final class TransactionExporter {
+
+    private TransactionExporter() {
+    }
+
+    /**
+     * Экспорт всех транзакций снимка кошелька в порядке добавления
+     * Снимок не требует блокировки кошелька, поэтому запись файла не задерживает изменения
+     * CSV: id,date,type,category,amount,description - файл читается импортом выписок
+     * @param transactions снимок транзакций кошелька
+     * @param channel канал для записи
+     * @param format формат файла
+     * @return количество записанных транзакций
+     * @throws IOException при ошибке записи
+     */
+    public static long writeTransactions(TransactionView transactions, WritableByteChannel channel,
+                                         ExportFormat format) throws IOException {
+        ChannelTextWriter out = new ChannelTextWriter(channel);
+        long[] count = { 0 };
+        if (format == ExportFormat.CSV) {
+            out.append("id,date,type,category,amount,description\n");
+        }
+        try {
+            transactions.forEachTransaction((id, type, categoryId, amount, date, description) -> {
+                try {
+                    String category = transactions.getCategoryName(categoryId);
+                    if (format == ExportFormat.CSV) {
+                        out.appendLong(id).append(',').appendDate(date).append(',')
+                           .append(type.name()).append(',').appendCsv(category).append(',')
+                           .appendAmount(amount).append(',').appendCsv(description).append('\n');
+                    } else {
+                        out.append("{\"id\":\"").appendLong(id)
+                           .append("\",\"date\":\"").appendDate(date)
+                           .append("\",\"type\":\"").append(type.name())
+                           .append("\",\"category\":").appendJson(category)
+                           .append(",\"amount\":").appendAmount(amount)
+                           .append(",\"description\":").appendJson(description).append("}\n");
+                    }
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return count[0];
+    }
+
+    /**
+     * Экспорт сумм доходов, расходов и бюджетов по категориям
+     * CSV: category,income,expense,budget; у категорий без бюджета поле бюджета пустое (в JSON - null)
+     * @param wallet кошелек
+     * @param channel канал для записи
+     * @param format формат файла
+     * @return количество записанных категорий
+     * @throws IOException при ошибке записи
+     */
+    public static int writeCategoryTotals(Wallet wallet, WritableByteChannel channel, ExportFormat format)
+            throws IOException {
+        ChannelTextWriter out = new ChannelTextWriter(channel);
+        if (format == ExportFormat.CSV) {
+            out.append("category,income,expense,budget\n");
+        }
+        int count = 0;
+        for (Category category : wallet.getCategories()) {
+            if (format == ExportFormat.CSV) {
+                out.appendCsv(category.getName()).append(',').appendAmount(category.getEarned()).append(',')
+                   .appendAmount(category.getUsed()).append(',');
+                if (category.isBudgeted()) {
+                    out.appendAmount(category.getBudgeting());
+                }
+                out.append('\n');
+            } else {
+                out.append("{\"category\":").appendJson(category.getName())
+                   .append(",\"income\":").appendAmount(category.getEarned())
+                   .append(",\"expense\":").appendAmount(category.getUsed())
+                   .append(",\"budget\":");
+                if (category.isBudgeted()) {
+                    out.appendAmount(category.getBudgeting());
+                } else {
+                    out.append("null");
+                }
+                out.append("}\n");
+            }
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+}
@@ -0,0 +1,786 @@
+package finance.storage;
+
+import finance.models.RecurringRule;
+import finance.models.Transaction;
+import finance.models.TransactionType;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал операций с упреждающей записью (write-ahead log)
+ * Каждая мутация дописывается в конец файла компактной записью и сбрасывается на диск,
+ * поэтому стоимость записи зависит от размера изменения, а не от объема всех данных.
+ * Записи одного пакета образуют один кадр: длина (int), тело, CRC32 тела (int).
+ * Тело начинается с номера первой записи (LSN) и количества записей, поэтому пакет
+ * при восстановлении применяется либо целиком, либо не применяется вовсе.
+ * Запись на диск выполняет один фоновый поток: кадры, поставленные в очередь за интервал
+ * группировки, дописываются вместе и сбрасываются на диск одним вызовом (group commit).
+ * Вызывающий поток сам решает, ждать ли сброса своей записи на диск.
+ * После контрольной точки журнал начинается с пустого кадра-метки, номер первой записи которого
+ * продолжает нумерацию: после перезапуска номера записей не начинаются заново и не оказываются
+ * меньше номеров, уже сохраненных в файлах кошельков
+ */
+public class TransactionJournal implements Closeable {
+    // Строки записей хранятся длиной varint и байтами UTF-8, поэтому допускают null и длину больше 64 КБ;
+    // суммы - в минимальных единицах, varint в кодировке zigzag
+    private static final byte OP_REGISTER = 1;
+    private static final byte OP_TRANSACTION = 2;
+    private static final byte OP_BUDGET = 3;
+    private static final byte OP_REMOVE = 4;
+    // Правило регулярной операции целиком, включая счетчик выполненных повторений
+    private static final byte OP_RECURRING_RULE = 5;
+    private static final byte OP_REMOVE_RECURRING_RULE = 6;
+
+    private final Path path;
+    // Заменяется при очистке журнала; поток записи читает поле под монитором
+    private FileChannel channel;
+    private final long commitIntervalNanos;
+    private final int maxGroupRecords;
+    private final Thread writer;
+    private final List<ByteBuffer> pending = new ArrayList<>();
+    private int pendingRecords;
+    private boolean writing;
+    // Файл журнала заменяется при удалении учтенных кадров; поток записи ждет окончания замены
+    private boolean rotating;
+    private boolean closed;
+    private IOException failure;
+    private volatile FlushListener flushListener;
+    private long lastLsn;
+    private long durableLsn;
+    private int recordCount;
+    // Границы записанных кадров по порядку: смещение конца кадра в файле и номер его последней записи
+    private final ArrayDeque<FrameEnd> frames = new ArrayDeque<>();
+
+    private record FrameEnd(long offset, long lsn) { }
+
+    /**
+     * Обработчик записей журнала при восстановлении
+     * Каждый вызов получает номер записи (LSN), чтобы получатель мог пропустить уже учтенные записи
+     */
+    public interface Handler {
+        void onRegister(long lsn, String login, String password);
+        void onTransaction(long lsn, String login, Transaction transaction);
+        void onBudget(long lsn, String login, String category, long amount);
+        void onRemove(long lsn, String login, long id);
+        void onRecurringRule(long lsn, String login, RecurringRule rule);
+        void onRemoveRecurringRule(long lsn, String login, long id);
+    }
+
+    /**
+     * Получатель сведений о каждом сбросе группы кадров на диск
+     * Вызывается в потоке записи
+     */
+    @FunctionalInterface
+    public interface FlushListener {
+        void onFlush(int records, long bytes, long nanos);
+    }
+
+    /**
+     * Открытие журнала для дозаписи и запуск фонового потока записи
+     * @param path путь к файлу журнала
+     * @param commitIntervalMillis сколько поток записи ждет новых кадров перед сбросом на диск;
+     *                             при 0 группа собирается из кадров, поступивших во время предыдущего сброса
+     * @param maxGroupRecords число записей, при накоплении которого сброс выполняется не дожидаясь интервала
+     * @throws IOException если файл не удалось открыть
+     */
+    public TransactionJournal(Path path, long commitIntervalMillis, int maxGroupRecords) throws IOException {
+        this.path = path;
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.maxGroupRecords = maxGroupRecords;
+        this.channel = open(path);
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Создание пакета записей, который будет записан и сброшен на диск одной операцией
+     * @return новый пустой пакет
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    public void setFlushListener(FlushListener listener) {
+        this.flushListener = listener;
+    }
+
+    /**
+     * Номер последней записанной записи
+     * @return LSN последней записи или 0 если журнал пуст
+     */
+    public synchronized long getLastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * Ожидание сброса на диск всех записей до указанной включительно
+     * @param lsn номер записи
+     * @throws IOException если запись журнала завершилась ошибкой или ожидание прервано
+     */
+    public synchronized void awaitDurable(long lsn) throws IOException {
+        while (durableLsn < lsn && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Ожидание записи журнала прервано");
+            }
+        }
+        if (durableLsn < lsn) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Количество записей в журнале с момента последней контрольной точки
+     * @return число записей
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Воспроизведение журнала поверх загруженного снимка
+     * Записи с LSN не больше snapshotLsn уже учтены в снимке и пропускаются.
+     * Оборванная или поврежденная запись в конце файла отбрасывается
+     * @param snapshotLsn LSN, на котором был сделан снимок
+     * @param handler обработчик записей
+     * @return количество примененных записей
+     * @throws IOException при ошибке чтения
+     */
+    public synchronized int replay(long snapshotLsn, Handler handler) throws IOException {
+        lastLsn = Math.max(lastLsn, snapshotLsn);
+        awaitIdle();
+        recordCount = 0;
+        frames.clear();
+        long validLength = 0;
+        int applied = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] payload = readFrame(in);
+                if (payload == null) {
+                    break;
+                }
+                validLength += payload.length + 8;
+
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+                long firstLsn = frame.readLong();
+                int count = frame.readInt();
+                for (int i = 0; i < count; i++) {
+                    long lsn = firstLsn + i;
+                    boolean pending = lsn > snapshotLsn;
+                    apply(frame, lsn, pending ? handler : null);
+                    if (pending) {
+                        applied++;
+                    }
+                }
+                recordCount += count;
+                lastLsn = Math.max(lastLsn, firstLsn + count - 1);
+                frames.add(new FrameEnd(validLength, firstLsn + count - 1));
+            }
+        }
+
+        if (validLength < channel.size()) {
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        durableLsn = lastLsn;
+        return applied;
+    }
+
+    /**
+     * Удаление из журнала кадров, все записи которых учтены контрольной точкой
+     * Оставшиеся кадры копируются после кадра-метки во временный файл, который атомарно заменяет
+     * журнал, поэтому при сбое остается либо прежний журнал, либо новый целиком. Поток записи
+     * на время копирования приостанавливается, а постановка кадров в очередь продолжается:
+     * они дописываются уже в новый файл
+     * @param lsn номер последней записи, учтенной контрольной точкой
+     * @throws IOException при ошибке записи; журнал в этом случае остается прежним
+     */
+    public void truncateThrough(long lsn) throws IOException {
+        FileChannel source;
+        ByteBuffer marker;
+        long offset = 0;
+        long end;
+        synchronized (this) {
+            while (writing && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Ожидание записи журнала прервано");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            for (FrameEnd frame : frames) {
+                if (frame.lsn() > lsn) {
+                    break;
+                }
+                offset = frame.offset();
+            }
+            recordCount = (int) Math.max(0, lastLsn - lsn);
+            if (offset == 0) {
+                return;
+            }
+            rotating = true;
+            source = channel;
+            end = source.size();
+            marker = marker();
+        }
+
+        long shift = marker.remaining() - offset;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        IOException error = null;
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(out, marker);
+                for (long position = offset; position < end; ) {
+                    position += source.transferTo(position, end - position, out);
+                }
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            error = e;
+        }
+
+        synchronized (this) {
+            try {
+                if (error != null) {
+                    throw error;
+                }
+                try {
+                    channel = open(path);
+                } catch (IOException e) {
+                    // Файл уже заменен, но не открыт: запись в прежний файл потеряла бы кадры
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    throw e;
+                }
+                source.close();
+                while (!frames.isEmpty() && frames.peekFirst().offset() <= offset) {
+                    frames.removeFirst();
+                }
+                List<FrameEnd> retained = new ArrayList<>(frames);
+                frames.clear();
+                frames.add(new FrameEnd(marker.limit(), marker.getLong(4) - 1));
+                for (FrameEnd frame : retained) {
+                    frames.add(new FrameEnd(frame.offset() + shift, frame.lsn()));
+                }
+            } finally {
+                rotating = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Остановка потока записи после сброса всех поставленных в очередь кадров и закрытие файла
+     * @throws IOException при ошибке записи
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Постановка кадра пакета в очередь записи
+     * Номера записей выдаются в момент постановки, поэтому порядок в журнале совпадает
+     * с порядком применения изменений в памяти
+     * @return LSN последней записи пакета
+     */
+    private synchronized long enqueue(Batch batch) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Журнал операций закрыт");
+        }
+        if (batch.count == 0) {
+            return lastLsn;
+        }
+        byte[] payload = batch.buffer.toByteArray();
+        ByteBuffer.wrap(payload).putLong(0, lastLsn + 1).putInt(8, batch.count);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        buffer.flip();
+        pending.add(buffer);
+        pendingRecords += batch.count;
+
+        lastLsn += batch.count;
+        recordCount += batch.count;
+        notifyAll();
+        return lastLsn;
+    }
+
+    /**
+     * Цикл фонового потока записи
+     * Ждет первый кадр, затем до истечения интервала группировки или накопления maxGroupRecords
+     * записей собирает следующие, дописывает все кадры группы и выполняет один сброс на диск
+     */
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer[] group;
+            long groupLsn;
+            int groupRecords;
+            FileChannel target;
+            synchronized (this) {
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        wait();
+                    }
+                    long deadline = System.nanoTime() + commitIntervalNanos;
+                    long left;
+                    while (pendingRecords < maxGroupRecords && !closed
+                            && (left = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, left);
+                    }
+                    while (rotating) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (pending.isEmpty()) {
+                    notifyAll();
+                    return;
+                }
+                group = pending.toArray(new ByteBuffer[0]);
+                groupLsn = lastLsn;
+                groupRecords = pendingRecords;
+                pending.clear();
+                pendingRecords = 0;
+                writing = true;
+                target = channel;
+            }
+
+            IOException error = null;
+            long started = System.nanoTime();
+            long bytes = 0;
+            long start = 0;
+            try {
+                start = target.position();
+                for (ByteBuffer buffer : group) {
+                    bytes += buffer.remaining();
+                }
+                long remaining = bytes;
+                while (remaining > 0) {
+                    remaining -= target.write(group);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            FlushListener listener = flushListener;
+            if (error == null && listener != null) {
+                listener.onFlush(groupRecords, bytes, System.nanoTime() - started);
+            }
+
+            synchronized (this) {
+                writing = false;
+                if (error == null) {
+                    durableLsn = groupLsn;
+                    long offset = start;
+                    for (ByteBuffer buffer : group) {
+                        offset += buffer.limit();
+                        frames.add(new FrameEnd(offset, buffer.getLong(4) + buffer.getInt(12) - 1));
+                    }
+                } else if (failure == null) {
+                    failure = error;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Ожидание, пока очередь записи опустеет; вызывается под монитором журнала
+     */
+    private void awaitIdle() throws IOException {
+        while ((writing || !pending.isEmpty()) && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Ожидание записи журнала прервано");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Пустой кадр-метка: ни одной записи, номер первой записи следует за последним выданным
+     */
+    private ByteBuffer marker() {
+        byte[] payload = new byte[12];
+        ByteBuffer.wrap(payload).putLong(0, lastLsn + 1).putInt(8, 0);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 12) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            int checksum = in.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Разбор одной записи кадра
+     * @param handler обработчик или null если запись уже учтена в снимке и только пропускается
+     */
+    private static void apply(DataInputStream in, long lsn, Handler handler) throws IOException {
+        byte op = in.readByte();
+        String login = readString(in);
+        switch (op) {
+            case OP_REGISTER:
+                String password = readString(in);
+                if (handler != null) {
+                    handler.onRegister(lsn, login, password);
+                }
+                break;
+            case OP_TRANSACTION:
+                Transaction transaction = readTransaction(in);
+                if (handler != null) {
+                    handler.onTransaction(lsn, login, transaction);
+                }
+                break;
+            case OP_REMOVE:
+                long removed = in.readLong();
+                if (handler != null) {
+                    handler.onRemove(lsn, login, removed);
+                }
+                break;
+            case OP_BUDGET:
+                String category = readString(in);
+                long amount = readSignedVarLong(in);
+                if (handler != null) {
+                    handler.onBudget(lsn, login, category, amount);
+                }
+                break;
+            case OP_RECURRING_RULE:
+                RecurringRule rule = readRecurringRule(in);
+                if (handler != null) {
+                    handler.onRecurringRule(lsn, login, rule);
+                }
+                break;
+            case OP_REMOVE_RECURRING_RULE:
+                long ruleId = in.readLong();
+                if (handler != null) {
+                    handler.onRemoveRecurringRule(lsn, login, ruleId);
+                }
+                break;
+            default:
+                throw new IOException("Неизвестный тип записи журнала: " + op);
+        }
+    }
+
+    private static Transaction readTransaction(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        TransactionType type = TransactionType.values()[in.readByte()];
+        String category = readString(in);
+        long amount = readSignedVarLong(in);
+        String description = readString(in);
+        return new Transaction(id, type, category, amount, description, readDate(in));
+    }
+
+    private static RecurringRule readRecurringRule(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        TransactionType type = TransactionType.values()[in.readByte()];
+        String category = readString(in);
+        long amount = readSignedVarLong(in);
+        String description = readString(in);
+        RecurringRule.Frequency frequency = RecurringRule.Frequency.values()[in.readByte()];
+        int interval = in.readInt();
+        LocalDateTime start = readDate(in);
+        LocalDateTime until = in.readBoolean() ? readDate(in) : null;
+        try {
+            return new RecurringRule(id, type, category, amount, description, frequency, interval, start, until,
+                    in.readLong());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректное правило регулярной операции: " + e.getMessage(), e);
+        }
+    }
+
+    private static LocalDateTime readDate(DataInput in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeDate(DataOutput out, LocalDateTime date) throws IOException {
+        out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(date.getNano());
+    }
+
+    /**
+     * Чтение строки записи: длина varint (0 для null, иначе длина + 1) и байты UTF-8
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.available()) {
+            throw new IOException("Некорректная длина строки в записи журнала");
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static long readSignedVarLong(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число в записи журнала");
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Пакет записей журнала
+     * Все записи пакета дописываются одним кадром; кадр сбрасывается на диск вместе
+     * с другими кадрами своей группы
+     */
+    public final class Batch {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private int count;
+
+        private Batch() {
+            reset();
+        }
+
+        public Batch register(String login, String password) {
+            try {
+                begin(OP_REGISTER, login);
+                writeString(out, password);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        public Batch transaction(String login, Transaction transaction) {
+            try {
+                begin(OP_TRANSACTION, login);
+                out.writeLong(transaction.getId());
+                out.writeByte(transaction.getType().ordinal());
+                writeString(out, transaction.getCategory());
+                writeSignedVarLong(out, transaction.getAmountMinor());
+                writeString(out, transaction.getDescription());
+                writeDate(out, transaction.getDate());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        public Batch remove(String login, long id) {
+            try {
+                begin(OP_REMOVE, login);
+                out.writeLong(id);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Установка бюджета
+         * @param amount сумма бюджета в минимальных единицах
+         */
+        public Batch budget(String login, String category, long amount) {
+            try {
+                begin(OP_BUDGET, login);
+                writeString(out, category);
+                writeSignedVarLong(out, amount);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Добавление или новое состояние правила регулярной операции
+         */
+        public Batch recurringRule(String login, RecurringRule rule) {
+            try {
+                begin(OP_RECURRING_RULE, login);
+                out.writeLong(rule.getId());
+                out.writeByte(rule.getType().ordinal());
+                writeString(out, rule.getCategory());
+                writeSignedVarLong(out, rule.getAmountMinor());
+                writeString(out, rule.getDescription());
+                out.writeByte(rule.getFrequency().ordinal());
+                out.writeInt(rule.getInterval());
+                writeDate(out, rule.getStart());
+                out.writeBoolean(rule.getUntil() != null);
+                if (rule.getUntil() != null) {
+                    writeDate(out, rule.getUntil());
+                }
+                out.writeLong(rule.getFired());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        public Batch removeRecurringRule(String login, long id) {
+            try {
+                begin(OP_REMOVE_RECURRING_RULE, login);
+                out.writeLong(id);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * Постановка пакета в очередь записи без ожидания сброса на диск
+         * @return LSN последней записи пакета; передается в awaitDurable для ожидания сброса
+         * @throws IOException если журнал закрыт или предыдущая запись завершилась ошибкой
+         */
+        public long append() throws IOException {
+            long lsn = enqueue(this);
+            reset();
+            return lsn;
+        }
+
+        /**
+         * Запись пакета в журнал с ожиданием сброса на диск
+         * @throws IOException при ошибке записи
+         */
+        public void commit() throws IOException {
+            awaitDurable(append());
+        }
+
+        private void begin(byte op, String login) throws IOException {
+            out.writeByte(op);
+            writeString(out, login);
+            count++;
+        }
+
+        private void reset() {
+            buffer.reset();
+            count = 0;
+            try {
+                out.writeLong(0L);
+                out.writeInt(0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
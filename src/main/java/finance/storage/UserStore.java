@@ -0,0 +1,165 @@
+package finance.storage;
+
+import finance.models.User;
+import finance.models.Wallet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранилище данных с разбиением по пользователям
+ * Индекс учетных записей (логины и пароли) хранится в одном небольшом файле и всегда загружен.
+ * Кошелек каждого пользователя лежит в отдельном файле и читается только по требованию.
+ * Файлы кошельков распределены по подкаталогам по хешу логина
+ */
+public class UserStore {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path index;
+    private final Path wallets;
+
+    /**
+     * Кошелек, прочитанный из файла
+     */
+    public static final class StoredWallet {
+        private final Wallet wallet;
+        private final long lsn;
+
+        StoredWallet(Wallet wallet, long lsn) {
+            this.wallet = wallet;
+            this.lsn = lsn;
+        }
+
+        public Wallet getWallet() { return wallet; }
+        /** Номер последней записи журнала, учтенной в файле кошелька */
+        public long getLsn() { return lsn; }
+    }
+
+    /**
+     * @param root каталог хранилища
+     * @throws IOException если каталог не удалось создать
+     */
+    public UserStore(Path root) throws IOException {
+        this.index = root.resolve("index.bin");
+        this.wallets = root.resolve("wallets");
+        Files.createDirectories(wallets);
+    }
+
+    public boolean hasIndex() {
+        return Files.exists(index);
+    }
+
+    /**
+     * Загрузка индекса учетных записей
+     * @param users словарь, в который добавляются пользователи без загруженных кошельков
+     * @return LSN журнала, учтенный в индексе
+     * @throws IOException при ошибке чтения
+     */
+    public long loadIndex(Map<String, User> users) throws IOException {
+        return SnapshotCodec.readFile(index, SnapshotCodec.INDEX, in -> {
+            User user = SnapshotCodec.decodeCredentials(in);
+            users.put(user.getLogin(), user);
+        });
+    }
+
+    /**
+     * Запись индекса учетных записей
+     * @return размер файла в байтах
+     */
+    public long saveIndex(Collection<User> users, long lsn) throws IOException {
+        return SnapshotCodec.writeFile(index, SnapshotCodec.INDEX, lsn, users, SnapshotCodec::encodeCredentials);
+    }
+
+    /**
+     * Чтение кошелька пользователя
+     * @param login логин пользователя
+     * @return кошелек с LSN или null если файл кошелька еще не создавался
+     * @throws IOException при ошибке чтения
+     */
+    public StoredWallet loadWallet(String login) throws IOException {
+        Path path = walletPath(login);
+        if (Files.notExists(path)) {
+            return null;
+        }
+        Wallet[] wallet = new Wallet[1];
+        long lsn = SnapshotCodec.readFile(path, SnapshotCodec.WALLET,
+                in -> wallet[0] = SnapshotCodec.decodeWallet(in));
+        return new StoredWallet(wallet[0] != null ? wallet[0] : new Wallet(), lsn);
+    }
+
+    /**
+     * Запись кошелька пользователя (временный файл и атомарное переименование)
+     * @param login логин пользователя
+     * @param wallet кошелек
+     * @param lsn номер последней записи журнала, учтенной в кошельке
+     * @return размер файла в байтах
+     * @throws IOException при ошибке записи
+     */
+    public long saveWallet(String login, Wallet wallet, long lsn) throws IOException {
+        Path path = walletPath(login);
+        Files.createDirectories(path.getParent());
+        return SnapshotCodec.writeFile(path, SnapshotCodec.WALLET, lsn, List.of(wallet), SnapshotCodec::encodeWallet);
+    }
+
+    /**
+     * Кодирование кошелька в запись файла кошелька
+     * Позволяет снять копию кошелька под блокировкой, а записать файл позже, без нее
+     * @param wallet кошелек
+     * @return закодированная запись
+     */
+    public static byte[] encodeWallet(Wallet wallet) {
+        RecordWriter record = new RecordWriter();
+        SnapshotCodec.encodeWallet(record, wallet);
+        return record.toByteArray();
+    }
+
+    /**
+     * Запись ранее закодированного кошелька, см. encodeWallet
+     * @param login логин пользователя
+     * @param record закодированный кошелек
+     * @param lsn номер последней записи журнала, учтенной в кошельке
+     * @return размер файла в байтах
+     * @throws IOException при ошибке записи
+     */
+    public long saveWallet(String login, byte[] record, long lsn) throws IOException {
+        Path path = walletPath(login);
+        Files.createDirectories(path.getParent());
+        return SnapshotCodec.writeFile(path, SnapshotCodec.WALLET, lsn, List.of(record), RecordWriter::writeBytes);
+    }
+
+    /**
+     * Однократное разбиение полного снимка на индекс и файлы кошельков
+     * @param snapshot путь к полному снимку
+     * @return количество перенесенных пользователей
+     * @throws IOException при ошибке чтения или записи
+     */
+    public int importSnapshot(Path snapshot) throws IOException {
+        SnapshotCodec.Snapshot loaded = SnapshotCodec.load(snapshot);
+        for (User user : loaded.getUsers().values()) {
+            saveWallet(user.getLogin(), user.getWallet(), loaded.getLsn());
+        }
+        saveIndex(loaded.getUsers().values(), loaded.getLsn());
+        return loaded.getUsers().size();
+    }
+
+    /**
+     * Путь к файлу кошелька: подкаталог по младшему байту хеша и логин в шестнадцатеричном виде,
+     * чтобы любой логин давал допустимое имя файла в любой файловой системе
+     */
+    private Path walletPath(String login) {
+        byte[] bytes = login.getBytes(StandardCharsets.UTF_8);
+        char[] name = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            name[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            name[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        int shard = login.hashCode() & 0xFF;
+        return wallets.resolve(new String(new char[] { HEX[shard >> 4], HEX[shard & 0xF] }))
+                      .resolve(new String(name) + ".bin");
+    }
+}
\ No newline at end of file
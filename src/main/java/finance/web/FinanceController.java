@@ -0,0 +1,296 @@
+package finance.web;
+
+import finance.models.RecurringRule;
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.TransferRequest;
+import finance.service.ManageService;
+import finance.service.Session;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JSON API сервиса управления финансами
+ * Авторизация по токену сессии: POST /api/login возвращает токен, остальные запросы
+ * передают его в заголовке "Authorization: Bearer &lt;токен&gt;"
+ */
+@RestController
+@RequestMapping("/api")
+public class FinanceController {
+    private static final String BEARER = "Bearer ";
+
+    private final ManageService financeManager;
+
+    public FinanceController(ManageService financeManager) {
+        this.financeManager = financeManager;
+    }
+
+    /** Учетные данные пользователя */
+    public record Credentials(String login, String password) { }
+
+    /** Токен новой сессии */
+    public record Token(String token) { }
+
+    /** Операция дохода или расхода; description не обязателен */
+    public record Operation(String category, double amount, String description) {
+        public Operation {
+            description = description == null ? "" : description;
+        }
+    }
+
+    /** Сумма бюджета категории */
+    public record Budget(double amount) { }
+
+    /** Перевод другому пользователю; description не обязателен */
+    public record Transfer(String to, double amount, String description) {
+        public Transfer {
+            description = description == null ? "" : description;
+        }
+    }
+
+    /** Правило регулярной операции; description и until не обязательны */
+    public record Recurring(TransactionType type, String category, double amount, String description,
+                            RecurringRule.Frequency frequency, int interval, LocalDateTime start,
+                            LocalDateTime until) {
+        public Recurring {
+            description = description == null ? "" : description;
+        }
+    }
+
+    /** Идентификатор созданного правила */
+    public record RuleId(long id) { }
+
+    /** Сводная статистика пользователя */
+    public record Statistics(double income, double expense, double balance,
+                             Map<String, Double> incomeByCategory,
+                             Map<String, Double> expensesByCategory,
+                             Map<String, Double> budgets) { }
+
+    /** Описание ошибки */
+    public record ErrorBody(String error) { }
+
+    @PostMapping("/register")
+    public ResponseEntity<Void> register(@RequestBody Credentials credentials) {
+        requireCredentials(credentials);
+        if (!financeManager.register(credentials.login(), credentials.password())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Пользователь уже существует");
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @PostMapping("/login")
+    public Token login(@RequestBody Credentials credentials) {
+        requireCredentials(credentials);
+        Session session = financeManager.login(credentials.login(), credentials.password());
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Неверный логин или пароль");
+        }
+        return new Token(session.getToken());
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        financeManager.logout(session(authorization));
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/income")
+    public ResponseEntity<Void> addIncome(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                          @RequestBody Operation operation) {
+        requireCategory(operation);
+        financeManager.addIncome(session(authorization), operation.category(), operation.amount(),
+                operation.description());
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @PostMapping("/expense")
+    public ResponseEntity<Void> addExpense(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                           @RequestBody Operation operation) {
+        requireCategory(operation);
+        financeManager.addExpense(session(authorization), operation.category(), operation.amount(),
+                operation.description());
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @PutMapping("/budgets/{category}")
+    public ResponseEntity<Void> setBudget(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                          @PathVariable String category, @RequestBody Budget budget) {
+        financeManager.setBudget(session(authorization), category, budget.amount());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/transfers")
+    public ResponseEntity<Void> transfer(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                         @RequestBody List<Transfer> transfers) {
+        if (transfers.stream().anyMatch(t -> t == null || t.to() == null)) {
+            throw new IllegalArgumentException("Получатель перевода обязателен");
+        }
+        List<TransferRequest> requests = transfers.stream()
+                .map(t -> new TransferRequest(t.to(), t.amount(), t.description()))
+                .collect(Collectors.toList());
+        if (!financeManager.transferBatch(session(authorization), requests)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Получатель не найден или недостаточно средств");
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @GetMapping("/statistics")
+    public Statistics statistics(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        Session session = session(authorization);
+        return new Statistics(financeManager.getTotalIncome(session), financeManager.getTotalExpense(session),
+                financeManager.getBalance(session), financeManager.getIncomeByCategory(session),
+                financeManager.getExpensesByCategory(session), financeManager.getBudgets(session));
+    }
+
+    @GetMapping("/statistics/{month}")
+    public Map<String, Double> monthTotals(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                           @PathVariable YearMonth month,
+                                           @RequestParam(defaultValue = "EXPENSE") TransactionType type) {
+        return financeManager.getCategoryTotals(session(authorization), type, month);
+    }
+
+    @GetMapping("/transactions")
+    public List<Transaction> recentTransactions(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                @RequestParam(defaultValue = "20") int count) {
+        return financeManager.getRecentTransactions(session(authorization), count);
+    }
+
+    @GetMapping("/transactions/search")
+    public List<Transaction> searchTransactions(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                @RequestParam(defaultValue = "") String q,
+                                                @RequestParam(required = false) TransactionType type,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        return financeManager.searchTransactions(session(authorization), q, type,
+                from == null ? null : from.atStartOfDay(), to == null ? null : to.plusDays(1).atStartOfDay(), limit);
+    }
+
+    @GetMapping("/transactions/{id}")
+    public Transaction transaction(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                   @PathVariable long id) {
+        Transaction transaction = financeManager.getTransaction(session(authorization), id);
+        if (transaction == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Транзакция не найдена");
+        }
+        return transaction;
+    }
+
+    @DeleteMapping("/transactions/{id}")
+    public ResponseEntity<Void> removeTransaction(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                  @PathVariable long id) {
+        if (!financeManager.removeTransaction(session(authorization), id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Транзакция не найдена");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/recurring")
+    public List<RecurringRule> recurringRules(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        return financeManager.getRecurringRules(session(authorization));
+    }
+
+    @PostMapping("/recurring")
+    public ResponseEntity<RuleId> addRecurringRule(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                   @RequestBody Recurring rule) {
+        if (rule.type() == null || rule.category() == null || rule.frequency() == null || rule.start() == null) {
+            throw new IllegalArgumentException("Тип, категория, периодичность и начало обязательны");
+        }
+        long id = financeManager.addRecurringRule(session(authorization), rule.type(), rule.category(),
+                rule.amount(), rule.description(), rule.frequency(), rule.interval() == 0 ? 1 : rule.interval(),
+                rule.start(), rule.until());
+        return ResponseEntity.status(HttpStatus.CREATED).body(new RuleId(id));
+    }
+
+    @DeleteMapping("/recurring/{id}")
+    public ResponseEntity<Void> removeRecurringRule(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                    @PathVariable long id) {
+        if (!financeManager.removeRecurringRule(session(authorization), id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Правило не найдено");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/metrics", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String metrics() {
+        return financeManager.getMetrics().format();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorBody> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new ErrorBody(e.getMessage()));
+    }
+
+    @ExceptionHandler(MissingRequestHeaderException.class)
+    public ResponseEntity<ErrorBody> unauthorized(MissingRequestHeaderException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorBody("Пользователь не авторизован"));
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ErrorBody> status(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorBody(e.getReason()));
+    }
+
+    /**
+     * Проверка обязательных логина и пароля
+     * @throws IllegalArgumentException 400 если логин или пароль не переданы
+     */
+    private static void requireCredentials(Credentials credentials) {
+        if (credentials.login() == null || credentials.password() == null) {
+            throw new IllegalArgumentException("Логин и пароль обязательны");
+        }
+    }
+
+    /**
+     * Проверка обязательной категории операции
+     * @throws IllegalArgumentException 400 если категория не передана
+     */
+    private static void requireCategory(Operation operation) {
+        if (operation.category() == null) {
+            throw new IllegalArgumentException("Категория обязательна");
+        }
+    }
+
+    /**
+     * Поиск сессии по заголовку авторизации
+     * @param authorization значение заголовка Authorization
+     * @return активная сессия
+     * @throws ResponseStatusException 401 если токен не передан или сессия завершена
+     */
+    private Session session(String authorization) {
+        String token = authorization != null && authorization.startsWith(BEARER)
+                ? authorization.substring(BEARER.length()).trim()
+                : null;
+        Session session = financeManager.getSession(token);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Пользователь не авторизован");
+        }
+        return session;
+    }
+}
@@ -0,0 +1,51 @@
+package finance.web;
+
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import finance.service.ManageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+
+import java.nio.file.Paths;
+
+/**
+ * HTTP-режим приложения
+ * Поднимает встроенный сервер с профилем "server" поверх того же потокобезопасного ManageService,
+ * что и консольный режим. Запросы обрабатываются виртуальными потоками
+ * (spring.threads.virtual.enabled), если их поддерживает JVM
+ */
+@SpringBootApplication
+public class FinanceServer {
+    
+    /**
+     * Сервис управления финансами; данные сохраняются при остановке контекста
+     * @param directory каталог данных
+     * @return сервис
+     */
+    @Bean(destroyMethod = "close")
+    public ManageService manageService(@Value("${finance.data-dir:.}") String directory) {
+        return new ManageService(Paths.get(directory));
+    }
+    
+    /**
+     * Идентификаторы транзакций превышают 2^53 и теряют точность в JavaScript, поэтому long
+     * сериализуется строкой
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer longAsString() {
+        return builder -> builder.serializerByType(Long.class, ToStringSerializer.instance)
+                                 .serializerByType(Long.TYPE, ToStringSerializer.instance);
+    }
+    
+    /**
+     * Запуск HTTP-сервера
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(FinanceServer.class)
+                .profiles("server")
+                .run(args);
+    }
+}
@@ -0,0 +1,83 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CategoryRegistryTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 7, 1, 9, 0);
+
+    @Test
+    void internAssignsSequentialIdsOnce() {
+        CategoryRegistry registry = new CategoryRegistry();
+
+        Category food = registry.intern("Еда");
+        Category transport = registry.intern("Транспорт");
+
+        assertThat(registry.intern("Еда")).isSameAs(food);
+        assertThat(food.getId()).isZero();
+        assertThat(transport.getId()).isEqualTo(1);
+        assertThat(registry.get(1)).isSameAs(transport);
+        assertThat(registry.find("Транспорт")).isSameAs(transport);
+        assertThat(registry.find("еда")).isNull();
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.names()).containsExactly("Еда", "Транспорт");
+        assertThatThrownBy(() -> registry.getCategories().add(food))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void walletSharesOneCategoryPerName() {
+        Wallet wallet = new Wallet();
+        wallet.setBudget("Еда", 300);
+        wallet.addTransaction(new Transaction(1, TransactionType.EXPENSE, "Еда", 120_00, "", DATE));
+        wallet.addTransaction(new Transaction(2, TransactionType.EXPENSE, "Еда", 30_00, "", DATE));
+        wallet.addTransaction(new Transaction(3, TransactionType.INCOME, "Еда", 5_00, "возврат", DATE));
+
+        assertThat(wallet.getCategories()).hasSize(1);
+        Category food = wallet.getCategory("Еда");
+        assertThat(food.getBudgeting()).isEqualTo(300_00);
+        assertThat(food.getUsed()).isEqualTo(150_00);
+        assertThat(food.getEarned()).isEqualTo(5_00);
+        assertThat(food.getExpenseCount()).isEqualTo(2);
+        assertThat(food.getIncomeCount()).isEqualTo(1);
+        assertThat(wallet.getRemainingBudget("Еда")).isEqualTo(150);
+        assertThat(wallet.getTransaction(3).getCategory()).isEqualTo("Еда");
+    }
+
+    @Test
+    void budgetOnlyCategoryHasNoTotals() {
+        Wallet wallet = new Wallet();
+        wallet.setBudget("Отпуск", 50_000);
+        wallet.addTransaction(new Transaction(1, TransactionType.EXPENSE, "Еда", 10_00, "", DATE));
+
+        assertThat(wallet.getBudgets()).containsOnly(Map.entry("Отпуск", 50_000.0));
+        assertThat(wallet.getExpensesByCategory()).containsOnlyKeys("Еда");
+        assertThat(wallet.getIncomeByCategory()).isEmpty();
+
+        // Снятый бюджет не удаляет категорию: на нее могут ссылаться строки и снимки
+        assertThat(wallet.removeBudget("Отпуск")).isTrue();
+        assertThat(wallet.removeBudget("Отпуск")).isFalse();
+        assertThat(wallet.getBudgets()).isEmpty();
+        assertThat(wallet.getCategory("Отпуск")).isNotNull();
+        assertThat(wallet.getCategory("Отпуск").isBudgeted()).isFalse();
+    }
+
+    @Test
+    void restoredCategoriesKeepIds() {
+        Wallet wallet = new Wallet();
+        assertThat(wallet.restoreCategory("Зарплата", false, 0)).isZero();
+        assertThat(wallet.restoreCategory("Еда", true, 400_00)).isEqualTo(1);
+        wallet.restoreTransaction(1, TransactionType.EXPENSE, 1, 75_00, 0, "");
+
+        assertThat(wallet.getTransaction(1).getCategory()).isEqualTo("Еда");
+        assertThat(wallet.getCategory("Еда").getUsed()).isEqualTo(75_00);
+        assertThat(wallet.getBudgets()).containsOnly(Map.entry("Еда", 400.0));
+        assertThatThrownBy(() -> wallet.restoreTransaction(2, TransactionType.EXPENSE, 2, 1, 0, ""))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
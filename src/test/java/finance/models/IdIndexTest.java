@@ -0,0 +1,77 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdIndexTest {
+
+    @Test
+    void putGetAndReplace() {
+        IdIndex index = new IdIndex();
+        index.put(10, 0);
+        index.put(20, 1);
+        index.put(10, 2);
+
+        assertThat(index.get(10)).isEqualTo(2);
+        assertThat(index.get(20)).isEqualTo(1);
+        assertThat(index.get(30)).isEqualTo(-1);
+    }
+
+    @Test
+    void removeKeepsRestOfChainReachable() {
+        // Семь ключей в таблице на 16 ячеек: цепочки пробирования неизбежно пересекаются
+        for (int removed = 0; removed < 7; removed++) {
+            IdIndex index = new IdIndex();
+            for (int i = 0; i < 7; i++) {
+                index.put(i, i);
+            }
+            assertThat(index.remove(removed)).isEqualTo(removed);
+            assertThat(index.remove(removed)).isEqualTo(-1);
+            for (int i = 0; i < 7; i++) {
+                assertThat(index.get(i)).isEqualTo(i == removed ? -1 : i);
+            }
+        }
+    }
+
+    @Test
+    void matchesMapUnderRandomPutsAndRemovals() {
+        Random random = new Random(42);
+        IdIndex index = new IdIndex();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            long id = random.nextInt(512);
+            if (random.nextInt(3) == 0) {
+                Integer row = expected.remove(id);
+                assertThat(index.remove(id)).isEqualTo(row == null ? -1 : row);
+            } else {
+                expected.put(id, step);
+                index.put(id, step);
+            }
+        }
+        for (long id = 0; id < 512; id++) {
+            assertThat(index.get(id)).isEqualTo(expected.getOrDefault(id, -1));
+        }
+    }
+
+    @Test
+    void survivesResizeAndClear() {
+        IdIndex index = new IdIndex();
+        for (int i = 0; i < 10_000; i++) {
+            index.put(i * 1_000_003L, i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            index.remove(i * 1_000_003L);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(index.get(i * 1_000_003L)).isEqualTo(i % 2 == 0 ? -1 : i);
+        }
+
+        index.clear();
+        assertThat(index.get(1_000_003L)).isEqualTo(-1);
+    }
+}
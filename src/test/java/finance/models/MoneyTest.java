@@ -0,0 +1,80 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void parsesDecimalNotation() {
+        assertThat(Money.parse("12.05")).isEqualTo(1205);
+        assertThat(Money.parse("12,5")).isEqualTo(1250);
+        assertThat(Money.parse("-0.01")).isEqualTo(-1);
+        assertThat(Money.parse("+7")).isEqualTo(700);
+        assertThat(Money.parse("1.5E3")).isEqualTo(150_000);
+        assertThat(Money.parse("25e-2")).isEqualTo(25);
+    }
+
+    @Test
+    void parseRoundsHalfAwayFromZero() {
+        assertThat(Money.parse("0.005")).isEqualTo(1);
+        assertThat(Money.parse("0.0049")).isEqualTo(0);
+        assertThat(Money.parse("-2.675")).isEqualTo(-268);
+        assertThat(Money.parse("1.23456789012345678901")).isEqualTo(123);
+    }
+
+    @Test
+    void parseRejectsInvalidAndOverflowingInput() {
+        assertThatThrownBy(() -> Money.parse("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.parse("1.2.3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.parse("12abc")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.parse("1e")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.parse("99999999999999999999")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ofMajorRoundsByDecimalValue() {
+        // 2.675 в double чуть меньше 2.675, но округляется по десятичной записи
+        assertThat(Money.ofMajor(2.675)).isEqualTo(268);
+        assertThat(Money.ofMajor(1.005)).isEqualTo(101);
+        assertThat(Money.ofMajor(-1.005)).isEqualTo(-101);
+        assertThat(Money.ofMajor(0.1 + 0.2)).isEqualTo(30);
+        assertThat(Money.ofMajor(19.99)).isEqualTo(1999);
+        assertThatThrownBy(() -> Money.ofMajor(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.ofMajor(1e17)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void formatsWithTwoDigits() {
+        assertThat(Money.format(1205)).isEqualTo("12.05");
+        assertThat(Money.format(-5)).isEqualTo("-0.05");
+        assertThat(Money.format(0)).isEqualTo("0.00");
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        assertThat(Money.add(1999, 1)).isEqualTo(2000);
+        assertThat(Money.subtract(100, 250)).isEqualTo(-150);
+        assertThat(Money.multiply(1999, 3)).isEqualTo(5997);
+        assertThat(Money.multiply(-1999, 3)).isEqualTo(-5997);
+    }
+
+    @Test
+    void percentRoundsHalfAwayFromZero() {
+        assertThat(Money.percent(10_000, 15)).isEqualTo(1500);
+        assertThat(Money.percent(1, 50)).isEqualTo(1);
+        assertThat(Money.percent(-1, 50)).isEqualTo(-1);
+        assertThat(Money.percent(333, 10)).isEqualTo(33);
+        assertThat(Money.percent(Long.MAX_VALUE, 100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void arithmeticRejectsOverflow() {
+        assertThatThrownBy(() -> Money.add(Long.MAX_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.subtract(Long.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.multiply(Long.MAX_VALUE / 2, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.percent(Long.MAX_VALUE, 101)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,142 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PeriodRollupsTest {
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2024, 2);
+    private static final String[] CATEGORIES = { "Еда", "Транспорт", "Зарплата" };
+
+    @Test
+    void totalsByMonthAndDay() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense(1, "Еда", 100_00, LocalDateTime.of(2024, 1, 31, 23, 59, 59)));
+        wallet.addTransaction(expense(2, "Транспорт", 40_00, LocalDateTime.of(2024, 2, 1, 0, 0)));
+        wallet.addTransaction(expense(3, "Еда", 25_50, LocalDateTime.of(2024, 2, 29, 12, 0)));
+        wallet.addTransaction(new Transaction(4, TransactionType.INCOME, "Зарплата", 1000_00, "",
+                LocalDateTime.of(2024, 2, 10, 9, 0)));
+
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, JANUARY)).isEqualTo(100);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, FEBRUARY)).isEqualTo(65.5);
+        assertThat(wallet.getTotal(TransactionType.INCOME, FEBRUARY)).isEqualTo(1000);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, YearMonth.of(2024, 3))).isZero();
+        assertThat(wallet.getCategoryTotals(TransactionType.EXPENSE, FEBRUARY))
+                .containsOnly(Map.entry("Еда", 25.5), Map.entry("Транспорт", 40.0));
+
+        // Границы периода по дням включительны
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 1)))
+                .isEqualTo(140);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, LocalDate.of(2024, 2, 2), LocalDate.of(2024, 2, 28)))
+                .isZero();
+        assertThat(wallet.getCategoryTotals(TransactionType.EXPENSE, LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 2, 29))).containsOnly(Map.entry("Еда", 125.5), Map.entry("Транспорт", 40.0));
+
+        assertThat(wallet.getMonthlyTotals(TransactionType.EXPENSE, YearMonth.of(2023, 12), FEBRUARY))
+                .containsExactly(Map.entry(YearMonth.of(2023, 12), 0.0), Map.entry(JANUARY, 100.0),
+                        Map.entry(FEBRUARY, 65.5));
+    }
+
+    @Test
+    void updateAndRemoveMoveAmountsBetweenPeriods() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense(1, "Еда", 100_00, LocalDateTime.of(2024, 1, 15, 10, 0)));
+
+        wallet.updateTransaction(expense(1, "Транспорт", 70_00, LocalDateTime.of(2024, 2, 3, 10, 0)));
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, JANUARY)).isZero();
+        assertThat(wallet.getCategoryTotals(TransactionType.EXPENSE, JANUARY)).isEmpty();
+        assertThat(wallet.getCategoryTotals(TransactionType.EXPENSE, FEBRUARY))
+                .containsOnly(Map.entry("Транспорт", 70.0));
+
+        wallet.removeTransaction(1);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, FEBRUARY)).isZero();
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)))
+                .isZero();
+    }
+
+    @Test
+    void daysBeforeEpochFallIntoTheirMonth() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense(1, "Еда", 10_00, LocalDateTime.of(1969, 12, 31, 23, 59, 59)));
+        wallet.addTransaction(expense(2, "Еда", 20_00, LocalDateTime.of(1970, 1, 1, 0, 0)));
+
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, YearMonth.of(1969, 12))).isEqualTo(10);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, LocalDate.of(1969, 12, 31), LocalDate.of(1969, 12, 31)))
+                .isEqualTo(10);
+        assertThat(wallet.getTotal(TransactionType.EXPENSE, YearMonth.of(1970, 1))).isEqualTo(20);
+    }
+
+    @Test
+    void rollupsMatchRecomputationAfterRandomOperations() {
+        Random random = new Random(7);
+        Wallet wallet = new Wallet();
+        List<Long> live = new ArrayList<>();
+        long nextId = 1;
+        for (int step = 0; step < 4000; step++) {
+            int action = random.nextInt(10);
+            if (live.isEmpty() || action < 5) {
+                wallet.addTransaction(randomTransaction(random, nextId));
+                live.add(nextId++);
+            } else if (action < 8) {
+                wallet.updateTransaction(randomTransaction(random, live.get(random.nextInt(live.size()))));
+            } else {
+                wallet.removeTransaction(live.remove(random.nextInt(live.size())));
+            }
+        }
+
+        Map<YearMonth, long[]> months = new HashMap<>();
+        Map<LocalDate, long[]> days = new HashMap<>();
+        Map<String, Long> februaryExpenses = new HashMap<>();
+        for (Transaction transaction : wallet.getTransactions()) {
+            int type = transaction.getType().ordinal();
+            months.computeIfAbsent(YearMonth.from(transaction.getDate()), key -> new long[2])[type]
+                    += transaction.getAmountMinor();
+            days.computeIfAbsent(transaction.getDate().toLocalDate(), key -> new long[2])[type]
+                    += transaction.getAmountMinor();
+            if (transaction.getType() == TransactionType.EXPENSE
+                    && YearMonth.from(transaction.getDate()).equals(FEBRUARY)) {
+                februaryExpenses.merge(transaction.getCategory(), transaction.getAmountMinor(), Long::sum);
+            }
+        }
+
+        for (YearMonth month = YearMonth.of(2023, 12); !month.isAfter(YearMonth.of(2024, 4));
+             month = month.plusMonths(1)) {
+            long[] expected = months.getOrDefault(month, new long[2]);
+            for (TransactionType type : TransactionType.values()) {
+                assertThat(wallet.getTotal(type, month)).as(month + " " + type)
+                        .isEqualTo(Money.toMajor(expected[type.ordinal()]));
+            }
+        }
+        LocalDate from = LocalDate.of(2024, 1, 10);
+        LocalDate to = LocalDate.of(2024, 2, 20);
+        long expected = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            expected += days.getOrDefault(day, new long[2])[TransactionType.INCOME.ordinal()];
+        }
+        assertThat(wallet.getTotal(TransactionType.INCOME, from, to)).isEqualTo(Money.toMajor(expected));
+
+        Map<String, Double> expectedCategories = new HashMap<>();
+        februaryExpenses.forEach((name, amount) -> expectedCategories.put(name, Money.toMajor(amount)));
+        assertThat(wallet.getCategoryTotals(TransactionType.EXPENSE, FEBRUARY)).isEqualTo(expectedCategories);
+    }
+
+    private static Transaction randomTransaction(Random random, long id) {
+        TransactionType type = random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+        return new Transaction(id, type, CATEGORIES[random.nextInt(CATEGORIES.length)], 1 + random.nextInt(50_000),
+                "", LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 100)));
+    }
+
+    private static Transaction expense(long id, String category, long amount, LocalDateTime date) {
+        return new Transaction(id, TransactionType.EXPENSE, category, amount, "", date);
+    }
+}
@@ -0,0 +1,114 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecurringRuleTest {
+    private static final LocalDateTime JAN_31 = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    @Test
+    void monthlyRuleKeepsEndOfMonth() {
+        RecurringRule rule = monthly(1, JAN_31, null);
+
+        assertThat(rule.occurrence(0)).isEqualTo(JAN_31);
+        assertThat(rule.occurrence(1)).isEqualTo(LocalDateTime.of(2024, 2, 29, 9, 0));
+        assertThat(rule.occurrence(2)).isEqualTo(LocalDateTime.of(2024, 3, 31, 9, 0));
+        assertThat(rule.occurrence(3)).isEqualTo(LocalDateTime.of(2024, 4, 30, 9, 0));
+        assertThat(rule.occurrence(13)).isEqualTo(LocalDateTime.of(2025, 2, 28, 9, 0));
+    }
+
+    @Test
+    void advanceMovesNextFireAndStopsAfterUntil() {
+        RecurringRule rule = monthly(1, JAN_31, LocalDateTime.of(2024, 3, 31, 9, 0));
+
+        assertThat(rule.getNextFire()).isEqualTo(JAN_31);
+        assertThat(rule.advance(1).getNextFire()).isEqualTo(LocalDateTime.of(2024, 2, 29, 9, 0));
+        assertThat(rule.advance(2).getNextFire()).isEqualTo(LocalDateTime.of(2024, 3, 31, 9, 0));
+        assertThat(rule.advance(3).getNextFire()).isNull();
+        assertThat(rule.advance(3).getFired()).isEqualTo(3);
+    }
+
+    @Test
+    void dailyAndWeeklyIntervals() {
+        RecurringRule daily = new RecurringRule(1, TransactionType.EXPENSE, "Еда", 100, "обед",
+                RecurringRule.Frequency.DAILY, 3, JAN_31, null, 0);
+        RecurringRule weekly = new RecurringRule(2, TransactionType.EXPENSE, "Спорт", 100, "бассейн",
+                RecurringRule.Frequency.WEEKLY, 2, JAN_31, null, 0);
+
+        assertThat(daily.occurrence(1)).isEqualTo(LocalDateTime.of(2024, 2, 3, 9, 0));
+        assertThat(weekly.occurrence(2)).isEqualTo(LocalDateTime.of(2024, 2, 28, 9, 0));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThatThrownBy(() -> monthly(0, JAN_31, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> monthly(1, JAN_31, JAN_31.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void catchUpCreatesMissedOccurrencesInOrder() {
+        Wallet wallet = new Wallet();
+        wallet.putRecurringRule(monthly(1, JAN_31, null));
+        wallet.putRecurringRule(new RecurringRule(2, TransactionType.INCOME, "Зарплата", 50_000, "аванс",
+                RecurringRule.Frequency.MONTHLY, 1, LocalDateTime.of(2024, 2, 15, 9, 0), null, 0));
+
+        LocalDateTime now = LocalDateTime.of(2024, 4, 1, 0, 0);
+        List<Transaction> created = new ArrayList<>();
+        List<RecurringRule> advanced = wallet.planRecurring(now, 100, created);
+
+        // Подготовка не изменяет кошелек
+        assertThat(wallet.getTransactionCount()).isZero();
+        assertThat(wallet.getRecurringRule(1).getFired()).isZero();
+
+        assertThat(created).extracting(Transaction::getDate).containsExactly(
+                JAN_31,
+                LocalDateTime.of(2024, 2, 15, 9, 0),
+                LocalDateTime.of(2024, 2, 29, 9, 0),
+                LocalDateTime.of(2024, 3, 15, 9, 0),
+                LocalDateTime.of(2024, 3, 31, 9, 0));
+
+        wallet.applyRecurring(advanced, created);
+        assertThat(wallet.getTransactionCount()).isEqualTo(5);
+        assertThat(wallet.getBalanceMinor()).isEqualTo(2 * 50_000 - 3 * 30_000);
+        assertThat(wallet.getNextRecurringFire()).isEqualTo(LocalDateTime.of(2024, 4, 15, 9, 0));
+        assertThat(wallet.getRecurringRule(1).getNextFire()).isEqualTo(LocalDateTime.of(2024, 4, 30, 9, 0));
+
+        List<Transaction> again = new ArrayList<>();
+        assertThat(wallet.planRecurring(now, 100, again)).isEmpty();
+        assertThat(again).isEmpty();
+    }
+
+    @Test
+    void catchUpRespectsLimitAndUntil() {
+        Wallet wallet = new Wallet();
+        wallet.putRecurringRule(monthly(1, JAN_31, LocalDateTime.of(2024, 6, 30, 9, 0)));
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        List<Transaction> created = new ArrayList<>();
+        wallet.applyRecurring(wallet.planRecurring(now, 2, created), created);
+        assertThat(created).hasSize(2);
+        assertThat(wallet.getNextRecurringFire()).isEqualTo(LocalDateTime.of(2024, 3, 31, 9, 0));
+
+        created = new ArrayList<>();
+        wallet.applyRecurring(wallet.planRecurring(now, 100, created), created);
+        assertThat(created).extracting(Transaction::getDate).containsExactly(
+                LocalDateTime.of(2024, 3, 31, 9, 0),
+                LocalDateTime.of(2024, 4, 30, 9, 0),
+                LocalDateTime.of(2024, 5, 31, 9, 0),
+                LocalDateTime.of(2024, 6, 30, 9, 0));
+        assertThat(wallet.getTransactionCount()).isEqualTo(6);
+        assertThat(wallet.getNextRecurringFire()).isNull();
+    }
+
+    private static RecurringRule monthly(int interval, LocalDateTime start, LocalDateTime until) {
+        return new RecurringRule(1, TransactionType.EXPENSE, "Аренда", 30_000, "квартира",
+                RecurringRule.Frequency.MONTHLY, interval, start, until, 0);
+    }
+}
@@ -0,0 +1,117 @@
+package finance.models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 6, 1, 10, 0);
+
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        wallet = new Wallet();
+    }
+
+    @Test
+    void matchesWordPrefixesIgnoringCaseAndYo() {
+        long coffee = add(TransactionType.EXPENSE, "Еда", "Кофе в зёрнах", 0);
+        long lunch = add(TransactionType.EXPENSE, "Еда", "бизнес-ланч", 1);
+        add(TransactionType.EXPENSE, "Транспорт", "такси домой", 2);
+
+        assertThat(ids(search("коф"))).containsExactly(coffee);
+        assertThat(ids(search("ЗЕРН"))).containsExactly(coffee);
+        assertThat(ids(search("ланч"))).containsExactly(lunch);
+        assertThat(ids(search("кофе ланч"))).isEmpty();
+        assertThat(search("фе")).isEmpty();
+    }
+
+    @Test
+    void matchesCategoryNames() {
+        long taxi = add(TransactionType.EXPENSE, "Транспорт", "такси", 0);
+        long metro = add(TransactionType.EXPENSE, "Транспорт", "метро", 1);
+        add(TransactionType.EXPENSE, "Еда", "обед", 2);
+
+        assertThat(ids(search("транс"))).containsExactly(metro, taxi);
+        assertThat(ids(search("транс метро"))).containsExactly(metro);
+    }
+
+    @Test
+    void filtersByTypePeriodAndLimit() {
+        long salary = add(TransactionType.INCOME, "Зарплата", "аванс", 0);
+        long bonus = add(TransactionType.INCOME, "Зарплата", "аванс премия", 5);
+        add(TransactionType.EXPENSE, "Еда", "аванс потрачен", 6);
+
+        assertThat(ids(wallet.search("аванс", TransactionType.INCOME, null, null, 10)))
+                .containsExactly(bonus, salary);
+        assertThat(ids(wallet.search("аванс", null, BASE, BASE.plusDays(5), 10))).containsExactly(salary);
+        assertThat(wallet.search("", null, null, null, 2)).hasSize(2);
+    }
+
+    @Test
+    void followsUpdatesInPlaceAndWithNewDate() {
+        long id = add(TransactionType.EXPENSE, "Еда", "пицца", 0);
+        assertThat(ids(search("пицц"))).containsExactly(id);
+
+        wallet.updateTransaction(new Transaction(id, TransactionType.EXPENSE, "Развлечения", 500, "кино",
+                BASE));
+        assertThat(search("пицц")).isEmpty();
+        assertThat(search("еда")).isEmpty();
+        assertThat(ids(search("кино развл"))).containsExactly(id);
+
+        wallet.updateTransaction(new Transaction(id, TransactionType.EXPENSE, "Развлечения", 500, "театр",
+                BASE.plusDays(3)));
+        assertThat(search("кино")).isEmpty();
+        List<Transaction> found = search("театр");
+        assertThat(ids(found)).containsExactly(id);
+        assertThat(found.get(0).getDate()).isEqualTo(BASE.plusDays(3));
+    }
+
+    @Test
+    void skipsRemovedRowsAndSurvivesCompaction() {
+        int count = 3000;
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = add(TransactionType.EXPENSE, i % 2 == 0 ? "Еда" : "Транспорт", "покупка номер" + i, i);
+        }
+        assertThat(search("покупка")).hasSize(count);
+
+        wallet.removeTransaction(ids[0]);
+        assertThat(search("покупка")).hasSize(count - 1);
+
+        // Удаленных строк становится больше живых: хранилище уплотняется, индекс строится заново
+        for (int i = 1; i < count; i++) {
+            if (i % 10 != 0) {
+                wallet.removeTransaction(ids[i]);
+            }
+        }
+        List<Transaction> found = search("покупка");
+        assertThat(found).hasSize(count / 10 - 1);
+        assertThat(ids(search("номер2990"))).containsExactly(ids[2990]);
+        assertThat(ids(search("номер2991"))).isEmpty();
+        assertThat(search("еда")).hasSize(count / 10 - 1);
+        assertThat(search("транс")).isEmpty();
+
+        long added = add(TransactionType.INCOME, "Подарок", "покупка возвращена", count);
+        assertThat(ids(search("возвр"))).containsExactly(added);
+    }
+
+    private long add(TransactionType type, String category, String description, int day) {
+        Transaction transaction = new Transaction(type, category, 100, description, BASE.plusDays(day));
+        wallet.addTransaction(transaction);
+        return transaction.getId();
+    }
+
+    private List<Transaction> search(String query) {
+        return wallet.search(query, null, null, null, Integer.MAX_VALUE);
+    }
+
+    private static long[] ids(List<Transaction> transactions) {
+        return transactions.stream().mapToLong(Transaction::getId).toArray();
+    }
+}
@@ -0,0 +1,99 @@
+package finance.models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private TransactionColumns columns;
+    private TimeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        columns = new TransactionColumns(new CategoryRegistry());
+        index = new TimeIndex(columns);
+    }
+
+    @Test
+    void recentMergesBackdatedRows() {
+        int day1 = add(1);
+        int day5 = add(5);
+        int day3 = add(3);
+        int day9 = add(9);
+        int day0 = add(0);
+
+        assertThat(ids(index.recent(10))).containsExactly(ids(day9, day5, day3, day1, day0));
+        assertThat(ids(index.recent(2))).containsExactly(ids(day9, day5));
+    }
+
+    @Test
+    void recentSkipsDeletedRows() {
+        int day1 = add(1);
+        int day2 = add(2);
+        int day4 = add(4);
+        int day3 = add(3);
+        columns.delete(day4);
+        columns.delete(day1);
+
+        assertThat(ids(index.recent(10))).containsExactly(ids(day3, day2));
+        assertThat(ids(index.recent(1))).containsExactly(ids(day3));
+    }
+
+    @Test
+    void betweenIsHalfOpenAndChronological() {
+        int day2 = add(2);
+        int day6 = add(6);
+        int day4 = add(4);
+        int day3 = add(3);
+        int day8 = add(8);
+        add(1);
+
+        assertThat(ids(index.between(nanos(2), nanos(8)))).containsExactly(ids(day2, day3, day4, day6));
+        assertThat(ids(index.between(nanos(3), nanos(9)))).containsExactly(ids(day3, day4, day6, day8));
+        assertThat(index.between(nanos(5), nanos(5))).isEmpty();
+    }
+
+    @Test
+    void betweenSkipsDeletedRows() {
+        int day2 = add(2);
+        int day6 = add(6);
+        int day4 = add(4);
+        int day4Again = add(4);
+        columns.delete(day6);
+        columns.delete(day4);
+
+        assertThat(ids(index.between(nanos(0), nanos(10)))).containsExactly(ids(day2, day4Again));
+    }
+
+    @Test
+    void rebuildOrdersLiveRows() {
+        int day7 = add(7);
+        int day2 = add(2);
+        int day5 = add(5);
+        columns.delete(day2);
+        index.rebuild();
+
+        assertThat(ids(index.recent(10))).containsExactly(ids(day7, day5));
+        assertThat(ids(index.between(nanos(0), nanos(10)))).containsExactly(ids(day5, day7));
+    }
+
+    private int add(int day) {
+        int row = columns.add(new Transaction(TransactionType.EXPENSE, "Еда", 10, "", BASE.plusDays(day)));
+        index.add(row);
+        return row;
+    }
+
+    private static long nanos(int day) {
+        return TransactionColumns.toEpochNanos(BASE.plusDays(day));
+    }
+
+    private long[] ids(int... rows) {
+        return Arrays.stream(rows).mapToLong(columns::id).toArray();
+    }
+}
@@ -0,0 +1,136 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionColumnsTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 6, 1, 10, 0);
+
+    @Test
+    void storesRowsAcrossSegments() {
+        CategoryRegistry registry = new CategoryRegistry();
+        TransactionColumns columns = new TransactionColumns(registry);
+        int rows = 2 * TransactionColumns.SEGMENT_SIZE + 3;
+        for (int i = 0; i < rows; i++) {
+            TransactionType type = i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+            assertThat(columns.add(new Transaction(1000 + i, type, i % 2 == 0 ? "Еда" : "Транспорт", i,
+                    "строка " + i, DATE.plusMinutes(i)))).isEqualTo(i);
+        }
+
+        assertThat(columns.size()).isEqualTo(rows);
+        assertThat(columns.liveSize()).isEqualTo(rows);
+        assertThat(columns.segmentCount()).isEqualTo(3);
+        assertThat(columns.segmentLength(2)).isEqualTo(3);
+        assertThat(registry.size()).isEqualTo(2);
+        for (int row : new int[] { 0, TransactionColumns.SEGMENT_SIZE - 1, TransactionColumns.SEGMENT_SIZE,
+                rows - 1 }) {
+            Transaction transaction = columns.get(row);
+            assertThat(transaction.getId()).isEqualTo(1000 + row);
+            assertThat(transaction.getType())
+                    .isEqualTo(row % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE);
+            assertThat(transaction.getCategory()).isEqualTo(row % 2 == 0 ? "Еда" : "Транспорт");
+            assertThat(transaction.getAmountMinor()).isEqualTo(row);
+            assertThat(transaction.getDescription()).isEqualTo("строка " + row);
+            assertThat(transaction.getDate()).isEqualTo(DATE.plusMinutes(row));
+        }
+    }
+
+    @Test
+    void setAndDeleteKeepRowNumbers() {
+        CategoryRegistry registry = new CategoryRegistry();
+        TransactionColumns columns = new TransactionColumns(registry);
+        columns.add(expense(1, DATE));
+        columns.add(expense(2, DATE.plusDays(1)));
+        columns.add(expense(3, DATE.plusDays(2)));
+
+        columns.set(1, TransactionType.INCOME, registry.intern("Подарки").getId(), 500, "новое");
+        columns.delete(0);
+
+        assertThat(columns.size()).isEqualTo(3);
+        assertThat(columns.liveSize()).isEqualTo(2);
+        assertThat(columns.isDeleted(0)).isTrue();
+        Transaction updated = columns.get(1);
+        assertThat(updated.getId()).isEqualTo(2);
+        assertThat(updated.getType()).isEqualTo(TransactionType.INCOME);
+        assertThat(updated.getCategory()).isEqualTo("Подарки");
+        assertThat(updated.getAmountMinor()).isEqualTo(500);
+        assertThat(updated.getDescription()).isEqualTo("новое");
+        assertThat(updated.getDate()).isEqualTo(DATE.plusDays(1));
+        assertThat(columns.get(2).getId()).isEqualTo(3);
+    }
+
+    @Test
+    void sharedSegmentsDoNotSeeLaterChanges() {
+        CategoryRegistry registry = new CategoryRegistry();
+        TransactionColumns columns = new TransactionColumns(registry);
+        for (int i = 0; i < TransactionColumns.SEGMENT_SIZE + 1; i++) {
+            columns.add(expense(i, DATE));
+        }
+
+        TransactionColumns.Segment[] shared = columns.share();
+        columns.set(0, TransactionType.INCOME, registry.intern("Еда").getId(), 7, "изменено");
+        columns.delete(TransactionColumns.SEGMENT_SIZE);
+        columns.add(expense(-1, DATE));
+
+        assertThat(shared).hasSize(2);
+        assertThat(shared[0].amounts[0]).isEqualTo(100);
+        assertThat(shared[0].types[0]).isEqualTo((byte) TransactionType.EXPENSE.ordinal());
+        assertThat(shared[1].types[0]).isEqualTo((byte) TransactionType.EXPENSE.ordinal());
+        assertThat(columns.get(0).getAmountMinor()).isEqualTo(7);
+        assertThat(columns.isDeleted(TransactionColumns.SEGMENT_SIZE)).isTrue();
+
+        // Измененный сегмент скопирован, а новый снимок получает текущие сегменты
+        assertThat(columns.segment(0)).isNotSameAs(shared[0]);
+        assertThat(columns.share()[0]).isSameAs(columns.segment(0));
+    }
+
+    @Test
+    void keepsDatesAcrossWholeStoredRange() {
+        TransactionColumns columns = new TransactionColumns(new CategoryRegistry());
+        LocalDateTime[] dates = {
+            LocalDateTime.of(1677, 9, 21, 0, 12, 45),
+            LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999),
+            LocalDateTime.of(2262, 4, 11, 23, 47, 15)
+        };
+        for (int i = 0; i < dates.length; i++) {
+            int row = columns.add(expense(i, dates[i]));
+            assertThat(columns.get(row).getDate()).isEqualTo(dates[i]);
+        }
+    }
+
+    @Test
+    void rejectsDatesOutsideStoredRange() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense(1, DATE));
+
+        assertThat(Transaction.isSupportedDate(LocalDateTime.of(1600, 1, 1, 0, 0))).isFalse();
+        assertThatThrownBy(() -> wallet.addTransaction(expense(2, LocalDateTime.of(1600, 1, 1, 0, 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> wallet.updateTransaction(expense(1, LocalDateTime.of(2300, 1, 1, 0, 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Отклоненные операции не меняют кошелек
+        assertThat(wallet.getTransactionCount()).isEqualTo(1);
+        assertThat(wallet.getTransaction(1).getDate()).isEqualTo(DATE);
+        assertThat(wallet.getTotalExpensesMinor()).isEqualTo(100);
+        assertThat(wallet.getCategory("Еда").getUsed()).isEqualTo(100);
+    }
+
+    @Test
+    void clampsQueryBoundsOutsideStoredRange() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense(1, DATE));
+
+        assertThat(wallet.getTransactionsBetween(LocalDateTime.of(1000, 1, 1, 0, 0),
+                LocalDateTime.of(3000, 1, 1, 0, 0))).hasSize(1);
+        assertThat(wallet.search("", null, LocalDateTime.of(1000, 1, 1, 0, 0), null, 10)).hasSize(1);
+    }
+
+    private static Transaction expense(long id, LocalDateTime date) {
+        return new Transaction(id, TransactionType.EXPENSE, "Еда", 100, "", date);
+    }
+}
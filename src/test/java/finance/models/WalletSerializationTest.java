@@ -0,0 +1,51 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WalletSerializationTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2031, 7, 1, 12, 0);
+
+    @Test
+    void keepsNineteenDigitIdsAcrossRoundTrip() throws Exception {
+        long id = 9_000_000_000_000_000_123L;
+        Wallet wallet = new Wallet();
+        wallet.setBudget("Еда", 300);
+        wallet.addTransaction(new Transaction(id, TransactionType.EXPENSE, "Еда", 12_345, "обед", DATE));
+        wallet.addTransaction(new Transaction(7, TransactionType.INCOME, "Зарплата", 100_000, "", DATE));
+
+        Wallet copy = roundTrip(roundTrip(wallet));
+
+        assertThat(copy.getTransaction(id)).isNotNull();
+        assertThat(copy.getTransaction(id).getAmountMinor()).isEqualTo(12_345);
+        assertThat(copy.getTransaction(7).getDate()).isEqualTo(DATE);
+        assertThat(copy.getBudgets()).containsEntry("Еда", 300.0);
+        assertThat(copy.getBalanceMinor()).isEqualTo(wallet.getBalanceMinor());
+    }
+
+    @Test
+    void legacyIdsAreStable() {
+        String uuid = "123e4567-e89b-12d3-a456-426614174000";
+        assertThat(TransactionIds.fromLegacy(uuid)).isEqualTo(TransactionIds.fromLegacy(uuid));
+        assertThat(TransactionIds.fromLegacy("9223372036854775807")).isEqualTo(Long.MAX_VALUE);
+        assertThat(TransactionIds.fromLegacy("9223372036854775808")).isNotNegative();
+    }
+
+    private static Wallet roundTrip(Wallet wallet) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(wallet);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Wallet) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package finance.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WalletTotalsTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 4, 1, 8, 0);
+    private static final String[] CATEGORIES = { "Еда", "Транспорт", "Зарплата", "Подарки" };
+
+    @Test
+    void totalsFollowAddUpdateAndRemove() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction(1, TransactionType.INCOME, "Зарплата", 1000_00, "", DATE));
+        wallet.addTransaction(new Transaction(2, TransactionType.EXPENSE, "Еда", 250_50, "", DATE));
+        assertTotals(wallet, 1000_00, 250_50);
+
+        // Смена типа и суммы на месте
+        assertThat(wallet.updateTransaction(new Transaction(2, TransactionType.INCOME, "Еда", 10_00, "", DATE)))
+                .isTrue();
+        assertTotals(wallet, 1010_00, 0);
+        assertThat(wallet.getCategory("Еда").getUsed()).isZero();
+        assertThat(wallet.getCategory("Еда").getEarned()).isEqualTo(10_00);
+
+        // Смена даты: строка переносится
+        assertThat(wallet.updateTransaction(new Transaction(1, TransactionType.EXPENSE, "Транспорт", 99,
+                "", DATE.plusDays(40)))).isTrue();
+        assertTotals(wallet, 10_00, 99);
+        assertThat(wallet.getCategory("Зарплата").getEarned()).isZero();
+        assertThat(wallet.getCategory("Зарплата").getIncomeCount()).isZero();
+
+        assertThat(wallet.removeTransaction(2)).isTrue();
+        assertThat(wallet.removeTransaction(2)).isFalse();
+        assertThat(wallet.updateTransaction(new Transaction(2, TransactionType.INCOME, "Еда", 1, "", DATE)))
+                .isFalse();
+        assertTotals(wallet, 0, 99);
+        assertThat(wallet.getIncomeByCategory()).isEmpty();
+        assertThat(wallet.getExpensesByCategory()).containsOnly(Map.entry("Транспорт", 0.99));
+    }
+
+    @Test
+    void totalsMatchRecomputationAfterRandomOperations() {
+        Random random = new Random(42);
+        Wallet wallet = new Wallet();
+        List<Long> live = new ArrayList<>();
+        long nextId = 1;
+        // Удаляется больше, чем добавляется во второй половине: хранилище уплотняется
+        for (int step = 0; step < 6000; step++) {
+            int action = random.nextInt(10);
+            boolean shrinking = step > 3000;
+            if (live.isEmpty() || action < (shrinking ? 2 : 6)) {
+                Transaction transaction = randomTransaction(random, nextId++);
+                wallet.addTransaction(transaction);
+                live.add(transaction.getId());
+            } else if (action < 8) {
+                long id = live.get(random.nextInt(live.size()));
+                assertThat(wallet.updateTransaction(randomTransaction(random, id))).isTrue();
+            } else {
+                long id = live.remove(random.nextInt(live.size()));
+                assertThat(wallet.removeTransaction(id)).isTrue();
+            }
+        }
+
+        List<Transaction> transactions = wallet.getTransactions();
+        assertThat(transactions).hasSize(live.size());
+        long income = 0;
+        long expenses = 0;
+        Map<String, long[]> byCategory = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            long[] flow = byCategory.computeIfAbsent(transaction.getCategory(), name -> new long[4]);
+            if (transaction.getType() == TransactionType.INCOME) {
+                income += transaction.getAmountMinor();
+                flow[0] += transaction.getAmountMinor();
+                flow[2]++;
+            } else {
+                expenses += transaction.getAmountMinor();
+                flow[1] += transaction.getAmountMinor();
+                flow[3]++;
+            }
+        }
+        assertTotals(wallet, income, expenses);
+        for (String name : CATEGORIES) {
+            long[] flow = byCategory.getOrDefault(name, new long[4]);
+            Category category = wallet.getCategory(name);
+            assertThat(category.getEarned()).as(name).isEqualTo(flow[0]);
+            assertThat(category.getUsed()).as(name).isEqualTo(flow[1]);
+            assertThat(category.getIncomeCount()).as(name).isEqualTo(flow[2]);
+            assertThat(category.getExpenseCount()).as(name).isEqualTo(flow[3]);
+        }
+    }
+
+    private static Transaction randomTransaction(Random random, long id) {
+        TransactionType type = random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        return new Transaction(id, type, category, 1 + random.nextInt(100_000), "",
+                DATE.plusHours(random.nextInt(24 * 90)));
+    }
+
+    private static void assertTotals(Wallet wallet, long income, long expenses) {
+        assertThat(wallet.getTotalIncomeMinor()).isEqualTo(income);
+        assertThat(wallet.getTotalExpensesMinor()).isEqualTo(expenses);
+        assertThat(wallet.getBalanceMinor()).isEqualTo(income - expenses);
+        assertThat(wallet.getBalance()).isEqualTo(Money.toMajor(income - expenses));
+    }
+}
@@ -0,0 +1,131 @@
+package finance.service;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertEngineTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 5, 10, 12, 0);
+    private static final String FOOD = "Еда";
+    private static final String TRANSPORT = "Транспорт";
+
+    private final AlertEngine engine = new AlertEngine();
+    private Wallet wallet;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        wallet = new Wallet();
+        wallet.addTransaction(transaction(TransactionType.INCOME, "Зарплата", 10_000_00));
+        wallet.setBudget(FOOD, 100);
+    }
+
+    @Test
+    void firesOnceWhenLevelIsCrossed() {
+        assertThat(spend(70_00)).isEmpty();
+
+        List<Alert> alerts = spend(15_00);
+        assertThat(alerts).hasSize(1);
+        assertThat(alerts.get(0).getType()).isEqualTo(AlertType.BUDGET_LEVEL);
+        assertThat(alerts.get(0).getLevel()).isEqualTo(80);
+        assertThat(alerts.get(0).getCategory()).isEqualTo(FOOD);
+
+        // Расходы остаются выше 80%, но ниже 100%: повторного оповещения нет
+        assertThat(spend(5_00)).isEmpty();
+    }
+
+    @Test
+    void reportsHighestCrossedLevelOnly() {
+        List<Alert> alerts = spend(150_00);
+
+        assertThat(alerts).hasSize(1);
+        assertThat(alerts.get(0).getType()).isEqualTo(AlertType.BUDGET_EXCEEDED);
+        assertThat(alerts.get(0).getLevel()).isEqualTo(100);
+        assertThat(alerts.get(0).getValue()).isEqualTo(150);
+
+        assertThat(spend(10_00)).isEmpty();
+    }
+
+    @Test
+    void firesAgainAfterDroppingBelowLevel() {
+        Transaction first = transaction(TransactionType.EXPENSE, FOOD, 90_00);
+        assertThat(apply(() -> wallet.addTransaction(first))).hasSize(1);
+
+        // Удаление операции возвращает расходы ниже уровня; само по себе оно оповещения не создает
+        assertThat(apply(() -> wallet.removeTransaction(first.getId()))).isEmpty();
+
+        List<Alert> alerts = spend(85_00);
+        assertThat(alerts).hasSize(1);
+        assertThat(alerts.get(0).getLevel()).isEqualTo(80);
+    }
+
+    @Test
+    void firesAgainAfterBudgetIsRaised() {
+        assertThat(spend(90_00)).hasSize(1);
+        assertThat(apply(() -> wallet.setBudget(FOOD, 200))).isEmpty();
+
+        assertThat(spend(80_00)).extracting(Alert::getLevel).containsExactly(80);
+    }
+
+    @Test
+    void unbudgetedCategoryRaisesNoBudgetAlerts() {
+        assertThat(spend(TRANSPORT, 500_00)).isEmpty();
+    }
+
+    @Test
+    void lowBalanceFiresOnceOnCrossing() {
+        engine.setLowBalance(9_000);
+
+        assertThat(spend(TRANSPORT, 500_00)).isEmpty();
+
+        List<Alert> alerts = spend(TRANSPORT, 600_00);
+        assertThat(alerts).extracting(Alert::getType).containsExactly(AlertType.LOW_BALANCE);
+        assertThat(alerts.get(0).getLimit()).isEqualTo(9_000);
+        assertThat(alerts.get(0).getValue()).isEqualTo(8_900);
+
+        assertThat(spend(TRANSPORT, 10_00)).isEmpty();
+    }
+
+    @Test
+    void negativeBalanceFiresOnceOnCrossing() {
+        assertThat(spend(TRANSPORT, 9_500_00)).extracting(Alert::getType)
+                .containsExactly(AlertType.LOW_BALANCE);
+        assertThat(spend(TRANSPORT, 400_00)).isEmpty();
+
+        List<Alert> alerts = spend(TRANSPORT, 100_01);
+        assertThat(alerts).extracting(Alert::getType).containsExactly(AlertType.NEGATIVE_BALANCE);
+        assertThat(alerts.get(0).getValue()).isEqualTo(-0.01);
+
+        assertThat(spend(TRANSPORT, 5_00)).isEmpty();
+    }
+
+    private List<Alert> spend(long amount) {
+        return spend(FOOD, amount);
+    }
+
+    private List<Alert> spend(String category, long amount) {
+        Transaction expense = transaction(TransactionType.EXPENSE, category, amount);
+        return apply(() -> wallet.addTransaction(expense), category);
+    }
+
+    private List<Alert> apply(Runnable operation) {
+        return apply(operation, FOOD);
+    }
+
+    private List<Alert> apply(Runnable operation, String category) {
+        AlertEngine.Check check = engine.begin("alice", wallet, category);
+        operation.run();
+        return check.finish(wallet);
+    }
+
+    private Transaction transaction(TransactionType type, String category, long amount) {
+        return new Transaction(nextId++, type, category, amount, "", DATE);
+    }
+}
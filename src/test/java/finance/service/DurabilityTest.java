@@ -0,0 +1,107 @@
+package finance.service;
+
+import finance.models.RecurringRule;
+import finance.models.Transaction;
+import finance.storage.Durability;
+import finance.storage.TransactionJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DurabilityTest {
+    private static final String JOURNAL_FILE = "finance_data.journal";
+    private static final Path FULL_DEVICE = Path.of("/dev/full");
+
+    @TempDir
+    Path dir;
+
+    private final List<ManageService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(ManageService::close);
+    }
+
+    @Test
+    void durableOperationIsInJournalWhenItReturns() throws IOException {
+        ManageService service = open(dir, Durability.DURABLE);
+        service.register("alice", "secret");
+        service.addIncome(service.login("alice", "secret"), "Зарплата", 100, "");
+
+        // Копия журнала снимается сразу после возврата, до закрытия сервиса
+        Path copy = dir.resolve("copy.journal");
+        Files.copy(dir.resolve(JOURNAL_FILE), copy);
+        try (TransactionJournal journal = new TransactionJournal(copy, 0, 64)) {
+            assertThat(journal.replay(0, new SkippingHandler())).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void asyncOperationDoesNotWaitForJournalFailure() throws IOException {
+        ManageService service = open(journalOnFullDevice(), Durability.ASYNC);
+
+        assertThat(service.register("alice", "secret")).isTrue();
+        assertThat(service.login("alice", "secret")).isNotNull();
+    }
+
+    @Test
+    @Timeout(30)
+    void durableOperationReportsJournalFailure() throws IOException {
+        ManageService service = open(journalOnFullDevice(), Durability.DURABLE);
+
+        assertThatThrownBy(() -> service.register("alice", "secret"))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    private ManageService open(Path directory, Durability durability) {
+        ManageService service = new ManageService(directory);
+        service.setNotificationSink((level, message) -> { });
+        service.setDurability(durability);
+        services.add(service);
+        return service;
+    }
+
+    /**
+     * Каталог, журнал в котором указывает на /dev/full: любая запись журнала завершается ошибкой
+     */
+    private Path journalOnFullDevice() throws IOException {
+        assumeTrue(Files.isWritable(FULL_DEVICE));
+        Path directory = dir.resolve("full");
+        Files.createDirectories(directory);
+        Files.createSymbolicLink(directory.resolve(JOURNAL_FILE), FULL_DEVICE);
+        return directory;
+    }
+
+    private static final class SkippingHandler implements TransactionJournal.Handler {
+        @Override
+        public void onRegister(long lsn, String login, String password) { }
+
+        @Override
+        public void onTransaction(long lsn, String login, Transaction transaction) { }
+
+        @Override
+        public void onBudget(long lsn, String login, String category, long amount) { }
+
+        @Override
+        public void onRemove(long lsn, String login, long id) { }
+
+        @Override
+        public void onRecurringRule(long lsn, String login, RecurringRule rule) { }
+
+        @Override
+        public void onRemoveRecurringRule(long lsn, String login, long id) { }
+    }
+}
@@ -0,0 +1,99 @@
+package finance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ManageServiceRecoveryTest {
+    private static final String CACHE_PROPERTY = "finance.cache.transactions";
+    private static final int USERS = 8;
+    private static final int INCOMES = 5;
+
+    @TempDir
+    Path dir;
+
+    private final List<ManageService> services = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Кэш меньше суммарного размера кошельков: восстановление затрагивает больше, чем помещается
+        System.setProperty(CACHE_PROPERTY, "10");
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(CACHE_PROPERTY);
+        services.forEach(ManageService::close);
+    }
+
+    @Test
+    @Timeout(value = 60, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void replaysJournalLargerThanCacheWithoutDuplicates() throws IOException {
+        Path first = dir.resolve("first");
+        ManageService service = open(first);
+        for (int i = 0; i < USERS; i++) {
+            assertThat(service.register("user" + i, "secret")).isTrue();
+        }
+        // Пользователи попадают в индекс: при восстановлении их кошельки читаются из файлов
+        service.checkpoint();
+        for (int i = 0; i < USERS; i++) {
+            Session session = service.login("user" + i, "secret");
+            for (int j = 0; j < INCOMES; j++) {
+                service.addIncome(session, "Зарплата", 10, "");
+            }
+            service.addExpense(session, "Еда", 3, "обед");
+        }
+
+        // Сбой без контрольной точки: журнал и файлы вытесненных кошельков копируются как есть
+        Path second = dir.resolve("second");
+        copy(first, second);
+        ManageService recovered = open(second);
+        assertWallets(recovered);
+
+        // Кошельки, вытесненные после восстановления, не получают записи журнала повторно
+        Path third = dir.resolve("third");
+        copy(second, third);
+        assertWallets(open(third));
+    }
+
+    private ManageService open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ManageService service = new ManageService(directory);
+        service.setNotificationSink((level, message) -> { });
+        services.add(service);
+        return service;
+    }
+
+    private static void assertWallets(ManageService service) {
+        for (int i = 0; i < USERS; i++) {
+            Session session = service.login("user" + i, "secret");
+            assertThat(session).as("user" + i).isNotNull();
+            assertThat(service.getBalance(session)).as("user" + i).isEqualTo(INCOMES * 10 - 3);
+            assertThat(service.getRecentTransactions(session, 100)).as("user" + i).hasSize(INCOMES + 1);
+        }
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else if (!path.getFileName().toString().endsWith(".tmp")) {
+                    Files.copy(path, copy);
+                }
+            }
+        }
+    }
+}
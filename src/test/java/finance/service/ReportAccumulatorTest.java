@@ -0,0 +1,133 @@
+package finance.service;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportAccumulatorTest {
+    private static final String TRANSFER = "Перевод";
+    private static final String TRANSFER_PREFIX = "Перевод пользователю: ";
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 12, 0);
+    private static final String[] CATEGORIES = { "Еда", "Транспорт", "Зарплата", "Связь" };
+    private static final int TOP = 3;
+
+    private long nextId = 1;
+
+    @Test
+    void mergedPartsMatchSingleAccumulator() {
+        Map<String, Wallet> wallets = randomWallets(new Random(11), 40);
+
+        ReportAccumulator single = accumulator();
+        wallets.forEach((login, wallet) -> single.add(login, wallet.view()));
+
+        // Части разного размера, включая пустую, сливаются в произвольном порядке
+        List<ReportAccumulator> parts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            parts.add(accumulator());
+        }
+        int index = 0;
+        for (Map.Entry<String, Wallet> entry : wallets.entrySet()) {
+            parts.get(index++ % 5 % 3).add(entry.getKey(), entry.getValue().view());
+        }
+        ReportAccumulator merged = parts.get(3);
+        merged.merge(parts.get(2));
+        parts.get(1).merge(parts.get(0));
+        merged.merge(parts.get(1));
+
+        assertThat(merged.toReport()).usingRecursiveComparison().isEqualTo(single.toReport());
+    }
+
+    @Test
+    void mergeKeepsBestSpendersAndRoutes() {
+        ReportAccumulator left = accumulator();
+        ReportAccumulator right = accumulator();
+        left.add("anna", wallet(expense("Еда", 500_00), transfer("boris", 10_00)).view());
+        left.add("boris", wallet(expense("Еда", 100_00), transfer("anna", 70_00)).view());
+        right.add("clara", wallet(expense("Еда", 500_00), transfer("boris", 30_00)).view());
+        right.add("dmitry", wallet(expense("Связь", 300_00)).view());
+        right.add("egor", wallet(expense("Связь", 50_00), transfer("anna", 5_00), transfer("anna", 20_00)).view());
+
+        left.merge(right);
+        OperatorReport report = left.toReport();
+
+        assertThat(report.getUsers()).isEqualTo(5);
+        // Переводы не считаются тратами; при равных суммах выше логин, который меньше
+        assertThat(report.getTopSpenders()).extracting(OperatorReport.Spender::getLogin)
+                .containsExactly("anna", "clara", "dmitry");
+        assertThat(report.getTopRoutes()).extracting(route -> route.getFrom() + "->" + route.getTo())
+                .containsExactly("boris->anna", "clara->boris", "egor->anna");
+        assertThat(report.getTopRoutes().get(2).getCount()).isEqualTo(2);
+        assertThat(report.getTransferVolume()).isEqualTo(135);
+        assertThat(report.getTransferCount()).isEqualTo(5);
+    }
+
+    @Test
+    void mergingEmptyAccumulatorKeepsBalanceRange() {
+        ReportAccumulator accumulator = accumulator();
+        accumulator.add("anna", wallet(new Transaction(1, TransactionType.INCOME, "Зарплата", 42_00, "", DATE))
+                .view());
+        accumulator.merge(accumulator());
+
+        OperatorReport report = accumulator.toReport();
+        assertThat(report.getMinBalance()).isEqualTo(42);
+        assertThat(report.getMaxBalance()).isEqualTo(42);
+
+        OperatorReport empty = accumulator().toReport();
+        assertThat(empty.getUsers()).isZero();
+        assertThat(empty.getMinBalance()).isZero();
+        assertThat(empty.getMaxBalance()).isZero();
+    }
+
+    private static ReportAccumulator accumulator() {
+        return new ReportAccumulator(TOP, TRANSFER, TRANSFER_PREFIX);
+    }
+
+    private static Map<String, Wallet> randomWallets(Random random, int users) {
+        Map<String, Wallet> wallets = new LinkedHashMap<>();
+        long id = 1;
+        for (int user = 0; user < users; user++) {
+            Wallet wallet = new Wallet();
+            int count = random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                long amount = 1 + random.nextInt(random.nextBoolean() ? 100 : 10_000_000);
+                if (random.nextInt(5) == 0) {
+                    String to = "user" + random.nextInt(users);
+                    wallet.addTransaction(new Transaction(id++, TransactionType.EXPENSE, TRANSFER, amount,
+                            TRANSFER_PREFIX + to + " - подарок", DATE));
+                } else {
+                    TransactionType type = random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+                    wallet.addTransaction(new Transaction(id++, type, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                            amount, "", DATE));
+                }
+            }
+            wallets.put("user" + user, wallet);
+        }
+        return wallets;
+    }
+
+    private static Wallet wallet(Transaction... transactions) {
+        Wallet wallet = new Wallet();
+        for (Transaction transaction : transactions) {
+            wallet.addTransaction(transaction);
+        }
+        return wallet;
+    }
+
+    private Transaction expense(String category, long amount) {
+        return new Transaction(nextId++, TransactionType.EXPENSE, category, amount, "", DATE);
+    }
+
+    private Transaction transfer(String to, long amount) {
+        return new Transaction(nextId++, TransactionType.EXPENSE, TRANSFER, amount, TRANSFER_PREFIX + to + " - ", DATE);
+    }
+}
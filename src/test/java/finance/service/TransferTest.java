@@ -0,0 +1,153 @@
+package finance.service;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.TransferRequest;
+import finance.storage.Durability;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferTest {
+    private static final int ROUNDS = 2_000;
+
+    @TempDir
+    Path dir;
+
+    private ManageService service;
+    private Session alice;
+    private Session bob;
+
+    @BeforeEach
+    void setUp() {
+        service = new ManageService(dir);
+        service.setNotificationSink((level, message) -> { });
+        service.setDurability(Durability.ASYNC);
+        service.register("alice", "secret");
+        service.register("bob", "secret");
+        service.register("carol", "secret");
+        alice = service.login("alice", "secret");
+        bob = service.login("bob", "secret");
+        service.addIncome(alice, "Зарплата", 100, "");
+        service.addIncome(bob, "Зарплата", 100, "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void transferMovesMoneyBetweenWallets() {
+        assertThat(service.transfer(alice, "bob", 30, "долг")).isTrue();
+
+        assertThat(service.getBalance(alice)).isEqualTo(70);
+        assertThat(service.getBalance(bob)).isEqualTo(130);
+        Transaction incoming = service.getRecentTransactions(bob, 1).get(0);
+        assertThat(incoming.getType()).isEqualTo(TransactionType.INCOME);
+        assertThat(incoming.getDescription()).isEqualTo("Перевод от: alice - долг");
+    }
+
+    @Test
+    void insufficientFundsChangeNothing() {
+        assertThat(service.transfer(alice, "bob", 100.01, "")).isFalse();
+
+        assertUnchanged();
+    }
+
+    @Test
+    void batchWithUnknownRecipientChangesNothing() {
+        List<TransferRequest> requests = List.of(
+                new TransferRequest("bob", 10, "первый"),
+                new TransferRequest("nobody", 10, "второй"));
+
+        assertThat(service.transferBatch(alice, requests)).isFalse();
+
+        assertUnchanged();
+        assertThat(service.getRecentTransactions(service.login("carol", "secret"), 10)).isEmpty();
+    }
+
+    @Test
+    void batchOverBalanceChangesNothing() {
+        // Каждая заявка по отдельности покрывается балансом, но сумма пакета - нет
+        List<TransferRequest> requests = List.of(
+                new TransferRequest("bob", 60, ""),
+                new TransferRequest("carol", 60, ""));
+
+        assertThat(service.transferBatch(alice, requests)).isFalse();
+
+        assertUnchanged();
+        assertThat(service.getRecentTransactions(service.login("carol", "secret"), 10)).isEmpty();
+    }
+
+    @Test
+    void batchIsAppliedWhole() {
+        List<TransferRequest> requests = List.of(
+                new TransferRequest("bob", 60, ""),
+                new TransferRequest("carol", 40, ""));
+
+        assertThat(service.transferBatch(alice, requests)).isTrue();
+
+        assertThat(service.getBalance(alice)).isZero();
+        assertThat(service.getBalance(bob)).isEqualTo(160);
+        assertThat(service.getBalance(service.login("carol", "secret"))).isEqualTo(40);
+        assertThat(service.getRecentTransactions(alice, 10)).hasSize(3);
+    }
+
+    @Test
+    void selfTransferKeepsBalance() {
+        assertThat(service.transfer(alice, "alice", 40, "копилка")).isTrue();
+
+        assertThat(service.getBalance(alice)).isEqualTo(100);
+        assertThat(service.getRecentTransactions(alice, 10)).hasSize(3);
+        assertThat(service.getTotalExpense(alice)).isEqualTo(40);
+        assertThat(service.getTotalIncome(alice)).isEqualTo(140);
+    }
+
+    @Test
+    @Timeout(value = 60, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void opposingTransfersDoNotDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?> forward = executor.submit(() -> repeatTransfers(start, alice, "bob"));
+            Future<?> backward = executor.submit(() -> repeatTransfers(start, bob, "alice"));
+            start.countDown();
+            forward.get();
+            backward.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(service.getBalance(alice) + service.getBalance(bob)).isEqualTo(200);
+        assertThat(service.getRecentTransactions(alice, 3 * ROUNDS)).hasSize(1 + 2 * ROUNDS);
+        assertThat(service.getRecentTransactions(bob, 3 * ROUNDS)).hasSize(1 + 2 * ROUNDS);
+    }
+
+    private Void repeatTransfers(CountDownLatch start, Session from, String to) throws InterruptedException {
+        start.await();
+        for (int i = 0; i < ROUNDS; i++) {
+            // Встречные переводы по 0.01 не могут исчерпать баланс, поэтому каждый из них проходит
+            assertThat(service.transfer(from, to, 0.01, "")).isTrue();
+        }
+        return null;
+    }
+
+    private void assertUnchanged() {
+        assertThat(service.getBalance(alice)).isEqualTo(100);
+        assertThat(service.getBalance(bob)).isEqualTo(100);
+        assertThat(service.getRecentTransactions(alice, 10)).hasSize(1);
+        assertThat(service.getRecentTransactions(bob, 10)).hasSize(1);
+    }
+}
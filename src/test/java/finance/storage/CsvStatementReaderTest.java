@@ -0,0 +1,118 @@
+package finance.storage;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvStatementReaderTest {
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        String csv = "date,amount,category,description\n"
+                + "2024-01-05,-350.50,\"Кафе, рестораны\",\"Обед \"\"у Ивана\"\", столик 3\"\n"
+                + "2024-01-06 18:30,\"1,5\",Прочее,\"\"\n";
+
+        List<Transaction> read = readAll(csv, 0);
+
+        assertThat(read).hasSize(2);
+        Transaction lunch = read.get(0);
+        assertThat(lunch.getType()).isEqualTo(TransactionType.EXPENSE);
+        assertThat(lunch.getAmountMinor()).isEqualTo(350_50);
+        assertThat(lunch.getCategory()).isEqualTo("Кафе, рестораны");
+        assertThat(lunch.getDescription()).isEqualTo("Обед \"у Ивана\", столик 3");
+        assertThat(lunch.getDate()).isEqualTo(LocalDateTime.of(2024, 1, 5, 0, 0));
+
+        Transaction other = read.get(1);
+        assertThat(other.getType()).isEqualTo(TransactionType.INCOME);
+        assertThat(other.getAmountMinor()).isEqualTo(1_50);
+        assertThat(other.getDescription()).isEmpty();
+        assertThat(other.getDate()).isEqualTo(LocalDateTime.of(2024, 1, 6, 18, 30));
+    }
+
+    @Test
+    void readsDecimalCommaWithSemicolonDelimiter() throws IOException {
+        String csv = "\uFEFFДата;Тип;Категория;Сумма;Описание\n"
+                + "31.12.2023 23:59:58;расход;Еда;1 234,56;ужин\n"
+                + "01.01.2024;доход;;-0,07;\n";
+
+        List<Transaction> read = readAll(csv, 0);
+
+        assertThat(read).hasSize(2);
+        assertThat(read.get(0).getType()).isEqualTo(TransactionType.EXPENSE);
+        assertThat(read.get(0).getAmountMinor()).isEqualTo(1234_56);
+        assertThat(read.get(0).getDate()).isEqualTo(LocalDateTime.of(2023, 12, 31, 23, 59, 58));
+        // Колонка типа важнее знака суммы; пустая категория заменяется категорией по умолчанию
+        assertThat(read.get(1).getType()).isEqualTo(TransactionType.INCOME);
+        assertThat(read.get(1).getAmountMinor()).isEqualTo(7);
+        assertThat(read.get(1).getCategory()).isEqualTo("Без категории");
+    }
+
+    @Test
+    void skipsRejectedRowsWithLineNumbers() throws IOException {
+        String csv = "date,type,amount\n"
+                + "2024-02-30,income,10\n"
+                + "2024-02-01,income,abc\n"
+                + "2024-02-01,перевод,10\n"
+                + "2024-02-01,income,0\n"
+                + "\n"
+                + "2024-02-01\n"
+                + "2024-02-29,expense,12.5\n";
+
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv))) {
+            Transaction valid = reader.next();
+            assertThat(valid.getAmountMinor()).isEqualTo(12_50);
+            assertThat(valid.getDate()).isEqualTo(LocalDateTime.of(2024, 2, 29, 0, 0));
+            assertThat(reader.next()).isNull();
+
+            assertThat(reader.getSkippedCount()).isEqualTo(5);
+            assertThat(reader.getErrors()).hasSize(5);
+            assertThat(reader.getErrors().get(0)).startsWith("строка 2:");
+            assertThat(reader.getErrors().get(1)).contains("некорректная сумма");
+            assertThat(reader.getErrors().get(2)).contains("неизвестный тип операции");
+            assertThat(reader.getErrors().get(4)).startsWith("строка 7:").contains("недостаточно колонок");
+        }
+    }
+
+    @Test
+    void skipsDatesOutsideStoredRange() throws IOException {
+        String csv = "date,amount\n"
+                + "1600-01-01,10\n"
+                + "2300-01-01,10\n"
+                + "1960-02-29,10\n";
+
+        List<Transaction> read = readAll(csv, 2);
+
+        assertThat(read).extracting(Transaction::getDate).containsExactly(LocalDateTime.of(1960, 2, 29, 0, 0));
+    }
+
+    @Test
+    void rejectsHeaderWithoutRequiredColumns() {
+        assertThatThrownBy(() -> new CsvStatementReader(new StringReader("date,category\n2024-01-01,Еда\n")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("даты и суммы");
+        assertThatThrownBy(() -> new CsvStatementReader(new StringReader("")))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static List<Transaction> readAll(String csv, int expectedSkipped) throws IOException {
+        List<Transaction> read = new ArrayList<>();
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv))) {
+            Transaction transaction;
+            while ((transaction = reader.next()) != null) {
+                read.add(transaction);
+            }
+            assertThat(reader.getSkippedCount()).as(String.join("; ", reader.getErrors()))
+                    .isEqualTo(expectedSkipped);
+        }
+        return read;
+    }
+}
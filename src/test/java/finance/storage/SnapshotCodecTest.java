@@ -0,0 +1,153 @@
+package finance.storage;
+
+import finance.models.RecurringRule;
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.User;
+import finance.models.Wallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotCodecTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 1, 31, 9, 30);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void walletRoundTrip() throws IOException {
+        Wallet wallet = sampleWallet();
+        UserStore store = new UserStore(dir);
+        store.saveWallet("alice", wallet, 42);
+
+        UserStore.StoredWallet stored = store.loadWallet("alice");
+        assertThat(stored.getLsn()).isEqualTo(42);
+        assertWalletsEqual(stored.getWallet(), wallet);
+    }
+
+    @Test
+    void encodedWalletMatchesDirectWrite() throws IOException {
+        Wallet wallet = sampleWallet();
+        UserStore store = new UserStore(dir);
+        store.saveWallet("bob", UserStore.encodeWallet(wallet), 7);
+
+        UserStore.StoredWallet stored = store.loadWallet("bob");
+        assertThat(stored.getLsn()).isEqualTo(7);
+        assertWalletsEqual(stored.getWallet(), wallet);
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        User user = new User("alice", "secret", sampleWallet());
+        Path path = dir.resolve("snapshot.bin");
+        SnapshotCodec.save(path, List.of(user, new User("bob", "pass")), 3);
+
+        SnapshotCodec.Snapshot snapshot = SnapshotCodec.load(path);
+        assertThat(snapshot.getLsn()).isEqualTo(3);
+        assertThat(snapshot.getUsers()).containsOnlyKeys("alice", "bob");
+        User loaded = snapshot.getUsers().get("alice");
+        assertThat(loaded.getPassword()).isEqualTo("secret");
+        assertThat(loaded.getRecurringDue()).isEqualTo(DATE);
+        assertWalletsEqual(loaded.getWallet(), user.getWallet());
+    }
+
+    @Test
+    void rejectsCorruptedBody() throws IOException {
+        Path path = dir.resolve("strings.bin");
+        SnapshotCodec.writeFile(path, SnapshotCodec.WALLET, 1, List.of("первая", "вторая"),
+                RecordWriter::writeString);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        List<String> read = new ArrayList<>();
+        assertThatThrownBy(() -> SnapshotCodec.readFile(path, SnapshotCodec.WALLET,
+                in -> read.add(in.readString())))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Контрольная сумма");
+        assertThat(read).isEmpty();
+    }
+
+    @Test
+    void corruptedIndexAddsNoUsers() throws IOException {
+        UserStore store = new UserStore(dir);
+        store.saveIndex(List.of(new User("alice", "secret"), new User("bob", "pass")), 5);
+        Path index = dir.resolve("index.bin");
+        byte[] bytes = Files.readAllBytes(index);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(index, bytes);
+
+        Map<String, User> users = new HashMap<>();
+        assertThatThrownBy(() -> store.loadIndex(users)).isInstanceOf(IOException.class);
+        assertThat(users).isEmpty();
+    }
+
+    @Test
+    void rejectsCorruptedHeader() throws IOException {
+        Path path = dir.resolve("strings.bin");
+        SnapshotCodec.writeFile(path, SnapshotCodec.WALLET, 1, List.of("первая"), RecordWriter::writeString);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[8] ^= 1;
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> SnapshotCodec.readFile(path, SnapshotCodec.WALLET, in -> in.readString()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("заголовок");
+    }
+
+    @Test
+    void rejectsWrongFileKind() throws IOException {
+        Path path = dir.resolve("strings.bin");
+        SnapshotCodec.writeFile(path, SnapshotCodec.INDEX, 1, List.of("первая"), RecordWriter::writeString);
+
+        assertThatThrownBy(() -> SnapshotCodec.readFile(path, SnapshotCodec.WALLET, in -> in.readString()))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static Wallet sampleWallet() {
+        Wallet wallet = new Wallet();
+        wallet.setBudget("Еда", 5000);
+        wallet.addTransaction(new Transaction(1, TransactionType.INCOME, "Зарплата", 100_000_00, "аванс", DATE));
+        wallet.addTransaction(new Transaction(2, TransactionType.EXPENSE, "Еда", 1250_50, "", DATE.plusHours(3)));
+        // Операция задним числом: разность дат в записи отрицательна
+        wallet.addTransaction(new Transaction(10, TransactionType.EXPENSE, "Транспорт", 60_00, "метро",
+                DATE.minusDays(2)));
+        wallet.putRecurringRule(new RecurringRule(1, TransactionType.EXPENSE, "Аренда", 30_000_00, "квартира",
+                RecurringRule.Frequency.MONTHLY, 1, DATE, null, 0));
+        return wallet;
+    }
+
+    private static void assertWalletsEqual(Wallet actual, Wallet expected) {
+        assertThat(actual.getBudgets()).isEqualTo(expected.getBudgets());
+        assertThat(actual.getBalanceMinor()).isEqualTo(expected.getBalanceMinor());
+        assertThat(actual.getTransactionCount()).isEqualTo(expected.getTransactionCount());
+        for (Transaction transaction : expected.getTransactions()) {
+            Transaction loaded = actual.getTransaction(transaction.getId());
+            assertThat(loaded).isNotNull();
+            assertThat(loaded.getType()).isEqualTo(transaction.getType());
+            assertThat(loaded.getCategory()).isEqualTo(transaction.getCategory());
+            assertThat(loaded.getAmountMinor()).isEqualTo(transaction.getAmountMinor());
+            assertThat(loaded.getDescription()).isEqualTo(transaction.getDescription());
+            assertThat(loaded.getDate()).isEqualTo(transaction.getDate());
+        }
+        assertThat(actual.getRecurringRules()).hasSameSizeAs(expected.getRecurringRules());
+        RecurringRule rule = actual.getRecurringRules().get(0);
+        RecurringRule original = expected.getRecurringRules().get(0);
+        assertThat(rule.getId()).isEqualTo(original.getId());
+        assertThat(rule.getAmountMinor()).isEqualTo(original.getAmountMinor());
+        assertThat(rule.getNextFire()).isEqualTo(original.getNextFire());
+        assertThat(rule.getDescription()).isEqualTo(original.getDescription());
+    }
+}
@@ -0,0 +1,104 @@
+package finance.storage;
+
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import finance.models.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionExporterTest {
+    private static final DateTimeFormatter ISO_SECONDS = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+    @Test
+    void exportedCsvIsReadByStatementImport() throws IOException {
+        Wallet wallet = new Wallet();
+        List<Transaction> written = List.of(
+                new Transaction(1, TransactionType.INCOME, "Зарплата", 100_000_00, "аванс",
+                        LocalDateTime.of(2024, 2, 29, 9, 15, 30)),
+                new Transaction(2, TransactionType.EXPENSE, "Кафе, рестораны", 350_05,
+                        "Обед \"у Ивана\", столик 3", LocalDateTime.of(1969, 12, 31, 23, 59, 59)),
+                new Transaction(3, TransactionType.EXPENSE, "Еда", 7, "список:\nхлеб\nмолоко",
+                        LocalDateTime.of(1900, 3, 1, 0, 0)),
+                new Transaction(4, TransactionType.INCOME, "Подарки", 12_00, null,
+                        LocalDateTime.of(2000, 2, 29, 23, 0, 1)));
+        written.forEach(wallet::addTransaction);
+
+        String csv = export(wallet);
+
+        List<Transaction> read = new ArrayList<>();
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv))) {
+            Transaction transaction;
+            while ((transaction = reader.next()) != null) {
+                read.add(transaction);
+            }
+            assertThat(reader.getErrors()).isEmpty();
+        }
+        assertThat(read).hasSameSizeAs(written);
+        for (int i = 0; i < written.size(); i++) {
+            Transaction expected = written.get(i);
+            Transaction actual = read.get(i);
+            assertThat(actual.getType()).isEqualTo(expected.getType());
+            assertThat(actual.getCategory()).isEqualTo(expected.getCategory());
+            assertThat(actual.getAmountMinor()).isEqualTo(expected.getAmountMinor());
+            // Отсутствующее описание записывается пустым полем
+            assertThat(actual.getDescription()).isEqualTo(Objects.toString(expected.getDescription(), ""));
+            assertThat(actual.getDate()).isEqualTo(expected.getDate());
+        }
+    }
+
+    @Test
+    void appendDateMatchesJavaTime() throws IOException {
+        List<LocalDateTime> dates = new ArrayList<>(List.of(
+                LocalDateTime.of(1970, 1, 1, 0, 0),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(1900, 2, 28, 12, 0),
+                LocalDateTime.of(1900, 3, 1, 0, 0),
+                LocalDateTime.of(1700, 3, 1, 6, 30),
+                LocalDateTime.of(1677, 9, 21, 0, 12, 45),
+                LocalDateTime.of(1960, 2, 29, 0, 0, 1),
+                LocalDateTime.of(2000, 2, 29, 23, 59, 59),
+                LocalDateTime.of(2024, 2, 29, 10, 0),
+                LocalDateTime.of(2100, 3, 1, 0, 0),
+                LocalDateTime.of(2262, 4, 11, 23, 47, 16)));
+        // Каждый день полного четырехсотлетнего цикла по обе стороны эпохи
+        for (LocalDateTime date = LocalDateTime.of(1800, 1, 1, 13, 7, 5);
+             date.getYear() < 2200; date = date.plusDays(1)) {
+            dates.add(date);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChannelTextWriter out = new ChannelTextWriter(Channels.newChannel(bytes));
+        for (LocalDateTime date : dates) {
+            out.appendDate(date.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + date.getNano()).append('\n');
+        }
+        out.flush();
+
+        String[] written = bytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).hasSameSizeAs(dates);
+        for (int i = 0; i < written.length; i++) {
+            assertThat(written[i]).as(dates.get(i).toString()).isEqualTo(dates.get(i).format(ISO_SECONDS));
+        }
+    }
+
+    private static String export(Wallet wallet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long count = TransactionExporter.writeTransactions(wallet.view(), Channels.newChannel(bytes),
+                ExportFormat.CSV);
+        assertThat(count).isEqualTo(wallet.getTransactionCount());
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,251 @@
+package finance.storage;
+
+import finance.models.RecurringRule;
+import finance.models.Transaction;
+import finance.models.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TransactionJournalTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 15, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysRecordsAfterRestart() throws IOException {
+        Path path = dir.resolve("journal.log");
+        try (TransactionJournal journal = open(path)) {
+            journal.newBatch().register("alice", "secret").commit();
+            journal.newBatch()
+                    .transaction("alice", expense(1, "Еда", 150))
+                    .budget("alice", "Еда", 10_000)
+                    .commit();
+        }
+
+        Recorder recorder = new Recorder();
+        try (TransactionJournal journal = open(path)) {
+            assertThat(journal.replay(0, recorder)).isEqualTo(3);
+            assertThat(journal.getLastLsn()).isEqualTo(3);
+        }
+        assertThat(recorder.events).containsExactly(
+                "1 register alice secret",
+                "2 transaction alice 1 Еда 150",
+                "3 budget alice Еда 10000");
+    }
+
+    @Test
+    void skipsRecordsCoveredBySnapshot() throws IOException {
+        Path path = dir.resolve("journal.log");
+        try (TransactionJournal journal = open(path)) {
+            journal.newBatch().register("alice", "secret").commit();
+            journal.newBatch().remove("alice", 7).commit();
+            journal.newBatch().remove("alice", 8).commit();
+        }
+
+        Recorder recorder = new Recorder();
+        try (TransactionJournal journal = open(path)) {
+            assertThat(journal.replay(2, recorder)).isEqualTo(1);
+        }
+        assertThat(recorder.events).containsExactly("3 remove alice 8");
+    }
+
+    @Test
+    void keepsTailAndLsnAfterCheckpointAndRestart() throws IOException {
+        Path path = dir.resolve("journal.log");
+        long checkpoint;
+        try (TransactionJournal journal = open(path)) {
+            journal.newBatch().register("alice", "secret").commit();
+            journal.newBatch().remove("alice", 1).commit();
+            checkpoint = journal.getLastLsn();
+            journal.newBatch().remove("alice", 2).commit();
+
+            journal.truncateThrough(checkpoint);
+            assertThat(journal.getRecordCount()).isEqualTo(1);
+            journal.newBatch().remove("alice", 3).commit();
+            assertThat(journal.getLastLsn()).isEqualTo(4);
+        }
+
+        Recorder recorder = new Recorder();
+        try (TransactionJournal journal = open(path)) {
+            assertThat(journal.replay(checkpoint, recorder)).isEqualTo(2);
+            assertThat(journal.getLastLsn()).isEqualTo(4);
+            journal.newBatch().remove("alice", 4).commit();
+            assertThat(journal.getLastLsn()).isEqualTo(5);
+        }
+        assertThat(recorder.events).containsExactly("3 remove alice 2", "4 remove alice 3");
+    }
+
+    @Test
+    void continuesLsnAfterCheckpointOfWholeJournal() throws IOException {
+        Path path = dir.resolve("journal.log");
+        try (TransactionJournal journal = open(path)) {
+            journal.newBatch().register("alice", "secret").commit();
+            journal.newBatch().register("bob", "secret").commit();
+            journal.truncateThrough(journal.getLastLsn());
+            assertThat(journal.getRecordCount()).isZero();
+        }
+
+        // Новые записи после перезапуска не должны получить номера, уже учтенные в снимке
+        Recorder recorder = new Recorder();
+        try (TransactionJournal journal = open(path)) {
+            assertThat(journal.replay(0, recorder)).isZero();
+            assertThat(journal.getLastLsn()).isEqualTo(2);
+            journal.newBatch().register("carol", "secret").commit();
+        }
+        try (TransactionJournal journal = open(path)) {
+            journal.replay(2, recorder);
+        }
+        assertThat(recorder.events).containsExactly("3 register carol secret");
+    }
+
+    @Test
+    void preservesMissingAndLongStrings() throws IOException {
+        Path path = dir.resolve("journal.log");
+        String description = "ы".repeat(40_000);
+        RecurringRule rule = new RecurringRule(5, TransactionType.INCOME, "Зарплата", 100_000, null,
+                RecurringRule.Frequency.MONTHLY, 1, DATE, null, 0);
+        try (TransactionJournal journal = open(path)) {
+            journal.newBatch()
+                    .transaction("alice", new Transaction(1, TransactionType.EXPENSE, "Еда", 150, description, DATE))
+                    .register("bob", null)
+                    .recurringRule("alice", rule)
+                    .commit();
+        }
+
+        Recorder recorder = new Recorder();
+        try (TransactionJournal journal = open(path)) {
+            assertThat(journal.replay(0, recorder)).isEqualTo(3);
+        }
+        assertThat(recorder.transactions.get(0).getDescription()).isEqualTo(description);
+        assertThat(recorder.events.get(1)).isEqualTo("2 register bob null");
+        assertThat(recorder.rules.get(0).getDescription()).isEmpty();
+        assertThat(recorder.rules.get(0).getNextFire()).isEqualTo(DATE);
+    }
+
+    @Test
+    void groupsFramesWithinCommitInterval() throws IOException {
+        Path path = dir.resolve("journal.log");
+        AtomicInteger flushes = new AtomicInteger();
+        AtomicInteger flushed = new AtomicInteger();
+        try (TransactionJournal journal = new TransactionJournal(path, 200, 1024)) {
+            journal.setFlushListener((records, bytes, nanos) -> {
+                flushes.incrementAndGet();
+                flushed.addAndGet(records);
+            });
+            long lsn = 0;
+            for (int i = 1; i <= 100; i++) {
+                lsn = journal.newBatch().remove("alice", i).append();
+            }
+            journal.awaitDurable(lsn);
+        }
+        assertThat(flushed).hasValue(100);
+        assertThat(flushes.get()).isLessThan(100);
+    }
+
+    @Test
+    @Timeout(10)
+    void flushesFullGroupWithoutWaitingForInterval() throws IOException {
+        Path path = dir.resolve("journal.log");
+        try (TransactionJournal journal = new TransactionJournal(path, 60_000, 10)) {
+            long lsn = 0;
+            for (int i = 1; i <= 10; i++) {
+                lsn = journal.newBatch().remove("alice", i).append();
+            }
+            journal.awaitDurable(lsn);
+            assertThat(lsn).isEqualTo(10);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void writerFailureReachesEveryWaiter() throws Exception {
+        // Запись в /dev/full всегда завершается ошибкой нехватки места
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full));
+        TransactionJournal journal = new TransactionJournal(full, 50, 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> waiters = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                long lsn = journal.newBatch().remove("alice", i).append();
+                waiters.add(executor.submit(() -> {
+                    journal.awaitDurable(lsn);
+                    return null;
+                }));
+            }
+            for (Future<?> waiter : waiters) {
+                assertThatThrownBy(waiter::get).hasCauseInstanceOf(IOException.class);
+            }
+            // Следующие записи не ставятся в очередь после ошибки потока записи
+            assertThatThrownBy(() -> journal.newBatch().remove("alice", 3).append())
+                    .isInstanceOf(IOException.class);
+        } finally {
+            executor.shutdownNow();
+            assertThatThrownBy(journal::close).isInstanceOf(IOException.class);
+        }
+    }
+
+    private static TransactionJournal open(Path path) throws IOException {
+        return new TransactionJournal(path, 0, 64);
+    }
+
+    private static Transaction expense(long id, String category, long amount) {
+        return new Transaction(id, TransactionType.EXPENSE, category, amount, "", DATE);
+    }
+
+    private static final class Recorder implements TransactionJournal.Handler {
+        final List<String> events = new ArrayList<>();
+        final List<Transaction> transactions = new ArrayList<>();
+        final List<RecurringRule> rules = new ArrayList<>();
+
+        @Override
+        public void onRegister(long lsn, String login, String password) {
+            events.add(lsn + " register " + login + " " + password);
+        }
+
+        @Override
+        public void onTransaction(long lsn, String login, Transaction transaction) {
+            transactions.add(transaction);
+            events.add(lsn + " transaction " + login + " " + transaction.getId() + " "
+                    + transaction.getCategory() + " " + transaction.getAmountMinor());
+        }
+
+        @Override
+        public void onBudget(long lsn, String login, String category, long amount) {
+            events.add(lsn + " budget " + login + " " + category + " " + amount);
+        }
+
+        @Override
+        public void onRemove(long lsn, String login, long id) {
+            events.add(lsn + " remove " + login + " " + id);
+        }
+
+        @Override
+        public void onRecurringRule(long lsn, String login, RecurringRule rule) {
+            rules.add(rule);
+            events.add(lsn + " rule " + login + " " + rule.getId());
+        }
+
+        @Override
+        public void onRemoveRecurringRule(long lsn, String login, long id) {
+            events.add(lsn + " removeRule " + login + " " + id);
+        }
+    }
+}